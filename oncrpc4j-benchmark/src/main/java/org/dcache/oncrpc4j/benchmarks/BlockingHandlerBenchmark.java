@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.dcache.oncrpc4j.rpc.IoStrategy;
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares request execution strategies with handlers, which block, e.g. on a
+ * storage back-end, for a fixed time. Many client threads share a single
+ * connection, thus the server concurrency is the limiting factor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(256)
+public class BlockingHandlerBenchmark {
+
+    private static final int PROG_NUMBER = 100017;
+    private static final int PROG_VERS = 1;
+    private static final OncRpcProgram prog = new OncRpcProgram(PROG_NUMBER, PROG_VERS);
+
+    @Param({"WORKER_THREAD", "VIRTUAL_THREAD"})
+    private IoStrategy ioStrategy;
+
+    /**
+     * Max number of concurrently executed requests. Zero means the default of
+     * the strategy.
+     */
+    @Param({"0"})
+    private int workers;
+
+    /**
+     * Time in milliseconds a handler blocks.
+     */
+    @Param({"1"})
+    private long blockTime;
+
+    private OncRpcSvc svc;
+    private OncRpcClient rpcClient;
+    private RpcTransport transport;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        OncRpcSvcBuilder builder = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withIoStrategy(ioStrategy)
+                .withRpcService(prog, call -> {
+                    try {
+                        Thread.sleep(blockTime);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    call.reply(XdrVoid.XDR_VOID);
+                });
+
+        if (workers > 0) {
+            builder.withWorkerThreadPoolSize(workers);
+        }
+
+        svc = builder.build();
+        svc.start();
+
+        InetSocketAddress socketAddress = svc.getInetSocketAddress(IpProtocolType.TCP);
+        rpcClient = new OncRpcClient(socketAddress, IpProtocolType.TCP);
+        transport = rpcClient.connect();
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+
+        private RpcCall call;
+
+        @Setup(Level.Trial)
+        public void setUp(BlockingHandlerBenchmark benchmark) {
+            call = new RpcCall(prog.getNumber(), prog.getVersion(), new RpcAuthTypeNone(), benchmark.transport);
+        }
+    }
+
+    @Benchmark
+    public XdrAble blockingCall(Caller caller) throws IOException, ExecutionException, InterruptedException {
+        return caller.call.call(0, XdrVoid.XDR_VOID, XdrVoid.class).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        rpcClient.close();
+        svc.stop();
+    }
+}
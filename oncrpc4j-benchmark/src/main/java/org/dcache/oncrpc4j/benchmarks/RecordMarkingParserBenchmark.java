@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteOrder;
+import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
+import org.dcache.oncrpc4j.rpc.RpcMessageParserTCP;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.attributes.AttributeHolder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of record marking parsing of a large multi-fragment
+ * message, which arrives in small slices, e.g. a single read per slice.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class RecordMarkingParserBenchmark {
+
+    @Param({"1048576", "16777216"})
+    private String messageSize;
+
+    @Param({"4096", "65536"})
+    private String fragmentSize;
+
+    @Param({"1460", "65536"})
+    private String sliceSize;
+
+    private final RpcMessageParserTCP parser = new RpcMessageParserTCP();
+
+    private FilterChainContext ctx;
+    private Buffer message;
+    private int slice;
+
+    @Setup
+    public void setUp() {
+
+        AttributeHolder attributes = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createUnsafeAttributeHolder();
+        Connection<?> connection = (Connection<?>) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttributes":
+                            return attributes;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "isBlocking":
+                            return false;
+                        default:
+                            // not used by the parser
+                            return null;
+                    }
+                });
+
+        ctx = FilterChainContext.create(connection);
+        message = toFragmentedBuffer(Integer.parseInt(messageSize), Integer.parseInt(fragmentSize));
+        slice = Integer.parseInt(sliceSize);
+    }
+
+    @Benchmark
+    public void parseInSlices(Blackhole blackhole) throws IOException {
+
+        int size = message.capacity();
+        for (int limit = slice; ; limit += slice) {
+            message.position(0).limit(Math.min(limit, size));
+            ctx.setMessage(message);
+            blackhole.consume(parser.handleRead(ctx));
+            if (limit >= size) {
+                break;
+            }
+        }
+        blackhole.consume(ctx.getMessage());
+    }
+
+    private static Buffer toFragmentedBuffer(int size, int fragmentSize) {
+
+        int nfragments = (size + fragmentSize - 1) / fragmentSize;
+        Buffer out = GrizzlyMemoryManager.allocate(size + nfragments * 4);
+        out.order(ByteOrder.BIG_ENDIAN);
+
+        byte[] payload = new byte[fragmentSize];
+        for (int remaining = size; remaining > 0; remaining -= fragmentSize) {
+            int n = Math.min(fragmentSize, remaining);
+            out.putInt(remaining > fragmentSize ? n : n | RpcMessageParserTCP.RPC_LAST_FRAG);
+            out.put(payload, 0, n);
+        }
+        return out.flip();
+    }
+}
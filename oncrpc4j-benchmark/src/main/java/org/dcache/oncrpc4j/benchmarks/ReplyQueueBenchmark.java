@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.EOFException;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.dcache.oncrpc4j.rpc.ReplyQueue;
+import org.dcache.oncrpc4j.rpc.RpcReply;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.util.HashedWheelTimer;
+import org.dcache.oncrpc4j.util.ScheduledExecutorTimer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares the cost of registering and completing a request in {@link ReplyQueue}
+ * with different timeout timers, while a large number of other requests is in-flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class ReplyQueueBenchmark {
+
+    private static final CompletionHandler<RpcReply, RpcTransport> NOOP = new CompletionHandler<RpcReply, RpcTransport>() {
+        @Override
+        public void completed(RpcReply result, RpcTransport attachment) {
+        }
+
+        @Override
+        public void failed(Throwable exc, RpcTransport attachment) {
+        }
+    };
+
+    @Param({"executor", "wheel"})
+    private String timer;
+
+    @Param({"1000", "200000"})
+    private String inFlight;
+
+    private final InetSocketAddress addr = new InetSocketAddress(0);
+
+    private final AtomicInteger xid = new AtomicInteger();
+
+    private ReplyQueue replyQueue;
+
+    @Setup
+    public void setUp() throws EOFException {
+
+        switch (timer) {
+            case "executor":
+                replyQueue = new ReplyQueue(new ScheduledExecutorTimer("benchmark"));
+                break;
+            case "wheel":
+                replyQueue = new ReplyQueue(new HashedWheelTimer("benchmark"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown timer: " + timer);
+        }
+
+        // requests which stay in the queue during the benchmark
+        int n = Integer.parseInt(inFlight);
+        for (int i = 0; i < n; i++) {
+            replyQueue.registerKey(xid.getAndIncrement(), addr, NOOP, 1, TimeUnit.HOURS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        replyQueue.shutdown();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CompletionHandler<RpcReply, RpcTransport> registerAndComplete() throws EOFException {
+        int id = xid.getAndIncrement();
+        replyQueue.registerKey(id, addr, NOOP, 1, TimeUnit.MINUTES);
+        return replyQueue.get(id);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.dcache.oncrpc4j.rpc.IoStrategy;
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares a single worker pool shared by all selectors with worker groups,
+ * one per selector. Each client thread uses its own connection, thus the load
+ * is spread over all selectors. Run with {@code -t 4}, {@code -t 16} and
+ * {@code -t 64} on a machine with a matching number of cores to measure the
+ * scaling of the two strategies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class ShardedWorkerBenchmark {
+
+    private static final int PROG_NUMBER = 100017;
+    private static final int PROG_VERS = 1;
+    private static final OncRpcProgram prog = new OncRpcProgram(PROG_NUMBER, PROG_VERS);
+
+    @Param({"WORKER_THREAD", "SHARDED_WORKER_THREAD"})
+    private IoStrategy ioStrategy;
+
+    /**
+     * Number of selector threads. Zero means the default of the strategy.
+     */
+    @Param({"0"})
+    private int selectors;
+
+    private OncRpcSvc svc;
+    private InetSocketAddress socketAddress;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        OncRpcSvcBuilder builder = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withIoStrategy(ioStrategy)
+                .withRpcService(prog, call -> call.reply(XdrVoid.XDR_VOID));
+
+        if (selectors > 0) {
+            builder.withSelectorThreadPoolSize(selectors);
+        }
+
+        svc = builder.build();
+        svc.start();
+
+        socketAddress = svc.getInetSocketAddress(IpProtocolType.TCP);
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+
+        private OncRpcClient rpcClient;
+        private RpcCall call;
+
+        @Setup(Level.Trial)
+        public void setUp(ShardedWorkerBenchmark benchmark) throws IOException {
+            rpcClient = new OncRpcClient(benchmark.socketAddress, IpProtocolType.TCP);
+            call = new RpcCall(prog.getNumber(), prog.getVersion(), new RpcAuthTypeNone(), rpcClient.connect());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            rpcClient.close();
+        }
+    }
+
+    @Benchmark
+    public XdrAble rpcPing(Caller caller) throws IOException, ExecutionException, InterruptedException {
+        return caller.call.call(0, XdrVoid.XDR_VOID, XdrVoid.class).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        svc.stop();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcMessageParserTCP;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.glassfish.grizzly.FileTransfer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the NULL call throughput of a well-behaving client while other clients
+ * request zero-copy file replies, but consume them slowly. As file chunks are written
+ * through the connection's asynchronous write queue, slow readers must not hold server
+ * threads, thus the throughput should not depend on the number of slow readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class SlowReaderBenchmark {
+
+    private static final int PROG_NUMBER = 100017;
+    private static final int PROG_VERS = 1;
+    private static final int NULL = 0;
+    private static final int READ = 1;
+    private static final OncRpcProgram prog = new OncRpcProgram(PROG_NUMBER, PROG_VERS);
+
+    /**
+     * Number of clients, which read file replies slowly.
+     */
+    @Param({"0", "8"})
+    private int slowReaders;
+
+    /**
+     * Size of file reply in bytes.
+     */
+    @Param({"33554432"})
+    private int chunkSize;
+
+    @Param({"2"})
+    private int workers;
+
+    private File file;
+    private OncRpcSvc svc;
+    private OncRpcClient rpcClient;
+    private RpcTransport transport;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<Thread> readers = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        file = File.createTempFile("oncrpc4j", "data");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[chunkSize]);
+
+        XdrAble fileReply = new XdrAble() {
+            @Override
+            public void xdrDecode(XdrDecodingStream xdr) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void xdrEncode(XdrEncodingStream xdr) throws IOException {
+                ((Xdr) xdr).xdrEncodeFileChunk(new FileTransfer(file, 0, chunkSize));
+            }
+        };
+
+        svc = new OncRpcSvcBuilder()
+                .withTCP()
+                .withoutAutoPublish()
+                .withPort(0)
+                .withWorkerThreadIoStrategy()
+                .withWorkerThreadPoolSize(workers)
+                .withRpcService(prog, call -> {
+                    if (call.getProcedure() == READ) {
+                        call.reply(fileReply);
+                    } else {
+                        call.reply(XdrVoid.XDR_VOID);
+                    }
+                })
+                .build();
+        svc.start();
+
+        InetSocketAddress socketAddress = svc.getInetSocketAddress(IpProtocolType.TCP);
+        for (int i = 0; i < slowReaders; i++) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(4096);
+            socket.connect(socketAddress);
+            sockets.add(socket);
+
+            Thread reader = new Thread(() -> readSlowly(socket), "slow-reader-" + i);
+            reader.setDaemon(true);
+            reader.start();
+            readers.add(reader);
+        }
+
+        rpcClient = new OncRpcClient(socketAddress, IpProtocolType.TCP);
+        transport = rpcClient.connect();
+    }
+
+    /**
+     * Request file replies in a loop and consume them at about 640KB/s.
+     */
+    private static void readSlowly(Socket socket) {
+
+        byte[] chunk = new byte[64 * 1024];
+        try {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int xid = 1; !Thread.currentThread().isInterrupted(); xid++) {
+
+                // record marker and call header with AUTH_NONE credentials and verifier
+                out.writeInt(RpcMessageParserTCP.RPC_LAST_FRAG | 10 * Integer.BYTES);
+                out.writeInt(xid);
+                out.writeInt(0); // CALL
+                out.writeInt(2); // RPC version
+                out.writeInt(PROG_NUMBER);
+                out.writeInt(PROG_VERS);
+                out.writeInt(READ);
+                out.writeLong(0);
+                out.writeLong(0);
+                out.flush();
+
+                int marker;
+                do {
+                    marker = in.readInt();
+                    skipSlowly(in, marker & ~RpcMessageParserTCP.RPC_LAST_FRAG, chunk);
+                } while ((marker & RpcMessageParserTCP.RPC_LAST_FRAG) == 0);
+            }
+        } catch (IOException | InterruptedException e) {
+            // connection closed on tear down
+        }
+    }
+
+    private static void skipSlowly(InputStream in, int len, byte[] chunk) throws IOException, InterruptedException {
+        while (len > 0) {
+            int n = in.read(chunk, 0, Math.min(len, chunk.length));
+            if (n < 0) {
+                throw new IOException("Unexpected EOF");
+            }
+            len -= n;
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+
+        private RpcCall call;
+
+        @Setup(Level.Trial)
+        public void setUp(SlowReaderBenchmark benchmark) {
+            call = new RpcCall(prog.getNumber(), prog.getVersion(), new RpcAuthTypeNone(), benchmark.transport);
+        }
+    }
+
+    @Benchmark
+    public XdrAble nullCall(Caller caller) throws IOException, ExecutionException, InterruptedException {
+        return caller.call.call(NULL, XdrVoid.XDR_VOID, XdrVoid.class).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        for (Thread reader : readers) {
+            reader.interrupt();
+        }
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        rpcClient.close();
+        svc.stop();
+        file.delete();
+    }
+}
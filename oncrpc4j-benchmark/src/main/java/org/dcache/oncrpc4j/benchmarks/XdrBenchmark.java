@@ -2,7 +2,11 @@ package org.dcache.oncrpc4j.benchmarks;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.ThreadLocalRandom;
+import org.dcache.oncrpc4j.grizzly.GrizzlyUtils;
+import org.dcache.oncrpc4j.rpc.MemoryAllocator;
+import org.dcache.oncrpc4j.xdr.BadXdrOncRpcException;
 import org.dcache.oncrpc4j.xdr.Xdr;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
@@ -12,31 +16,80 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.infra.Blackhole;
 
-@State(Scope.Benchmark)
 @BenchmarkMode(Mode.Throughput)
 public class XdrBenchmark {
 
+    @State(Scope.Benchmark)
+    public static class OpaqueState {
 
-    @Param({"1024", "8192", "262144", "1048576"})
-    private String size;
+        @Param({"1024", "8192", "262144", "1048576"})
+        private String size;
 
-    private Xdr xdr;
+        private Xdr xdr;
 
-    private ByteBuffer bb;
+        private ByteBuffer bb;
 
-    @Setup
-    public void setUp() {
+        @Setup
+        public void setUp() {
 
-        byte[] buf = new byte[Integer.parseInt(size)];
-        ThreadLocalRandom.current().nextBytes(buf);
+            byte[] buf = new byte[Integer.parseInt(size)];
+            ThreadLocalRandom.current().nextBytes(buf);
 
-        bb = ByteBuffer.wrap(buf);
-        xdr = new Xdr(256);
+            bb = ByteBuffer.wrap(buf);
+            xdr = new Xdr(256);
+        }
     }
 
+    /**
+     * Primitive vectors from a handful of elements up to 64k elements.
+     * The {@code *PerElement} variants use the scalar codecs for comparison.
+     */
+    @State(Scope.Thread)
+    public static class VectorState {
+
+        @Param({"16", "256", "4096", "65536"})
+        private int elements;
+
+        @Param({"HEAP", "DIRECT"})
+        private MemoryAllocator allocator;
+
+        private int[] ints;
+
+        private long[] longs;
+
+        private Xdr encoder;
+
+        private Xdr intDecoder;
+
+        private Xdr longDecoder;
+
+        @Setup
+        public void setUp() {
+
+            ints = ThreadLocalRandom.current().ints(elements).toArray();
+            longs = ThreadLocalRandom.current().longs(elements).toArray();
+
+            int size = Integer.BYTES + elements * Long.BYTES;
+            MemoryManager mm = GrizzlyUtils.getMemoryManager(allocator);
+            encoder = new Xdr(mm.allocate(size), mm);
+
+            intDecoder = new Xdr(mm.allocate(size), mm);
+            intDecoder.beginEncoding();
+            intDecoder.xdrEncodeIntVector(ints);
+            intDecoder.endEncoding();
+
+            longDecoder = new Xdr(mm.allocate(size), mm);
+            longDecoder.beginEncoding();
+            longDecoder.xdrEncodeLongVector(longs);
+            longDecoder.endEncoding();
+        }
+    }
 
     @Benchmark
-    public void encodeByteBuffer(Blackhole blackhole) {
+    public void encodeByteBuffer(OpaqueState state, Blackhole blackhole) {
+
+        Xdr xdr = state.xdr;
+        ByteBuffer bb = state.bb;
 
         xdr.beginEncoding();
         bb.clear().limit(bb.capacity());
@@ -47,7 +100,10 @@ public class XdrBenchmark {
     }
 
     @Benchmark
-    public void encodeByteBufferShallow(Blackhole blackhole) {
+    public void encodeByteBufferShallow(OpaqueState state, Blackhole blackhole) {
+
+        Xdr xdr = state.xdr;
+        ByteBuffer bb = state.bb;
 
         xdr.beginEncoding();
         bb.clear().limit(bb.capacity());
@@ -57,4 +113,58 @@ public class XdrBenchmark {
         blackhole.consume(xdr);
     }
 
+    @Benchmark
+    public Xdr encodeIntVector(VectorState state) {
+        Xdr xdr = state.encoder;
+        xdr.beginEncoding();
+        xdr.xdrEncodeIntVector(state.ints);
+        xdr.endEncoding();
+        return xdr;
+    }
+
+    @Benchmark
+    public Xdr encodeIntVectorPerElement(VectorState state) {
+        Xdr xdr = state.encoder;
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(state.ints.length);
+        for (int value : state.ints) {
+            xdr.xdrEncodeInt(value);
+        }
+        xdr.endEncoding();
+        return xdr;
+    }
+
+    @Benchmark
+    public Xdr encodeLongVector(VectorState state) {
+        Xdr xdr = state.encoder;
+        xdr.beginEncoding();
+        xdr.xdrEncodeLongVector(state.longs);
+        xdr.endEncoding();
+        return xdr;
+    }
+
+    @Benchmark
+    public int[] decodeIntVector(VectorState state) throws BadXdrOncRpcException {
+        Xdr xdr = state.intDecoder;
+        xdr.beginDecoding();
+        return xdr.xdrDecodeIntVector();
+    }
+
+    @Benchmark
+    public int[] decodeIntVectorPerElement(VectorState state) throws BadXdrOncRpcException {
+        Xdr xdr = state.intDecoder;
+        xdr.beginDecoding();
+        int[] value = new int[xdr.xdrDecodeInt()];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = xdr.xdrDecodeInt();
+        }
+        return value;
+    }
+
+    @Benchmark
+    public long[] decodeLongVector(VectorState state) throws BadXdrOncRpcException {
+        Xdr xdr = state.longDecoder;
+        xdr.beginDecoding();
+        return xdr.xdrDecodeLongVector();
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import org.dcache.oncrpc4j.grizzly.GrizzlyUtils;
+import org.dcache.oncrpc4j.rpc.MemoryAllocator;
+import org.dcache.oncrpc4j.xdr.BadXdrOncRpcException;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures string encoding and decoding for typical path component lengths.
+ * The {@code *Copy} variants use the intermediate {@code byte[]} for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class XdrStringBenchmark {
+
+    @Param({"8", "16", "32", "64", "255"})
+    private int length;
+
+    @Param({"ascii", "utf8"})
+    private String charset;
+
+    @Param({"HEAP", "DIRECT"})
+    private MemoryAllocator allocator;
+
+    private String value;
+
+    private Xdr encoder;
+
+    private Xdr decoder;
+
+    @Setup
+    public void setUp() {
+
+        // 'ü' is encoded with two bytes
+        char c = charset.equals("ascii") ? 'a' : 'ü';
+        value = String.valueOf(c).repeat(length);
+
+        MemoryManager mm = GrizzlyUtils.getMemoryManager(allocator);
+        encoder = new Xdr(mm.allocate(1024), mm);
+
+        decoder = new Xdr(mm.allocate(1024), mm);
+        decoder.beginEncoding();
+        decoder.xdrEncodeString(value);
+        decoder.endEncoding();
+    }
+
+    @Benchmark
+    public Xdr encodeString() {
+        encoder.beginEncoding();
+        encoder.xdrEncodeString(value);
+        encoder.endEncoding();
+        return encoder;
+    }
+
+    @Benchmark
+    public Xdr encodeStringCopy() {
+        encoder.beginEncoding();
+        encoder.xdrEncodeDynamicOpaque(value.getBytes(StandardCharsets.UTF_8));
+        encoder.endEncoding();
+        return encoder;
+    }
+
+    @Benchmark
+    public String decodeString() throws BadXdrOncRpcException {
+        decoder.beginDecoding();
+        return decoder.xdrDecodeString();
+    }
+
+    @Benchmark
+    public String decodeStringCopy() throws BadXdrOncRpcException {
+        decoder.beginDecoding();
+        return new String(decoder.xdrDecodeDynamicOpaque(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.benchmarks;
+
+import java.io.IOException;
+import org.dcache.oncrpc4j.grizzly.GrizzlyUtils;
+import org.dcache.oncrpc4j.rpc.MemoryAllocator;
+import org.dcache.oncrpc4j.rpc.OncRpcException;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecoder;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncoder;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares {@link Xdr} with specialized {@link XdrEncoder} and {@link XdrDecoder}
+ * on a list of primitive-heavy, file attribute like, structures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class XdrStructBenchmark {
+
+    @Param({"1", "32"})
+    private int entries;
+
+    @Param({"HEAP", "DIRECT"})
+    private MemoryAllocator allocator;
+
+    private Attributes[] attributes;
+
+    private Xdr encoder;
+
+    private Xdr decoder;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        attributes = new Attributes[entries];
+        for (int i = 0; i < entries; i++) {
+            attributes[i] = new Attributes(i);
+        }
+
+        MemoryManager mm = GrizzlyUtils.getMemoryManager(allocator);
+        encoder = new Xdr(mm.allocate(256 * entries), mm);
+
+        decoder = new Xdr(mm.allocate(256 * entries), mm);
+        decoder.beginEncoding();
+        encode(decoder);
+        decoder.endEncoding();
+    }
+
+    @Benchmark
+    public Xdr encodeXdr() throws IOException {
+        encoder.beginEncoding();
+        encode(encoder);
+        encoder.endEncoding();
+        return encoder;
+    }
+
+    @Benchmark
+    public Xdr encodeXdrEncoder() throws IOException {
+        XdrEncoder xdr = encoder.encoder();
+        xdr.beginEncoding();
+        encode(xdr);
+        xdr.endEncoding();
+        return encoder;
+    }
+
+    @Benchmark
+    public Attributes[] decodeXdr() throws IOException {
+        decoder.beginDecoding();
+        Attributes[] decoded = decode(decoder);
+        decoder.endDecoding();
+        return decoded;
+    }
+
+    @Benchmark
+    public Attributes[] decodeXdrDecoder() throws IOException {
+        decoder.beginDecoding();
+        XdrDecoder xdr = decoder.decoder();
+        Attributes[] decoded = decode(xdr);
+        xdr.endDecoding();
+        decoder.endDecoding();
+        return decoded;
+    }
+
+    private void encode(XdrEncodingStream xdr) throws IOException {
+        xdr.xdrEncodeInt(attributes.length);
+        for (Attributes a : attributes) {
+            a.xdrEncode(xdr);
+        }
+    }
+
+    private static Attributes[] decode(XdrDecodingStream xdr) throws IOException {
+        Attributes[] decoded = new Attributes[xdr.xdrDecodeInt()];
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = new Attributes();
+            decoded[i].xdrDecode(xdr);
+        }
+        return decoded;
+    }
+
+    /**
+     * Mimics NFS file attributes, as generated by jrpcgen.
+     */
+    public static class Attributes implements XdrAble {
+
+        int type;
+        int mode;
+        int nlink;
+        int uid;
+        int gid;
+        long size;
+        long used;
+        long fsid;
+        long fileid;
+        long atime;
+        int atimeNsec;
+        long mtime;
+        int mtimeNsec;
+        long ctime;
+        int ctimeNsec;
+        boolean exists;
+
+        Attributes() {
+        }
+
+        Attributes(int i) {
+            type = 1;
+            mode = 0755;
+            nlink = 1;
+            uid = 1000 + i;
+            gid = 1000;
+            size = 4096L * i;
+            used = 4096L * i;
+            fsid = 17;
+            fileid = 1_000_000L + i;
+            atime = 1_700_000_000L + i;
+            atimeNsec = i;
+            mtime = 1_700_000_000L + i;
+            mtimeNsec = i;
+            ctime = 1_700_000_000L + i;
+            ctimeNsec = i;
+            exists = true;
+        }
+
+        @Override
+        public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
+            xdr.xdrEncodeInt(type);
+            xdr.xdrEncodeInt(mode);
+            xdr.xdrEncodeInt(nlink);
+            xdr.xdrEncodeInt(uid);
+            xdr.xdrEncodeInt(gid);
+            xdr.xdrEncodeLong(size);
+            xdr.xdrEncodeLong(used);
+            xdr.xdrEncodeLong(fsid);
+            xdr.xdrEncodeLong(fileid);
+            xdr.xdrEncodeLong(atime);
+            xdr.xdrEncodeInt(atimeNsec);
+            xdr.xdrEncodeLong(mtime);
+            xdr.xdrEncodeInt(mtimeNsec);
+            xdr.xdrEncodeLong(ctime);
+            xdr.xdrEncodeInt(ctimeNsec);
+            xdr.xdrEncodeBoolean(exists);
+        }
+
+        @Override
+        public void xdrDecode(XdrDecodingStream xdr) throws OncRpcException, IOException {
+            type = xdr.xdrDecodeInt();
+            mode = xdr.xdrDecodeInt();
+            nlink = xdr.xdrDecodeInt();
+            uid = xdr.xdrDecodeInt();
+            gid = xdr.xdrDecodeInt();
+            size = xdr.xdrDecodeLong();
+            used = xdr.xdrDecodeLong();
+            fsid = xdr.xdrDecodeLong();
+            fileid = xdr.xdrDecodeLong();
+            atime = xdr.xdrDecodeLong();
+            atimeNsec = xdr.xdrDecodeInt();
+            mtime = xdr.xdrDecodeLong();
+            mtimeNsec = xdr.xdrDecodeInt();
+            ctime = xdr.xdrDecodeLong();
+            ctimeNsec = xdr.xdrDecodeInt();
+            exists = xdr.xdrDecodeBoolean();
+        }
+    }
+}
@@ -21,25 +21,33 @@ package org.dcache.oncrpc4j.grizzly;
 
 
 import java.io.EOFException;
-import java.io.IOException;
 import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.dcache.oncrpc4j.rpc.ReplyQueue;
 import org.dcache.oncrpc4j.rpc.RpcMessageParserTCP;
+import org.dcache.oncrpc4j.rpc.jfr.JfrSupport;
+import org.dcache.oncrpc4j.rpc.jfr.SendEvent;
 import org.dcache.oncrpc4j.xdr.Xdr;
 import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.CompletionHandler;
 
 import org.glassfish.grizzly.memory.BuffersBuffer;
-import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Processor;
+import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.WriteResult;
 import org.glassfish.grizzly.asyncqueue.WritableMessage;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.attributes.AttributeHolder;
 import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.ssl.SSLFilter;
 
@@ -52,7 +60,29 @@ import static java.util.Objects.requireNonNull;
 
 public class GrizzlyRpcTransport implements RpcTransport {
 
+    /**
+     * Per connection partition of service's {@link ReplyQueue}.
+     */
+    private static final Attribute<ReplyQueue> REPLY_QUEUE_ATTRIBUTE =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(GrizzlyRpcTransport.class.getName() + ".reply-queue");
+
+    /**
+     * Per connection ordering of outgoing messages.
+     */
+    private static final Attribute<MessageSequencer> SEQUENCER_ATTRIBUTE =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(GrizzlyRpcTransport.class.getName() + ".sequencer");
+
+    /**
+     * Per connection transport of stream connections.
+     */
+    private static final Attribute<GrizzlyRpcTransport> TRANSPORT_ATTRIBUTE =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(GrizzlyRpcTransport.class.getName() + ".transport");
+
     private final Connection<InetSocketAddress> _connection;
+
+    /**
+     * Service-wide reply queue.
+     */
     private final ReplyQueue _replyQueue;
     private final InetSocketAddress _localAddress;
     private final InetSocketAddress _remoteAddress;
@@ -63,6 +93,26 @@ public class GrizzlyRpcTransport implements RpcTransport {
      */
     private final boolean _isStreaming;
 
+    /**
+     * Segment size used by messages created with {@link #newXdr(int)}.
+     */
+    private final int _encodingSegmentSize;
+
+    /**
+     * Connection's reply queue, once known.
+     */
+    private volatile ReplyQueue _connectionReplyQueue;
+
+    /**
+     * Connection's message sequencer, once known.
+     */
+    private volatile MessageSequencer _sequencer;
+
+    /**
+     * Whether TLS is enabled for the last seen filter chain of the connection.
+     */
+    private volatile TlsState _tlsState;
+
     private final static Logger _log = LoggerFactory.getLogger(GrizzlyRpcTransport.class);
 
     public GrizzlyRpcTransport(Connection<InetSocketAddress> connection, ReplyQueue replyQueue) {
@@ -70,11 +120,57 @@ public class GrizzlyRpcTransport implements RpcTransport {
     }
 
     public GrizzlyRpcTransport(Connection<InetSocketAddress> connection, InetSocketAddress remoteAddress, ReplyQueue replyQueue) {
+        this(connection, remoteAddress, replyQueue, 0);
+    }
+
+    /**
+     * Create a new transport.
+     *
+     * @param connection the underlying connection.
+     * @param remoteAddress socket address of remote peer.
+     * @param replyQueue service-wide reply queue.
+     * @param encodingSegmentSize segment size of messages created by this transport,
+     * or zero to use realloc-and-copy growth.
+     * @see Xdr#setSegmentSize(int)
+     * @since 3.5
+     */
+    public GrizzlyRpcTransport(Connection<InetSocketAddress> connection, InetSocketAddress remoteAddress,
+            ReplyQueue replyQueue, int encodingSegmentSize) {
         _connection = connection;
         _replyQueue = replyQueue;
         _localAddress = _connection.getLocalAddress();
         _remoteAddress = remoteAddress;
         _isStreaming = connection.getTransport() instanceof TCPNIOTransport;
+        _encodingSegmentSize = encodingSegmentSize;
+    }
+
+    /**
+     * Get the transport of a stream connection. As the peer of such connection
+     * never changes, a single transport is created per connection and re-used
+     * for all messages.
+     *
+     * @param connection the underlying connection.
+     * @param replyQueue service-wide reply queue.
+     * @param encodingSegmentSize segment size of messages created by the transport,
+     * or zero to use realloc-and-copy growth.
+     * @return the transport of the connection.
+     * @since 3.5
+     */
+    public static GrizzlyRpcTransport forConnection(Connection<InetSocketAddress> connection,
+            ReplyQueue replyQueue, int encodingSegmentSize) {
+        GrizzlyRpcTransport transport = TRANSPORT_ATTRIBUTE.get(connection);
+        if (transport == null) {
+            AttributeHolder attributes = connection.getAttributes();
+            synchronized (attributes) {
+                transport = TRANSPORT_ATTRIBUTE.get(attributes);
+                if (transport == null) {
+                    transport = new GrizzlyRpcTransport(connection, connection.getPeerAddress(),
+                            replyQueue, encodingSegmentSize);
+                    TRANSPORT_ATTRIBUTE.set(attributes, transport);
+                }
+            }
+        }
+        return transport;
     }
 
     @Override
@@ -84,87 +180,204 @@ public class GrizzlyRpcTransport implements RpcTransport {
 
     @Override
     public <A> void send(final Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
-        if (xdr.hasFileChunk() && _isStreaming && !isTLS()) {
-            sendRawTCP(xdr, attachment, handler);
+        if (xdr.hasFileChunk() && _isStreaming) {
+            if (isTLS()) {
+                sendStreaming(xdr, attachment, handler);
+            } else {
+                sendRawTCP(xdr, attachment, handler);
+            }
         } else {
             sendDefault(xdr, attachment, handler);
         }
     }
 
     /**
-     * Send XDR message over UDP or over TLS-protected TCP connection.
+     * Send XDR message as a single buffer. Used for messages without file chunks and over UDP,
+     * where file chunks are copied into the datagram.
      */
     private <A> void sendDefault(final Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
 
         requireNonNull(handler, "CompletionHandler can't be null");
         Buffer buffer = xdr.asBuffer();
+        final CompletionHandler<Integer, ? super A> completionHandler = JfrSupport.isInitialized() && JfrSupport.isEnabled(SendEvent.class)
+                ? recordSendEvent(handler, buffer, false) : handler;
 
         // add record marker, if needed
         if (_isStreaming) {
             int len = buffer.remaining() | RpcMessageParserTCP.RPC_LAST_FRAG;
-            Buffer marker = _connection.getMemoryManager().allocate(Integer.BYTES);
-            marker.order(ByteOrder.BIG_ENDIAN);
-            marker.putInt(len);
-            marker.flip();
-            buffer = BuffersBuffer.create(_connection.getMemoryManager(), marker, buffer);
+            // preferably, into the header space reserved in front of the message
+            if (!xdr.prependInt(len)) {
+                Buffer marker = _connection.getMemoryManager().allocate(Integer.BYTES);
+                marker.order(ByteOrder.BIG_ENDIAN);
+                marker.putInt(len);
+                marker.flip();
+                BuffersBuffer message = BuffersBuffer.create(_connection.getMemoryManager(), marker, buffer);
+                /*
+                 * Release the marker and xdr buffers once written. Each buffer is disposed according
+                 * to its own flag, as it's the case for non-composite messages. Thus, pooled buffers
+                 * return into the pool, while buffers allocated without disposal are kept. Received
+                 * buffers shared with opaque slices are never sent, see Xdr#beginEncoding.
+                 */
+                message.allowBufferDispose(true);
+                buffer = message;
+            }
         }
 
-        _connection.write(_remoteAddress, buffer, new EmptyCompletionHandler<WriteResult<WritableMessage, InetSocketAddress>>() {
+        SingleWrite<A> write = new SingleWrite<>(_connection, _remoteAddress, buffer, attachment, completionHandler);
+        if (_isStreaming) {
+            // do not interleave with multi-part messages
+            getSequencer().send(write);
+        } else {
+            write.write();
+        }
+    }
+
+
+    /**
+     * Send XDR message over raw TCP connection. This method is optimized for zero-copy use-case:
+     * buffer segments and file chunks are queued in order after a single record marker,
+     * where each file chunk is sent with {@code transferTo}.
+     * <p>
+     * All parts go through connection's asynchronous write queue, i.e. if the peer doesn't
+     * consume the data fast enough, the remaining parts are written by the selector thread once
+     * the socket becomes writable again and the calling thread is never blocked. The
+     * {@code handler} is notified when the last part is written or on the first failure.
+     *
+     * @see MessageSequencer
+     */
+    private <A> void sendRawTCP(final Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
+
+        requireNonNull(handler, "CompletionHandler can't be null");
+        WritableMessage[] messages = xdr.asBufferWritableMessages();
+        final CompletionHandler<Integer, ? super A> completionHandler = JfrSupport.isInitialized() && JfrSupport.isEnabled(SendEvent.class)
+                ? recordSendEvent(handler, messages[0], true) : handler;
+
+        int len = getMessagesSize(messages) | RpcMessageParserTCP.RPC_LAST_FRAG;
+        Buffer marker = _connection.getMemoryManager().allocate(Integer.BYTES);
+        marker.order(ByteOrder.BIG_ENDIAN);
+        marker.putInt(len);
+        marker.flip();
+        // released by the write queue once written
+        marker.allowBufferDispose(true);
+
+        EmptyCompletionHandler<WriteResult<WritableMessage, InetSocketAddress>> partHandler = new EmptyCompletionHandler<>() {
+
+            private final AtomicInteger pending = new AtomicInteger(messages.length + 1);
+            private final AtomicLong written = new AtomicLong();
+            private final AtomicBoolean failed = new AtomicBoolean();
 
             @Override
             public void failed(Throwable throwable) {
-                handler.failed(throwable, attachment);
+                if (failed.compareAndSet(false, true)) {
+                    // convert ClosedChannelException to EOFException as expected by upper layers
+                    if (throwable instanceof ClosedChannelException) {
+                        throwable = new EOFException();
+                    }
+                    completionHandler.failed(throwable, attachment);
+                }
             }
 
             @Override
             public void completed(WriteResult<WritableMessage, InetSocketAddress> result) {
-                handler.completed((int) result.getWrittenSize(), attachment);
+                long n = written.addAndGet(result.getWrittenSize());
+                if (pending.decrementAndGet() == 0 && !failed.get()) {
+                    completionHandler.completed((int) n, attachment);
+                }
+            }
+        };
+
+        // as XDR should be delivered as a single RPC message, no other message can be queued in between.
+        getSequencer().send(() -> {
+            _connection.write(_remoteAddress, marker, partHandler);
+            for (WritableMessage msg : messages) {
+                _connection.write(_remoteAddress, msg, partHandler);
             }
         });
     }
 
-
     /**
-     * Send XDR message over raw TCP connection. This method is optimized for zero-copy use-case.
+     * Send XDR message with file chunks over TLS-protected TCP connection. As file chunks can't
+     * be sent with {@code transferTo}, they are read and encrypted in pieces of bounded size,
+     * where the next piece is read only when the previous one is written. Thus, the memory used
+     * by a message doesn't depend on the size of the file chunks.
      */
-    private <A> void sendRawTCP(final Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
+    private <A> void sendStreaming(final Xdr xdr, A attachment, CompletionHandler<Integer, ? super A> handler) {
 
         requireNonNull(handler, "CompletionHandler can't be null");
         WritableMessage[] messages = xdr.asBufferWritableMessages();
+        final CompletionHandler<Integer, ? super A> completionHandler = JfrSupport.isInitialized() && JfrSupport.isEnabled(SendEvent.class)
+                ? recordSendEvent(handler, messages[0], false) : handler;
 
         int len = getMessagesSize(messages) | RpcMessageParserTCP.RPC_LAST_FRAG;
         Buffer marker = _connection.getMemoryManager().allocate(Integer.BYTES);
         marker.order(ByteOrder.BIG_ENDIAN);
         marker.putInt(len);
         marker.flip();
+        marker.allowBufferDispose(true);
 
-        var v = TCPNIOConnection.class.cast(_connection);
-        int written = 0;
-        try {
-            // as XDR should be delivered as a single RPC message, lock the connection until all parts are written
-            synchronized (_connection) {
+        WritableMessage[] parts = new WritableMessage[messages.length + 1];
+        parts[0] = marker;
+        System.arraycopy(messages, 0, parts, 1, messages.length);
 
-                // ensure that rpc frame marker is fully sent
-                while(marker.hasRemaining()) {
-                    written += ((TCPNIOTransport) _connection.getTransport()).write(v, marker, null);
-                }
+        MessageSequencer sequencer = getSequencer();
+        sequencer.send(new StreamingMessageWriter<>(_connection, _remoteAddress, sequencer, parts,
+                attachment, completionHandler));
+    }
 
-                for (WritableMessage msg : messages) {
-                    while (msg.hasRemaining()) {
-                        written += ((TCPNIOTransport) _connection.getTransport()).write(v, msg, null);
-                    }
-                    // as we by-passed Grizzly's Buffer management, we need to release buffers manually
-                    msg.release();
+    /**
+     * Get outgoing message sequencer of the connection.
+     */
+    private MessageSequencer getSequencer() {
+        MessageSequencer sequencer = _sequencer;
+        if (sequencer != null) {
+            return sequencer;
+        }
+        sequencer = SEQUENCER_ATTRIBUTE.get(_connection);
+        if (sequencer == null) {
+            AttributeHolder attributes = _connection.getAttributes();
+            synchronized (attributes) {
+                sequencer = SEQUENCER_ATTRIBUTE.get(attributes);
+                if (sequencer == null) {
+                    sequencer = new MessageSequencer();
+                    SEQUENCER_ATTRIBUTE.set(attributes, sequencer);
                 }
             }
-            handler.completed(written, attachment);
-        } catch (IOException e) {
-            // convert ClosedChannelException to EOFException as expected by upper layers
-            if (e instanceof ClosedChannelException) {
-                e = new EOFException();
-            }
-            handler.failed(e, attachment);
         }
+        _sequencer = sequencer;
+        return sequencer;
+    }
+
+    /**
+     * Wrap the completion handler to record a {@link SendEvent} on write completion.
+     */
+    private <A> CompletionHandler<Integer, ? super A> recordSendEvent(CompletionHandler<Integer, ? super A> handler,
+            WritableMessage head, boolean zeroCopy) {
+
+        SendEvent event = new SendEvent();
+        event.begin();
+        if (head instanceof Buffer && ((Buffer) head).remaining() >= Integer.BYTES) {
+            Buffer b = (Buffer) head;
+            // xid is the first field of call and reply messages
+            event.xid = b.getInt(b.position());
+        }
+        event.zeroCopy = zeroCopy;
+        event.peer = String.valueOf(_remoteAddress);
+
+        return new CompletionHandler<Integer, A>() {
+            @Override
+            public void completed(Integer result, A attachment) {
+                event.bytes = result;
+                event.commit();
+                handler.completed(result, attachment);
+            }
+
+            @Override
+            public void failed(Throwable t, A attachment) {
+                event.failed = true;
+                event.commit();
+                handler.failed(t, attachment);
+            }
+        };
     }
 
     @Override
@@ -177,14 +390,65 @@ public class GrizzlyRpcTransport implements RpcTransport {
         return _remoteAddress;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The returned queue holds only requests sent over the underlying connection.
+     */
     @Override
     public ReplyQueue getReplyQueue() {
-        return _replyQueue;
+        ReplyQueue replyQueue = _connectionReplyQueue;
+        if (replyQueue != null) {
+            return replyQueue;
+        }
+        replyQueue = REPLY_QUEUE_ATTRIBUTE.get(_connection);
+        if (replyQueue == null) {
+            AttributeHolder attributes = _connection.getAttributes();
+            synchronized (attributes) {
+                replyQueue = REPLY_QUEUE_ATTRIBUTE.get(attributes);
+                if (replyQueue == null) {
+                    replyQueue = _replyQueue.newConnectionQueue();
+                    REPLY_QUEUE_ATTRIBUTE.set(attributes, replyQueue);
+                }
+            }
+        }
+        _connectionReplyQueue = replyQueue;
+        return replyQueue;
+    }
+
+    /**
+     * Get {@link ReplyQueue} associated with the given connection.
+     *
+     * @param connection the connection.
+     * @return connection's reply queue or {@code null}, if no requests were
+     * ever sent over the connection.
+     */
+    public static ReplyQueue getReplyQueue(Connection<?> connection) {
+        return REPLY_QUEUE_ATTRIBUTE.get(connection);
+    }
+
+    @Override
+    public MemoryManager getMemoryManager() {
+        return _connection.getMemoryManager();
+    }
+
+    @Override
+    public Xdr newXdr(int size) {
+        Xdr xdr = new Xdr(size, getMemoryManager());
+        xdr.setSegmentSize(_encodingSegmentSize);
+        if (_isStreaming) {
+            // space for the record marker
+            xdr.setReservedHeaderSize(Integer.BYTES);
+        }
+        return xdr;
     }
 
     @Override
     public RpcTransport getPeerTransport() {
-        return new GrizzlyRpcTransport(_connection, getReplyQueue());
+        if (_isStreaming) {
+            return forConnection(_connection, _replyQueue, _encodingSegmentSize);
+        }
+        return new GrizzlyRpcTransport(_connection, _connection.getPeerAddress(), _replyQueue, _encodingSegmentSize);
     }
 
     @Override
@@ -211,8 +475,14 @@ public class GrizzlyRpcTransport implements RpcTransport {
 
     @Override
     public boolean isTLS() {
-        return ((FilterChain) _connection.getProcessor()).stream()
-                .anyMatch(SSLFilter.class::isInstance);
+        // TLS is enabled by replacing connection's filter chain
+        Processor<?> processor = _connection.getProcessor();
+        TlsState state = _tlsState;
+        if (state == null || state.processor() != processor) {
+            state = new TlsState(processor, ((FilterChain) processor).indexOfType(SSLFilter.class) >= 0);
+            _tlsState = state;
+        }
+        return state.enabled();
     }
 
     /**
@@ -229,4 +499,48 @@ public class GrizzlyRpcTransport implements RpcTransport {
         }
         return size;
     }
+
+    /**
+     * Whether TLS is enabled for a filter chain.
+     */
+    private record TlsState(Processor<?> processor, boolean enabled) {
+    }
+
+    /**
+     * A message written with a single write, which also adapts the write result
+     * to the caller's completion handler.
+     */
+    private static final class SingleWrite<A> extends EmptyCompletionHandler<WriteResult<WritableMessage, InetSocketAddress>>
+            implements MessageSequencer.Message {
+
+        private final Connection<InetSocketAddress> connection;
+        private final InetSocketAddress remoteAddress;
+        private final WritableMessage message;
+        private final A attachment;
+        private final CompletionHandler<Integer, ? super A> handler;
+
+        SingleWrite(Connection<InetSocketAddress> connection, InetSocketAddress remoteAddress,
+                WritableMessage message, A attachment, CompletionHandler<Integer, ? super A> handler) {
+            this.connection = connection;
+            this.remoteAddress = remoteAddress;
+            this.message = message;
+            this.attachment = attachment;
+            this.handler = handler;
+        }
+
+        @Override
+        public void write() {
+            connection.write(remoteAddress, message, this);
+        }
+
+        @Override
+        public void failed(Throwable throwable) {
+            handler.failed(throwable, attachment);
+        }
+
+        @Override
+        public void completed(WriteResult<WritableMessage, InetSocketAddress> result) {
+            handler.completed((int) result.getWrittenSize(), attachment);
+        }
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.dcache.oncrpc4j.grizzly;
 
+import org.dcache.oncrpc4j.rpc.InFlightLimiter;
 import org.dcache.oncrpc4j.rpc.IoStrategy;
 import org.dcache.oncrpc4j.rpc.MemoryAllocator;
 import org.dcache.oncrpc4j.rpc.RpcMessageParserTCP;
@@ -41,6 +42,8 @@ import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import static org.dcache.oncrpc4j.rpc.IoStrategy.SHARDED_WORKER_THREAD;
+import static org.dcache.oncrpc4j.rpc.IoStrategy.VIRTUAL_THREAD;
 import static org.dcache.oncrpc4j.rpc.IoStrategy.WORKER_THREAD;
 
 import javax.net.ssl.SSLContext;
@@ -71,8 +74,22 @@ public class GrizzlyUtils {
     private GrizzlyUtils(){}
 
     public static Filter rpcMessageReceiverFor(Transport t) {
+        return rpcMessageReceiverFor(t, RpcMessageParserTCP.RPC_SIZE_MASK, null);
+    }
+
+    /**
+     * Get message parser for the given transport.
+     *
+     * @param t the transport.
+     * @param maxRecordSize maximal size of a record, applicable for TCP only.
+     * @param inFlightLimiter per connection in-flight limits, or {@code null},
+     * if unlimited. Applicable for TCP only.
+     * @return the message parser.
+     * @since 3.5
+     */
+    public static Filter rpcMessageReceiverFor(Transport t, int maxRecordSize, InFlightLimiter inFlightLimiter) {
         if (t instanceof TCPNIOTransport) {
-            return new RpcMessageParserTCP();
+            return new RpcMessageParserTCP(maxRecordSize, inFlightLimiter);
         }
 
         if (t instanceof UDPNIOTransport) {
@@ -93,7 +110,7 @@ public class GrizzlyUtils {
     }
 
     static private int getSelectorPoolSize(IoStrategy ioStrategy) {
-        return ioStrategy == WORKER_THREAD
+        return ioStrategy == WORKER_THREAD || ioStrategy == VIRTUAL_THREAD || ioStrategy == SHARDED_WORKER_THREAD
                 ? Math.max(MIN_SELECTORS, CPUS / 4) : Math.max(MIN_WORKERS, CPUS);
     }
 
@@ -168,6 +185,8 @@ public class GrizzlyUtils {
             case LEADER_FOLLOWER:
                 return LeaderFollowerNIOStrategy.getInstance();
             case WORKER_THREAD:
+            case VIRTUAL_THREAD:
+            case SHARDED_WORKER_THREAD:
             case SAME_THREAD:
             default:
                 return SameThreadIOStrategy.getInstance();
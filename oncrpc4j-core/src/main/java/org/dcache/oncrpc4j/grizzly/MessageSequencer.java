@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.grizzly;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Keeps RPC messages sent over a stream connection apart. Usually, all writes of
+ * a message are enqueued at once into connection's write queue. However, a message
+ * streamed in pieces, where the next piece is written only when the previous one
+ * is consumed, holds the connection until the last piece is written. Any message
+ * sent in the meantime is deferred and written afterwards in submission order.
+ *
+ * @since 3.5
+ */
+final class MessageSequencer {
+
+    /**
+     * Writes of a single RPC message.
+     */
+    @FunctionalInterface
+    interface Message {
+
+        /**
+         * Issue writes of this message. A message, which doesn't enqueue all its
+         * writes at once, must call {@link #suspend()} before the first write and
+         * {@link #resume()} after the last one.
+         */
+        void write();
+    }
+
+    private final Queue<Message> _deferred = new ArrayDeque<>();
+
+    /**
+     * True, if a streamed message is in progress.
+     */
+    private boolean _suspended;
+
+    /**
+     * Write the given message now or, if a streamed message is in progress, once
+     * all preceding messages are written.
+     *
+     * @param message the message to write.
+     */
+    synchronized void send(Message message) {
+        if (_suspended) {
+            _deferred.add(message);
+        } else {
+            message.write();
+        }
+    }
+
+    /**
+     * Defer all messages sent after this call until {@link #resume()} is called.
+     */
+    synchronized void suspend() {
+        _suspended = true;
+    }
+
+    /**
+     * Write deferred messages, until another streamed message holds the connection.
+     */
+    synchronized void resume() {
+        _suspended = false;
+        Message message;
+        while (!_suspended && (message = _deferred.poll()) != null) {
+            message.write();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.grizzly;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.FileChunk;
+import org.glassfish.grizzly.WriteResult;
+import org.glassfish.grizzly.asyncqueue.WritableMessage;
+
+/**
+ * Writes the parts of an RPC message through connection's filter chain, one after
+ * another. File chunks are read in pieces of bounded size, where the next piece is
+ * read only when the previous one is written. Thus, the memory consumed by a message
+ * is independent of the file chunk size, even if the data has to be transformed by a
+ * filter, like {@code SSLFilter}, which can't handle file chunks.
+ * <p>
+ * The connection is held by the writer, see {@link MessageSequencer}, until the last
+ * part is written or a write fails.
+ *
+ * @param <A> the type of the attachment passed to the completion handler.
+ * @since 3.5
+ */
+final class StreamingMessageWriter<A> extends EmptyCompletionHandler<WriteResult<WritableMessage, InetSocketAddress>>
+        implements MessageSequencer.Message {
+
+    /**
+     * Max size of a file chunk piece. Matches the max TLS record size.
+     */
+    static final int PIECE_SIZE = 16 * 1024;
+
+    private final Connection<InetSocketAddress> _connection;
+    private final InetSocketAddress _remoteAddress;
+    private final MessageSequencer _sequencer;
+    private final WritableMessage[] _parts;
+    private final A _attachment;
+    private final CompletionHandler<Integer, ? super A> _handler;
+
+    /**
+     * Number of pending write completions. Used to write the next piece in a loop, instead
+     * of recursion, if a write completes within the write call.
+     */
+    private final AtomicInteger _wip = new AtomicInteger();
+
+    /**
+     * Index of the part to write next.
+     */
+    private int _part;
+    private long _written;
+
+    StreamingMessageWriter(Connection<InetSocketAddress> connection, InetSocketAddress remoteAddress,
+            MessageSequencer sequencer, WritableMessage[] parts, A attachment,
+            CompletionHandler<Integer, ? super A> handler) {
+        _connection = connection;
+        _remoteAddress = remoteAddress;
+        _sequencer = sequencer;
+        _parts = parts;
+        _attachment = attachment;
+        _handler = handler;
+    }
+
+    @Override
+    public void write() {
+        _sequencer.suspend();
+        completed(null);
+    }
+
+    @Override
+    public void completed(WriteResult<WritableMessage, InetSocketAddress> result) {
+        if (result != null) {
+            _written += result.getWrittenSize();
+        }
+
+        if (_wip.getAndIncrement() != 0) {
+            // called within writeNext, which will continue with the next piece
+            return;
+        }
+
+        do {
+            if (!writeNext()) {
+                return;
+            }
+        } while (_wip.decrementAndGet() != 0);
+    }
+
+    @Override
+    public void failed(Throwable throwable) {
+        // convert ClosedChannelException to EOFException as expected by upper layers
+        if (throwable instanceof ClosedChannelException) {
+            throwable = new EOFException();
+        }
+        releaseFrom(_part);
+        _sequencer.resume();
+        _handler.failed(throwable, _attachment);
+    }
+
+    /**
+     * Write the next buffer or a piece of the current file chunk.
+     *
+     * @return false if no more writes are expected, as all parts are written or the
+     * message failed.
+     */
+    private boolean writeNext() {
+
+        while (_part < _parts.length && !_parts[_part].hasRemaining()) {
+            _parts[_part++].release();
+        }
+
+        if (_part == _parts.length) {
+            _sequencer.resume();
+            _handler.completed((int) _written, _attachment);
+            return false;
+        }
+
+        WritableMessage part = _parts[_part];
+        if (part instanceof FileChunk chunk) {
+            Buffer piece;
+            try {
+                piece = readPiece(chunk);
+            } catch (IOException e) {
+                failed(e);
+                return false;
+            }
+            _connection.write(_remoteAddress, piece, this);
+        } else {
+            // buffers are released by the write queue once written
+            _part++;
+            _connection.write(_remoteAddress, part, this);
+        }
+        return true;
+    }
+
+    /**
+     * Read up to {@link #PIECE_SIZE} bytes of the file chunk into a new buffer.
+     */
+    private Buffer readPiece(FileChunk chunk) throws IOException {
+        Buffer piece = _connection.getMemoryManager().allocate(Math.min(chunk.remaining(), PIECE_SIZE));
+        piece.allowBufferDispose(true);
+        try {
+            WritableByteChannel channel = new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) {
+                    // accept only as much as fits, the file chunk keeps track of the rest
+                    int n = Math.min(src.remaining(), piece.remaining());
+                    int limit = src.limit();
+                    src.limit(src.position() + n);
+                    piece.put(src);
+                    src.limit(limit);
+                    return n;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+
+            while (piece.hasRemaining()) {
+                if (chunk.writeTo(channel) == 0) {
+                    throw new EOFException("File chunk truncated");
+                }
+            }
+        } catch (IOException e) {
+            piece.tryDispose();
+            throw e;
+        }
+        piece.flip();
+        return piece;
+    }
+
+    private void releaseFrom(int part) {
+        for (int i = part; i < _parts.length; i++) {
+            _parts[i].release();
+        }
+    }
+}
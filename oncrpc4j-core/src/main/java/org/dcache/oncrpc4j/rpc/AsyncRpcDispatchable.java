@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import com.google.common.base.Throwables;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+
+/**
+ * Interface for RPC servers, which complete requests asynchronously.
+ * <p>
+ * The {@link RpcDispatcher} invokes {@link #dispatchAsync(RpcCall)} on a worker
+ * thread and releases that thread as soon as the method returns. When the returned
+ * stage completes, the dispatcher sends the result as an accepted reply. If the
+ * stage completes exceptionally, the failure is mapped to the reply in the same
+ * way as exceptions thrown by {@link RpcDispatchable#dispatchOncRpcCall(RpcCall)}:
+ * <ul>
+ *   <li>{@link RpcException} &mdash; call is rejected with the given status.</li>
+ *   <li>{@link OncRpcException} or {@link IOException} &mdash; GARBAGE_ARGS.</li>
+ *   <li>any other exception &mdash; SYSTEM_ERR.</li>
+ * </ul>
+ * Services, which reply on their own, should implement {@link RpcDispatchable}
+ * instead.
+ * <p>
+ * Note, that if subject propagation is enabled, the subject is only associated
+ * with the thread calling {@link #dispatchAsync(RpcCall)}, but not with the
+ * thread completing the stage.
+ *
+ * @since 3.5
+ */
+@FunctionalInterface
+public interface AsyncRpcDispatchable extends RpcDispatchable {
+
+    /**
+     * Start processing of the given call.
+     *
+     * @param call the call to process.
+     * @return stage, which completes with the reply body. Procedures without
+     * result should complete with {@link org.dcache.oncrpc4j.xdr.XdrVoid#XDR_VOID}.
+     * @throws OncRpcException if the request can't be decoded.
+     * @throws IOException if the request can't be processed.
+     */
+    CompletionStage<? extends XdrAble> dispatchAsync(RpcCall call)
+            throws OncRpcException, IOException;
+
+    /**
+     * Process the call synchronously by waiting for the stage returned by
+     * {@link #dispatchAsync(RpcCall)} and sending the reply.
+     */
+    @Override
+    default void dispatchOncRpcCall(RpcCall call) throws OncRpcException, IOException {
+        XdrAble reply;
+        try {
+            reply = dispatchAsync(call).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable t = e.getCause();
+            Throwables.throwIfInstanceOf(t, IOException.class);
+            Throwables.throwIfUnchecked(t);
+            throw new RuntimeException("Unexpected exception", t);
+        }
+        call.reply(reply);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Defines on which thread calls of an RPC program or procedure are executed.
+ * <ul>
+ *   <li>{@link #INLINE} &mdash; on the I/O thread, which has received the call.
+ *   Suitable for cheap calls, like NULL procedure, as no hand-off to another
+ *   thread is required. A slow handler stalls all connections served by the
+ *   same selector.</li>
+ *   <li>{@link #WORKER} &mdash; on the service's worker pool, as defined by
+ *   {@link IoStrategy}. This is the default.</li>
+ *   <li>{@link #executor(String)} &mdash; on a named executor, registered with
+ *   {@link OncRpcSvcBuilder#withExecutor(String, java.util.concurrent.ExecutorService)}.
+ *   Isolates expensive calls from the rest of the service.</li>
+ * </ul>
+ *
+ * @see OncRpcSvcBuilder#withRpcService(OncRpcProgram, RpcDispatchable, ExecutionHint)
+ * @since 3.5
+ */
+public final class ExecutionHint {
+
+    /**
+     * Execute calls on the I/O thread.
+     */
+    public static final ExecutionHint INLINE = new ExecutionHint(null);
+
+    /**
+     * Execute calls on the service's worker pool.
+     */
+    public static final ExecutionHint WORKER = new ExecutionHint(null);
+
+    /**
+     * The name of a dedicated executor or {@code null}.
+     */
+    private final String _executorName;
+
+    private ExecutionHint(String executorName) {
+        _executorName = executorName;
+    }
+
+    /**
+     * Execute calls on the executor registered with the given name.
+     *
+     * @param name the name of the executor.
+     * @return execution hint.
+     */
+    public static ExecutionHint executor(String name) {
+        requireNonNull(name, "Executor name is NULL");
+        checkArgument(!name.isEmpty(), "Executor name is empty");
+        return new ExecutionHint(name);
+    }
+
+    /**
+     * Get the name of the dedicated executor.
+     *
+     * @return executor name or {@code null}, if calls are executed inline or on the worker pool.
+     */
+    public String getExecutorName() {
+        return _executorName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExecutionHint)) {
+            return false;
+        }
+        ExecutionHint other = (ExecutionHint) o;
+        return _executorName != null && _executorName.equals(other._executorName);
+    }
+
+    @Override
+    public int hashCode() {
+        return _executorName == null ? System.identityHashCode(this) : _executorName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (this == INLINE) {
+            return "inline";
+        }
+        if (this == WORKER) {
+            return "worker";
+        }
+        return "executor(" + _executorName + ")";
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * An immutable mapping of RPC programs and procedures to the {@link Executor}s,
+ * which run their calls, as defined by {@link ExecutionHint}s. The table is
+ * consulted for every call and therefore looked up without allocation.
+ *
+ * @since 3.5
+ */
+final class ExecutionTable {
+
+    /**
+     * Sorted program keys, see {@link #key(int, int)}.
+     */
+    private final long[] _keys;
+
+    /**
+     * Executors of the programs in {@link #_keys}.
+     */
+    private final Route[] _routes;
+
+    /**
+     * Create execution table.
+     *
+     * @param programHints execution hints of programs.
+     * @param procedureHints execution hints of individual procedures, which
+     *     override the hint of the program.
+     * @param executors named executors.
+     * @throws IllegalArgumentException if a hint refers to an unknown executor.
+     */
+    ExecutionTable(Map<OncRpcProgram, ExecutionHint> programHints,
+            Map<OncRpcProgram, Map<Integer, ExecutionHint>> procedureHints,
+            Map<String, ? extends Executor> executors) throws IllegalArgumentException {
+
+        Set<OncRpcProgram> programs = new HashSet<>(programHints.keySet());
+        programs.addAll(procedureHints.keySet());
+
+        _keys = programs.stream()
+                .mapToLong(p -> key(p.getNumber(), p.getVersion()))
+                .sorted()
+                .toArray();
+        _routes = new Route[_keys.length];
+
+        for (OncRpcProgram program : programs) {
+            Executor executor = resolve(programHints.getOrDefault(program, ExecutionHint.WORKER), executors);
+
+            Map<Integer, ExecutionHint> hints = procedureHints.getOrDefault(program, Map.of());
+            int[] procedures = hints.keySet().stream()
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .toArray();
+            Executor[] procedureExecutors = new Executor[procedures.length];
+            for (int i = 0; i < procedures.length; i++) {
+                procedureExecutors[i] = resolve(hints.get(procedures[i]), executors);
+            }
+
+            int i = Arrays.binarySearch(_keys, key(program.getNumber(), program.getVersion()));
+            _routes[i] = new Route(executor, procedures, procedureExecutors);
+        }
+    }
+
+    /**
+     * Returns {@code true}, if no hints are defined.
+     */
+    boolean isEmpty() {
+        return _keys.length == 0;
+    }
+
+    /**
+     * Get executor of the given procedure.
+     *
+     * @param prog program number.
+     * @param vers program version.
+     * @param proc procedure number.
+     * @return executor to run the call or {@code null}, if the worker pool should be used.
+     */
+    Executor executorFor(int prog, int vers, int proc) {
+        int i = Arrays.binarySearch(_keys, key(prog, vers));
+        if (i < 0) {
+            return null;
+        }
+        Route route = _routes[i];
+        int j = Arrays.binarySearch(route.procedures, proc);
+        return j < 0 ? route.executor : route.procedureExecutors[j];
+    }
+
+    private static Executor resolve(ExecutionHint hint, Map<String, ? extends Executor> executors)
+            throws IllegalArgumentException {
+
+        if (hint == ExecutionHint.INLINE) {
+            return MoreExecutors.directExecutor();
+        }
+
+        if (hint == ExecutionHint.WORKER) {
+            return null;
+        }
+
+        Executor executor = executors.get(hint.getExecutorName());
+        if (executor == null) {
+            throw new IllegalArgumentException("Unknown executor: " + hint.getExecutorName());
+        }
+        return executor;
+    }
+
+    private static long key(int prog, int vers) {
+        return ((long) prog << 32) | (vers & 0xFFFFFFFFL);
+    }
+
+    private static final class Route {
+
+        /**
+         * Executor of procedures without own hint or {@code null} for the worker pool.
+         */
+        private final Executor executor;
+        private final int[] procedures;
+        private final Executor[] procedureExecutors;
+
+        Route(Executor executor, int[] procedures, Executor[] procedureExecutors) {
+            this.executor = executor;
+            this.procedures = procedures;
+            this.procedureExecutors = procedureExecutors;
+        }
+    }
+}
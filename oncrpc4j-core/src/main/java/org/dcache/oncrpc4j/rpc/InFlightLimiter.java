@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.nio.NIOConnection;
+import org.glassfish.grizzly.utils.NullaryFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits the number of calls and the amount of call data, which are received
+ * over a single connection, but not replied yet. When a limit is reached,
+ * reading from the connection is suspended until enough replies are sent. Thus,
+ * instead of buffering requests in the heap, the client is throttled by TCP
+ * flow control.
+ *
+ * <p>The budget is released when a reply is sent or when the call is completed
+ * without reply. A call which is never replied keeps its share of the budget
+ * until the connection is closed.
+ *
+ * @since 3.5
+ */
+public class InFlightLimiter {
+
+    private final static Logger _log = LoggerFactory.getLogger(InFlightLimiter.class);
+
+    /**
+     * Per connection budget.
+     */
+    private static final Attribute<Budget> BUDGET = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+            InFlightLimiter.class.getName() + ".budget",
+            (NullaryFunction<Budget>) Budget::new);
+
+    /**
+     * Maximal number of not replied calls per connection.
+     */
+    private final int _maxCalls;
+
+    /**
+     * Maximal number of bytes of not replied calls per connection.
+     */
+    private final long _maxBytes;
+
+    /**
+     * Create a new limiter.
+     *
+     * @param maxCalls maximal number of not replied calls per connection.
+     * @param maxBytes maximal number of bytes of not replied calls per connection.
+     */
+    public InFlightLimiter(int maxCalls, long maxBytes) {
+        checkArgument(maxCalls > 0, "Number of calls must be positive");
+        checkArgument(maxBytes > 0, "Number of bytes must be positive");
+        _maxCalls = maxCalls;
+        _maxBytes = maxBytes;
+    }
+
+    public int getMaxCalls() {
+        return _maxCalls;
+    }
+
+    public long getMaxBytes() {
+        return _maxBytes;
+    }
+
+    /**
+     * Suspend processing of the given context, if connection's budget is
+     * exhausted. The processing is resumed, by re-running the current filter,
+     * when enough calls are replied.
+     *
+     * @param ctx the context of the current read.
+     * @return the suspend action or {@code null}, if processing can be continued.
+     */
+    public NextAction suspendIfExhausted(FilterChainContext ctx) {
+        Budget budget = BUDGET.get(ctx.getConnection());
+        synchronized (budget) {
+            if (hasBudget(budget)) {
+                return null;
+            }
+
+            _log.debug("Suspending read on {}: {} calls, {} bytes in-flight",
+                    ctx.getConnection(), budget.calls, budget.bytes);
+            ctx.suspend();
+            budget.suspended = ctx;
+            return ctx.getSuspendAction();
+        }
+    }
+
+    /**
+     * Account a new call received over the given connection.
+     *
+     * @param connection the connection over which the call is received.
+     * @param size size of the call in bytes.
+     */
+    public void acquire(Connection<?> connection, int size) {
+        Budget budget = BUDGET.get(connection);
+        synchronized (budget) {
+            budget.calls++;
+            budget.bytes += size;
+        }
+    }
+
+    /**
+     * Release budget of a replied call. If reading from the connection was
+     * suspended and the budget is not exhausted any more, then the reading
+     * is resumed.
+     *
+     * @param connection the connection over which the call was received.
+     * @param size size of the call in bytes.
+     */
+    public void release(Connection<?> connection, int size) {
+        Budget budget = BUDGET.get(connection);
+        FilterChainContext toResume = null;
+        synchronized (budget) {
+            budget.calls--;
+            budget.bytes -= size;
+            if (budget.suspended != null && hasBudget(budget)) {
+                toResume = budget.suspended;
+                budget.suspended = null;
+            }
+        }
+
+        if (toResume != null) {
+            resume(connection, toResume);
+        }
+    }
+
+    private boolean hasBudget(Budget budget) {
+        return budget.calls < _maxCalls && budget.bytes < _maxBytes;
+    }
+
+    private static void resume(Connection<?> connection, FilterChainContext ctx) {
+
+        if (!connection.isOpen()) {
+            ctx.completeAndRecycle();
+            return;
+        }
+
+        _log.debug("Resuming read on {}", connection);
+        Runnable task = () -> ctx.resume();
+        if (connection instanceof NIOConnection) {
+            // continue processing in the connection's selector thread, like for a regular read
+            ((NIOConnection) connection).executeInEventThread(IOEvent.READ, task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Calls and bytes of a single connection, which are not replied yet.
+     */
+    private static class Budget {
+
+        int calls;
+        long bytes;
+
+        /**
+         * The context of suspended read, if any.
+         */
+        FilterChainContext suspended;
+    }
+}
@@ -3,5 +3,16 @@ package org.dcache.oncrpc4j.rpc;
 public enum IoStrategy {
     SAME_THREAD,
     WORKER_THREAD,
-    LEADER_FOLLOWER
+    LEADER_FOLLOWER,
+    /**
+     * Execute each request in a new virtual thread.
+     * @since 3.5
+     */
+    VIRTUAL_THREAD,
+    /**
+     * Execute requests in worker groups, one per selector thread, instead of
+     * a single pool shared by all selectors.
+     * @since 3.5
+     */
+    SHARDED_WORKER_THREAD
 }
@@ -20,6 +20,7 @@
 package org.dcache.oncrpc4j.rpc;
 
 import com.google.common.annotations.Beta;
+import org.dcache.oncrpc4j.util.Timer;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
@@ -201,6 +202,21 @@ public class OncRpcClient implements AutoCloseable {
             return this;
         }
 
+        public OncRpcClientBuilder withReplyTimer(Timer timer) {
+            svcBuilder.withReplyTimer(timer);
+            return this;
+        }
+
+        public OncRpcClientBuilder withMemoryAllocator(MemoryAllocator allocator) {
+            svcBuilder.withMemoryAllocator(allocator);
+            return this;
+        }
+
+        public OncRpcClientBuilder withSegmentedEncoding(int segmentSize) {
+            svcBuilder.withSegmentedEncoding(segmentSize);
+            return this;
+        }
+
         public OncRpcClientBuilder withConnectTimeout(long timeout, TimeUnit unit) {
             this.connectTimeout = timeout;
             this.connectTimeoutUnit = unit;
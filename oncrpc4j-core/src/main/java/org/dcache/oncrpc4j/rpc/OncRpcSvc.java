@@ -27,6 +27,8 @@ import org.dcache.oncrpc4j.portmap.OncPortmapClient;
 import org.dcache.oncrpc4j.portmap.OncRpcPortmap;
 import org.dcache.oncrpc4j.rpc.gss.GssProtocolFilter;
 import org.dcache.oncrpc4j.rpc.gss.GssSessionManager;
+import org.dcache.oncrpc4j.rpc.metrics.RpcMetrics;
+import org.dcache.oncrpc4j.rpc.metrics.StageMetrics;
 import org.dcache.oncrpc4j.rpc.net.InetSocketAddresses;
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
 import org.glassfish.grizzly.CloseType;
@@ -67,7 +69,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -99,7 +100,22 @@ public class OncRpcSvc {
 
     private final ExecutorService _requestExecutor;
 
-    private final ReplyQueue _replyQueue = new ReplyQueue();
+    private final ReplyQueue _replyQueue;
+
+    /**
+     * Segment size used to encode messages, or zero to use realloc-and-copy growth.
+     */
+    private final int _encodingSegmentSize;
+
+    /**
+     * Maximal size of a record received over TCP.
+     */
+    private final int _maxRecordSize;
+
+    /**
+     * Per connection in-flight limits for TCP, or {@code null}, if unlimited.
+     */
+    private final InFlightLimiter _inFlightLimiter;
 
     private final boolean _withSubjectPropagation;
     /**
@@ -126,7 +142,7 @@ public class OncRpcSvc {
      * mapping of registered programs.
      */
     private final Map<OncRpcProgram, RpcDispatchable> _programs =
-            new ConcurrentHashMap<>();
+            new ProgramTable();
 
     /**
      * Name of this service
@@ -138,6 +154,28 @@ public class OncRpcSvc {
      */
     private final Consumer<RpcCall> _callInterceptor;
 
+    /**
+     * Per procedure call statistics or {@code null}, if not collected.
+     */
+    private final RpcMetrics _metrics;
+
+    /**
+     * Per program and procedure executors.
+     */
+    private final ExecutionTable _executionTable;
+
+    /**
+     * Named executors referred by execution hints.
+     */
+    private final List<ExecutorService> _executors;
+
+    /**
+     * Pipeline stages, which parse calls and send replies, or {@code null},
+     * if not running in pipeline mode.
+     */
+    private final StageExecutor _authStage;
+    private final StageExecutor _replyStage;
+
     /**
      * Create new RPC service with defined configuration.
      * @param builder to build this service
@@ -194,9 +232,30 @@ public class OncRpcSvc {
 		jmxManager.registerAtRoot(t.getMonitoringConfig().createManagementObject(), t.getName() + "-" + _portRange);
 	    });
         }
-        _requestExecutor = builder.getWorkerThreadExecutorService();
+        if (builder.isWithPipeline()) {
+            _authStage = newStage(builder, PipelineStage.AUTH);
+            _requestExecutor = newStage(builder, PipelineStage.DISPATCH);
+            _replyStage = newStage(builder, PipelineStage.REPLY);
+        } else {
+            _authStage = null;
+            _requestExecutor = builder.getWorkerThreadExecutorService();
+            _replyStage = null;
+        }
+        _replyQueue = new ReplyQueue(builder.getReplyTimer());
+        _encodingSegmentSize = builder.getEncodingSegmentSize();
+        _maxRecordSize = builder.getMaxRecordSize();
+        if (builder.getMaxInFlightCalls() > 0 || builder.getMaxInFlightBytes() > 0) {
+            _inFlightLimiter = new InFlightLimiter(
+                    builder.getMaxInFlightCalls() > 0 ? builder.getMaxInFlightCalls() : Integer.MAX_VALUE,
+                    builder.getMaxInFlightBytes() > 0 ? builder.getMaxInFlightBytes() : Long.MAX_VALUE);
+        } else {
+            _inFlightLimiter = null;
+        }
         _gssSessionManager = builder.getGssSessionManager();
         _programs.putAll(builder.getRpcServices());
+        _executors = List.copyOf(builder.getExecutors().values());
+        _executionTable = new ExecutionTable(builder.getExecutionHints(),
+                builder.getProcedureExecutionHints(), builder.getExecutors());
         _withSubjectPropagation = builder.getSubjectPropagation();
         _svcName = builder.getServiceName();
 
@@ -209,6 +268,10 @@ public class OncRpcSvc {
         _startTLS = builder.isStartTLS();
         _sslParams = builder.getSSLParameters();
         _callInterceptor = builder.getCallInterceptor();
+        _metrics = builder.isWithMetrics() ? new RpcMetrics() : null;
+        if (_metrics != null) {
+            getStageMetrics().forEach(_metrics::addStage);
+        }
     }
 
     /**
@@ -362,13 +425,19 @@ public class OncRpcSvc {
                 filterChain.add(_startTLS ? new StartTlsFilter(sslFilter, _isClient) : sslFilter);
             }
 
-            filterChain.add(rpcMessageReceiverFor(t));
-            filterChain.add(new RpcProtocolFilter(_replyQueue));
+            // in-flight limits are per connection, thus not applicable for UDP
+            InFlightLimiter inFlightLimiter = t instanceof TCPNIOTransport ? _inFlightLimiter : null;
+            filterChain.add(rpcMessageReceiverFor(t, _maxRecordSize, inFlightLimiter));
+            // all UDP calls arrive over a single connection, which is suspended during hand-off
+            if (_authStage != null && t instanceof TCPNIOTransport) {
+                filterChain.add(new StageHandOffFilter(_authStage));
+            }
+            filterChain.add(new RpcProtocolFilter(_replyQueue, _encodingSegmentSize, inFlightLimiter));
             // use GSS if configures
             if (_gssSessionManager != null) {
                 filterChain.add(new GssProtocolFilter(_gssSessionManager));
             }
-            filterChain.add(new RpcDispatcher(_requestExecutor, _programs, _withSubjectPropagation, _callInterceptor));
+            filterChain.add(new RpcDispatcher(_requestExecutor, _programs, _withSubjectPropagation, _callInterceptor, _metrics, _executionTable, _replyStage));
 
             final FilterChain filters = filterChain.build();
 
@@ -377,7 +446,11 @@ public class OncRpcSvc {
                 @Override
                 public void onCloseEvent(Connection connection) {
                     if (connection.getCloseReason().getType() == CloseType.REMOTELY) {
-                        _replyQueue.handleDisconnect((SocketAddress)connection.getLocalAddress());
+                        // only requests sent over this connection are affected
+                        ReplyQueue replyQueue = GrizzlyRpcTransport.getReplyQueue(connection);
+                        if (replyQueue != null) {
+                            replyQueue.handleDisconnect((SocketAddress)connection.getLocalAddress());
+                        }
                     }
                 }
             });
@@ -396,6 +469,10 @@ public class OncRpcSvc {
             t.start();
 
         }
+
+        if (_metrics != null) {
+            _metrics.register(_svcName);
+        }
     }
 
     public void stop() throws IOException {
@@ -410,6 +487,9 @@ public class OncRpcSvc {
 
         _replyQueue.shutdown();
         _requestExecutor.shutdown();
+        _executors.forEach(ExecutorService::shutdown);
+        shutdownStages();
+        unregisterMetrics();
     }
 
     public void stop(long gracePeriod, TimeUnit timeUnit) throws IOException {
@@ -435,6 +515,52 @@ public class OncRpcSvc {
         }
 
         _requestExecutor.shutdown();
+        _executors.forEach(ExecutorService::shutdown);
+        shutdownStages();
+        unregisterMetrics();
+    }
+
+    private void shutdownStages() {
+        if (_authStage != null) {
+            _authStage.shutdown();
+            _replyStage.shutdown();
+        }
+    }
+
+    private static StageExecutor newStage(OncRpcSvcBuilder builder, PipelineStage stage) {
+        return new StageExecutor(builder.getServiceName(), stage,
+                builder.getPipelineStageThreads(stage), builder.getPipelineStageQueueSize(stage));
+    }
+
+    /**
+     * Get statistics of pipeline stages.
+     *
+     * @return list of stage metrics, empty if service is not running in pipeline mode.
+     * @since 3.5
+     */
+    public List<StageMetrics> getStageMetrics() {
+        if (_authStage == null) {
+            return List.of();
+        }
+        return List.of(_authStage.getMetrics(),
+                ((StageExecutor) _requestExecutor).getMetrics(),
+                _replyStage.getMetrics());
+    }
+
+    private void unregisterMetrics() {
+        if (_metrics != null) {
+            _metrics.unregister();
+        }
+    }
+
+    /**
+     * Get per procedure call statistics of this service.
+     *
+     * @return call statistics or {@code null}, if service is build without metrics.
+     * @since 3.5
+     */
+    public RpcMetrics getMetrics() {
+        return _metrics;
     }
 
     public RpcTransport connect(InetSocketAddress socketAddress) throws IOException {
@@ -457,7 +583,10 @@ public class OncRpcSvc {
         try {
             //noinspection unchecked
             Connection<InetSocketAddress> connection = connectFuture.get(timeout, timeUnit);
-            return new GrizzlyRpcTransport(connection, _replyQueue);
+            if (transport instanceof TCPNIOTransport) {
+                return GrizzlyRpcTransport.forConnection(connection, _replyQueue, _encodingSegmentSize);
+            }
+            return new GrizzlyRpcTransport(connection, connection.getPeerAddress(), _replyQueue, _encodingSegmentSize);
         } catch (ExecutionException e) {
             Throwable t = getRootCause(e);
             propagateIfPossible(t, IOException.class);
@@ -23,7 +23,12 @@ import com.google.common.annotations.Beta;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.dcache.oncrpc4j.rpc.gss.GssSessionManager;
+import org.dcache.oncrpc4j.util.ScheduledExecutorTimer;
+import org.dcache.oncrpc4j.util.ShardedExecutorService;
+import org.dcache.oncrpc4j.util.Timer;
+import org.dcache.oncrpc4j.util.VirtualThreadExecutorService;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -31,12 +36,15 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
 import static org.dcache.oncrpc4j.grizzly.GrizzlyUtils.getDefaultWorkerPoolSize;
+import static org.dcache.oncrpc4j.grizzly.GrizzlyUtils.getSelectorPoolCfg;
 import static org.dcache.oncrpc4j.rpc.net.IpProtocolType.*;
 
 
@@ -72,6 +80,7 @@ public class OncRpcSvcBuilder {
     private boolean _autoPublish = true;
     private IoStrategy _ioStrategy = IoStrategy.SAME_THREAD;
     private boolean _withJMX = false;
+    private boolean _withMetrics = false;
     private int _backlog = 4096;
     private String _bindAddress = "0.0.0.0";
     private String _serviceName = "OncRpcSvc";
@@ -79,6 +88,10 @@ public class OncRpcSvcBuilder {
     private ExecutorService _workerThreadExecutionService;
     private boolean _isClient = false;
     private final Map<OncRpcProgram, RpcDispatchable> _programs = new HashMap<>();
+    private final Map<OncRpcProgram, ExecutionHint> _executionHints = new HashMap<>();
+    private final Map<OncRpcProgram, Map<Integer, ExecutionHint>> _procedureExecutionHints = new HashMap<>();
+    private final Map<String, ExecutorService> _executors = new HashMap<>();
+    private final Map<PipelineStage, StageSize> _pipelineStages = new EnumMap<>(PipelineStage.class);
     private int _selectorThreadPoolSize = 0;
     private int _workerThreadPoolSize = 0;
     private boolean _subjectPropagation = false;
@@ -88,9 +101,19 @@ public class OncRpcSvcBuilder {
     private SSLParameters _sslParams;
     private MemoryAllocator _allocator = MemoryAllocator.DEFAULT;
     private boolean _tcpNoDelay = TCPNIOTransport.DEFAULT_TCP_NO_DELAY;
+    private Timer _replyTimer;
+    private int _encodingSegmentSize = 0;
+    private int _maxRecordSize = RpcMessageParserTCP.RPC_SIZE_MASK;
+    private int _maxInFlightCalls = 0;
+    private long _maxInFlightBytes = 0;
 
     private Consumer<RpcCall> _callInterceptor = c -> {};
 
+    /**
+     * Default capacity of a pipeline stage queue.
+     */
+    private static final int DEFAULT_STAGE_QUEUE_SIZE = 1024;
+
     public OncRpcSvcBuilder withAutoPublish() {
         _autoPublish = true;
         return this;
@@ -164,6 +187,39 @@ public class OncRpcSvcBuilder {
         return this;
     }
 
+    /**
+     * Execute each request in a new virtual thread. The number of concurrently
+     * executed requests is not limited, unless {@link #withWorkerThreadPoolSize(int)}
+     * is specified.
+     *
+     * <p>The limit doesn't provide back-pressure: excess requests still get a
+     * virtual thread, which waits for its turn while holding the decoded call
+     * and its buffers. Use {@link #withMaxInFlightCalls(int)} or
+     * {@link #withMaxInFlightBytes(long)} to stop reading new requests when
+     * too many of them are waiting.
+     *
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withVirtualThreadIoStrategy() {
+        _ioStrategy = IoStrategy.VIRTUAL_THREAD;
+        return this;
+    }
+
+    /**
+     * Execute requests in worker groups, one per selector thread. Each group has
+     * its own task queue, thus selectors don't contend on a single queue and a
+     * request is processed by the same set of threads from read to reply. The
+     * worker thread pool size is split evenly between the groups.
+     *
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withShardedWorkerThreadIoStrategy() {
+        _ioStrategy = IoStrategy.SHARDED_WORKER_THREAD;
+        return this;
+    }
+
     public OncRpcSvcBuilder withLeaderFollowerIoStrategy() {
         _ioStrategy = IoStrategy.LEADER_FOLLOWER;
         return this;
@@ -185,6 +241,70 @@ public class OncRpcSvcBuilder {
         return this;
     }
 
+    /**
+     * Collect per program and procedure call counters and latency histograms.
+     * The statistics are exported as {@code org.dcache.oncrpc4j:type=OncRpcSvc}
+     * MBean, named by service name, while the service is running.
+     *
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withMetrics() {
+        _withMetrics = true;
+        return this;
+    }
+
+    /**
+     * Process requests in a pipeline of {@link PipelineStage stages}, each with
+     * its own threads and bounded queue. Parsing of the call header and credentials,
+     * execution of the call, and encoding of the reply are thus performed by
+     * separate threads and can be sized and observed independently. When the queue
+     * of a stage is full, the previous stage executes the task itself, which,
+     * eventually, slows down reading from the network. Stages which are not configured
+     * with {@link #withPipelineStage(PipelineStage, int, int)} use default sizes.
+     * <p>
+     * In pipeline mode, replies are encoded after {@link RpcCall#reply(org.dcache.oncrpc4j.xdr.XdrAble)}
+     * returns, thus reply objects must not be modified or reused until the reply is
+     * sent, as reported to send listeners of the call. The worker thread pool is
+     * replaced by the dispatch stage.
+     *
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withPipeline() {
+        for (PipelineStage stage : PipelineStage.values()) {
+            _pipelineStages.putIfAbsent(stage, defaultStageSize(stage));
+        }
+        return this;
+    }
+
+    /**
+     * Process requests in a pipeline of stages and set the number of threads and
+     * the queue size of the given stage.
+     *
+     * @param stage the stage to configure.
+     * @param threads number of threads of the stage.
+     * @param queueSize the maximal number of tasks waiting for a thread of the stage.
+     * @return this builder.
+     * @see #withPipeline()
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withPipelineStage(PipelineStage stage, int threads, int queueSize) {
+        checkArgument(threads > 0, "thread pool size must be positive");
+        checkArgument(queueSize > 0, "queue size must be positive");
+        withPipeline();
+        _pipelineStages.put(stage, new StageSize(threads, queueSize));
+        return this;
+    }
+
+    private static StageSize defaultStageSize(PipelineStage stage) {
+        int threads = stage == PipelineStage.DISPATCH ? getDefaultWorkerPoolSize()
+                : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        return new StageSize(threads, DEFAULT_STAGE_QUEUE_SIZE);
+    }
+
+    private record StageSize(int threads, int queueSize) {}
+
     public OncRpcSvcBuilder withBacklog(int backlog) {
         _backlog = backlog;
         return this;
@@ -220,6 +340,69 @@ public class OncRpcSvcBuilder {
         return this;
     }
 
+    /**
+     * Register RPC service, which calls are executed as defined by given hint.
+     *
+     * @param program RPC program to register.
+     * @param service the service handling the program calls.
+     * @param hint defines on which thread the program calls are executed.
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withRpcService(OncRpcProgram program, RpcDispatchable service, ExecutionHint hint) {
+        return withRpcService(program, service, hint, Map.of());
+    }
+
+    /**
+     * Register RPC service, which calls are executed as defined by given hints.
+     * For example, to reply NULL procedure on the I/O thread and to isolate an
+     * expensive procedure from other calls:
+     * <pre>
+     *   new OncRpcSvcBuilder()
+     *     .withWorkerThreadIoStrategy()
+     *     .withExecutor("bulk", Executors.newFixedThreadPool(4))
+     *     .withRpcService(program, service, ExecutionHint.WORKER,
+     *         Map.of(0, ExecutionHint.INLINE, 7, ExecutionHint.executor("bulk")))
+     *     ...
+     * </pre>
+     *
+     * @param program RPC program to register.
+     * @param service the service handling the program calls.
+     * @param hint defines on which thread the program calls are executed.
+     * @param procedureHints hints of individual procedures, which override {@code hint}.
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withRpcService(OncRpcProgram program, RpcDispatchable service,
+            ExecutionHint hint, Map<Integer, ExecutionHint> procedureHints) {
+        requireNonNull(hint, "Execution hint is NULL");
+        procedureHints.values().forEach(h -> requireNonNull(h, "Execution hint is NULL"));
+        _programs.put(program, service);
+        _executionHints.put(program, hint);
+        if (procedureHints.isEmpty()) {
+            _procedureExecutionHints.remove(program);
+        } else {
+            _procedureExecutionHints.put(program, Map.copyOf(procedureHints));
+        }
+        return this;
+    }
+
+    /**
+     * Register an executor, which can be referred by {@link ExecutionHint#executor(String)}.
+     * The executor is shut down when service is stopped.
+     *
+     * @param name the name of the executor.
+     * @param executor the executor.
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withExecutor(String name, ExecutorService executor) {
+        requireNonNull(name, "Executor name is NULL");
+        requireNonNull(executor, "Executor is NULL");
+        _executors.put(name, executor);
+        return this;
+    }
+
     public OncRpcSvcBuilder withSubjectPropagation() {
         _subjectPropagation = true;
         return this;
@@ -250,6 +433,81 @@ public class OncRpcSvcBuilder {
         return this;
     }
 
+    /**
+     * Use given {@link Timer} to expire client requests without reply. The timer
+     * will be stopped when service is stopped. Requests still waiting for reply
+     * at that time are failed with a timeout when they expire, as the timer
+     * executes already scheduled tasks after being stopped.
+     *
+     * @param timer timer to use.
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withReplyTimer(Timer timer) {
+        _replyTimer = timer;
+        return this;
+    }
+
+    /**
+     * Encode messages in segmented growth mode. Instead of reallocating and copying
+     * the buffer when a message outgrows it, segments of given size are appended.
+     * Recommended for services which send replies of several megabytes.
+     *
+     * @param segmentSize size of appended segments in bytes.
+     * @return this builder.
+     * @see org.dcache.oncrpc4j.xdr.Xdr#setSegmentSize(int)
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withSegmentedEncoding(int segmentSize) {
+        checkArgument(segmentSize > 0, "Segment size must be positive");
+        _encodingSegmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * Set the maximal size of a record received over TCP. Connections which
+     * send bigger records are closed.
+     *
+     * @param maxRecordSize the maximal record size in bytes.
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withMaxRecordSize(int maxRecordSize) {
+        checkArgument(maxRecordSize > 0, "Record size must be positive");
+        _maxRecordSize = maxRecordSize;
+        return this;
+    }
+
+    /**
+     * Set the maximal number of calls received over a single TCP connection,
+     * which are not replied yet. When the limit is reached, reading from the
+     * connection is suspended until some of the calls are replied.
+     *
+     * @param maxCalls the maximal number of in-flight calls per connection.
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withMaxInFlightCalls(int maxCalls) {
+        checkArgument(maxCalls > 0, "Number of calls must be positive");
+        _maxInFlightCalls = maxCalls;
+        return this;
+    }
+
+    /**
+     * Set the maximal amount of data of calls received over a single TCP
+     * connection, which are not replied yet. When the limit is reached, reading
+     * from the connection is suspended until some of the calls are replied.
+     *
+     * @param maxBytes the maximal number of in-flight bytes per connection.
+     * @return this builder.
+     * @since 3.5
+     */
+    public OncRpcSvcBuilder withMaxInFlightBytes(long maxBytes) {
+        checkArgument(maxBytes > 0, "Number of bytes must be positive");
+        _maxInFlightBytes = maxBytes;
+        return this;
+    }
+
     public OncRpcSvcBuilder withSSLContextProvider(Callable<SSLContext> sslContextProvider) {
         _sslContextProvider = sslContextProvider;
         return this;
@@ -292,6 +550,10 @@ public class OncRpcSvcBuilder {
         return _withJMX;
     }
 
+    public boolean isWithMetrics() {
+        return _withMetrics;
+    }
+
     public int getBacklog() {
         return _backlog;
     }
@@ -317,6 +579,30 @@ public class OncRpcSvcBuilder {
         return this;
     }
 
+    public int getEncodingSegmentSize() {
+        return _encodingSegmentSize;
+    }
+
+    public int getMaxRecordSize() {
+        return _maxRecordSize;
+    }
+
+    /**
+     * Get the maximal number of in-flight calls per connection.
+     * @return number of calls or zero, if unlimited.
+     */
+    public int getMaxInFlightCalls() {
+        return _maxInFlightCalls;
+    }
+
+    /**
+     * Get the maximal number of in-flight bytes per connection.
+     * @return number of bytes or zero, if unlimited.
+     */
+    public long getMaxInFlightBytes() {
+        return _maxInFlightBytes;
+    }
+
     public Consumer<RpcCall> getCallInterceptor() {
         return _callInterceptor;
     }
@@ -330,16 +616,32 @@ public class OncRpcSvcBuilder {
             return _workerThreadExecutionService;
         }
 
-        ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setNameFormat(_serviceName + " (%d)")
-                .build();
+        if (_ioStrategy == IoStrategy.VIRTUAL_THREAD) {
+            return new VirtualThreadExecutorService(_serviceName, _workerThreadPoolSize);
+        }
 
         int threadPoolSize = _workerThreadPoolSize != 0 ? _workerThreadPoolSize
                 : getDefaultWorkerPoolSize();
 
+        if (_ioStrategy == IoStrategy.SHARDED_WORKER_THREAD) {
+            int shards = getSelectorPoolCfg(_ioStrategy, null, _selectorThreadPoolSize).getMaxPoolSize();
+            return new ShardedExecutorService(_serviceName, shards, (threadPoolSize + shards - 1) / shards);
+        }
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(_serviceName + " (%d)")
+                .build();
+
         return Executors.newFixedThreadPool(threadPoolSize, threadFactory);
     }
 
+    public Timer getReplyTimer() {
+        if (_replyTimer != null) {
+            return _replyTimer;
+        }
+        return new ScheduledExecutorTimer("ReplyQueue of " + _serviceName);
+    }
+
     public int getSelectorThreadPoolSize() {
         return _selectorThreadPoolSize;
     }
@@ -356,6 +658,40 @@ public class OncRpcSvcBuilder {
         return _programs;
     }
 
+    public Map<OncRpcProgram, ExecutionHint> getExecutionHints() {
+        return _executionHints;
+    }
+
+    public Map<OncRpcProgram, Map<Integer, ExecutionHint>> getProcedureExecutionHints() {
+        return _procedureExecutionHints;
+    }
+
+    public Map<String, ExecutorService> getExecutors() {
+        return _executors;
+    }
+
+    public boolean isWithPipeline() {
+        return !_pipelineStages.isEmpty();
+    }
+
+    /**
+     * Get the number of threads of a pipeline stage.
+     * @param stage the pipeline stage.
+     * @return number of threads.
+     */
+    public int getPipelineStageThreads(PipelineStage stage) {
+        return _pipelineStages.getOrDefault(stage, defaultStageSize(stage)).threads();
+    }
+
+    /**
+     * Get the queue size of a pipeline stage.
+     * @param stage the pipeline stage.
+     * @return capacity of the stage queue.
+     */
+    public int getPipelineStageQueueSize(PipelineStage stage) {
+        return _pipelineStages.getOrDefault(stage, defaultStageSize(stage)).queueSize();
+    }
+
     public SSLContext getSSLContext() {
         return _sslContext;
     }
@@ -390,6 +726,19 @@ public class OncRpcSvcBuilder {
             throw new IllegalArgumentException("Can't set both SSLContext and SSLContextProvider");
         }
 
+        if (isWithPipeline() && _workerThreadExecutionService != null) {
+            throw new IllegalArgumentException("Can't use external execution service in pipeline mode");
+        }
+
+        Stream.concat(_executionHints.values().stream(),
+                        _procedureExecutionHints.values().stream().flatMap(m -> m.values().stream()))
+                .map(ExecutionHint::getExecutorName)
+                .filter(name -> name != null && !_executors.containsKey(name))
+                .findAny()
+                .ifPresent(name -> {
+                    throw new IllegalArgumentException("Unknown executor: " + name);
+                });
+
         return new OncRpcSvc(this);
     }
 }
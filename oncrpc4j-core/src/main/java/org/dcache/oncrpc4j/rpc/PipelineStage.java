@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+/**
+ * Processing stages of an RPC service running in pipeline mode.
+ *
+ * @see OncRpcSvcBuilder#withPipelineStage(PipelineStage, int, int)
+ * @since 3.5
+ */
+public enum PipelineStage {
+
+    /**
+     * Decoding of the call header and credentials, including GSS verification.
+     * Applies to TCP only, as all UDP calls arrive over a single connection.
+     */
+    AUTH,
+
+    /**
+     * Execution of the program's {@link RpcDispatchable}.
+     */
+    DISPATCH,
+
+    /**
+     * Encoding, including GSS wrapping, and sending of replies, accepted and
+     * rejected.
+     */
+    REPLY
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A map of registered RPC programs, which can be looked up by program and
+ * version number without allocating an {@link OncRpcProgram} key. As programs
+ * are rarely (un)registered, while a lookup is done for every call, updates
+ * build a new immutable snapshot, which is read without locking.
+ *
+ * @since 3.5
+ */
+final class ProgramTable extends AbstractMap<OncRpcProgram, RpcDispatchable> {
+
+    private volatile Snapshot _snapshot = new Snapshot(Map.of());
+
+    /**
+     * Get the handler of the given program version.
+     *
+     * @param prog program number.
+     * @param vers program version.
+     * @return the handler or {@code null}, if the program version is not registered.
+     */
+    RpcDispatchable get(int prog, int vers) {
+        return _snapshot.get(prog, vers);
+    }
+
+    @Override
+    public RpcDispatchable get(Object key) {
+        return _snapshot.programs.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return _snapshot.programs.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return _snapshot.programs.size();
+    }
+
+    @Override
+    public synchronized RpcDispatchable put(OncRpcProgram program, RpcDispatchable handler) {
+        requireNonNull(program, "program is NULL");
+        requireNonNull(handler, "handler is NULL");
+        Map<OncRpcProgram, RpcDispatchable> programs = new HashMap<>(_snapshot.programs);
+        RpcDispatchable old = programs.put(program, handler);
+        _snapshot = new Snapshot(programs);
+        return old;
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends OncRpcProgram, ? extends RpcDispatchable> m) {
+        Map<OncRpcProgram, RpcDispatchable> programs = new HashMap<>(_snapshot.programs);
+        m.forEach((program, handler) -> programs.put(
+                requireNonNull(program, "program is NULL"), requireNonNull(handler, "handler is NULL")));
+        _snapshot = new Snapshot(programs);
+    }
+
+    @Override
+    public synchronized RpcDispatchable remove(Object program) {
+        if (!_snapshot.programs.containsKey(program)) {
+            return null;
+        }
+        Map<OncRpcProgram, RpcDispatchable> programs = new HashMap<>(_snapshot.programs);
+        RpcDispatchable old = programs.remove(program);
+        _snapshot = new Snapshot(programs);
+        return old;
+    }
+
+    @Override
+    public synchronized void clear() {
+        _snapshot = new Snapshot(Map.of());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned set is an unmodifiable snapshot.
+     */
+    @Override
+    public Set<Entry<OncRpcProgram, RpcDispatchable>> entrySet() {
+        return _snapshot.programs.entrySet();
+    }
+
+    /**
+     * Immutable open addressing table with linear probing, where program and
+     * version number are packed into a single {@code long} key.
+     */
+    private static final class Snapshot {
+
+        private final Map<OncRpcProgram, RpcDispatchable> programs;
+        private final long[] keys;
+        private final RpcDispatchable[] values;
+        private final int mask;
+
+        Snapshot(Map<OncRpcProgram, RpcDispatchable> programs) {
+            this.programs = Collections.unmodifiableMap(programs);
+            // keep the load factor at most 0.5
+            int capacity = Integer.highestOneBit(Math.max(programs.size(), 1) * 4 - 1);
+            keys = new long[capacity];
+            values = new RpcDispatchable[capacity];
+            mask = capacity - 1;
+            programs.forEach((program, handler) -> {
+                long key = key(program.getNumber(), program.getVersion());
+                int i = hash(key) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = handler;
+            });
+        }
+
+        RpcDispatchable get(int prog, int vers) {
+            long key = key(prog, vers);
+            int i = hash(key) & mask;
+            RpcDispatchable value;
+            while ((value = values[i]) != null) {
+                if (keys[i] == key) {
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private static long key(int prog, int vers) {
+            return ((long) prog << 32) | (vers & 0xFFFFFFFFL);
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -25,32 +25,88 @@ import java.net.SocketAddress;
 import java.nio.channels.CompletionHandler;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.dcache.oncrpc4j.util.IntObjectHashMap;
+import org.dcache.oncrpc4j.util.ScheduledExecutorTimer;
+import org.dcache.oncrpc4j.util.Timer;
 
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A table of RPC requests waiting for reply, keyed by xid.
+ *
+ * <p>A service-wide queue is partitioned per connection with
+ * {@link #newConnectionQueue()}. Each partition has its own xid space, thus
+ * requests sent over one connection never compete with requests of other
+ * connections for the lock and on disconnect only requests of the affected
+ * connection have to be visited.
+ */
 public class ReplyQueue {
 
-    private final ScheduledThreadPoolExecutor executorService = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
-        private final AtomicInteger counter = new AtomicInteger();
+    /**
+     * Timer used to expire requests without reply.
+     */
+    private final Timer _timer;
+
+    /**
+     * Whether the timer must be stopped on {@link #shutdown()}.
+     */
+    private final boolean _ownsTimer;
 
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, "timeout thread #" + counter.incrementAndGet() + " for ReplyQueue " + ReplyQueue.this);
-            t.setDaemon(true);
-            return t;
-        }
-    });
-    private final ConcurrentMap<Integer, PendingRequest> _queue = new ConcurrentHashMap<>();
+    /**
+     * Pending requests. Guarded by {@code this}.
+     */
+    private IntObjectHashMap<PendingRequest> _queue = new IntObjectHashMap<>();
+
+    /**
+     * XID number generator.
+     */
+    private final AtomicInteger _xidGenerator = new AtomicInteger(ThreadLocalRandom.current().nextInt());
 
     public ReplyQueue() {
-        executorService.setRemoveOnCancelPolicy(true);
+        this(new ScheduledExecutorTimer("ReplyQueue"), true);
+    }
+
+    /**
+     * Create a new ReplyQueue which uses given {@link Timer} to expire
+     * requests. The timer is owned by the queue and will be stopped
+     * on {@link #shutdown()}.
+     *
+     * @param timer timer to use for request expiration.
+     * @since 3.5
+     */
+    public ReplyQueue(Timer timer) {
+        this(requireNonNull(timer, "Timer is NULL"), true);
+    }
+
+    private ReplyQueue(Timer timer, boolean ownsTimer) {
+        _timer = timer;
+        _ownsTimer = ownsTimer;
+    }
+
+    /**
+     * Create a new, empty, ReplyQueue which shares the timer with this queue.
+     * The returned queue is intended to hold requests of a single connection.
+     * The shared timer is not stopped on {@link #shutdown()} of the returned queue.
+     *
+     * @return a new ReplyQueue.
+     * @since 3.5
+     */
+    public ReplyQueue newConnectionQueue() {
+        return new ReplyQueue(_timer, false);
+    }
+
+    /**
+     * Get next xid to be used by a request registered in this queue.
+     *
+     * @return xid for a new RPC request.
+     * @since 3.5
+     */
+    public int nextXid() {
+        return _xidGenerator.incrementAndGet();
     }
 
     /**
@@ -80,27 +136,43 @@ public class ReplyQueue {
      * @throws EOFException if disconnected
      */
     public void registerKey(int xid, SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> callback, final long timeout, final TimeUnit timeoutUnits) throws EOFException {
-        ScheduledFuture<?> scheduledTimeout = null;
-        if (timeout > 0 && timeoutUnits != null) {
-            scheduledTimeout = executorService.schedule(() -> {
-                CompletionHandler<RpcReply, RpcTransport> handler = get(xid);
-                if (handler != null) { //means we're 1st, no response yet
-                    handler.failed(new TimeoutException("did not get a response within " + timeout + " " + timeoutUnits), null);
-                }
-            }, timeout, timeoutUnits);
+        /*
+         * Schedule the timeout while holding the lock, thus the timeout task
+         * can't observe the queue before the request is registered, even if
+         * the timeout is shorter than the time needed to register it.
+         */
+        synchronized (this) {
+            Timer.Timeout scheduledTimeout = null;
+            if (timeout > 0 && timeoutUnits != null) {
+                scheduledTimeout = _timer.schedule(() -> {
+                    CompletionHandler<RpcReply, RpcTransport> handler = get(xid);
+                    if (handler != null) { //means we're 1st, no response yet
+                        handler.failed(new TimeoutException("did not get a response within " + timeout + " " + timeoutUnits), null);
+                    }
+                }, timeout, timeoutUnits);
+            }
+            _queue.put(xid, new PendingRequest(addr, callback, scheduledTimeout));
         }
-        _queue.put(xid, new PendingRequest(addr, callback, scheduledTimeout));
     }
 
+    /**
+     * Fail all pending requests of this queue, as the connection they were
+     * sent over is closed.
+     *
+     * @param addr socket address of the closed connection.
+     */
     public void handleDisconnect(SocketAddress addr) {
         EOFException eofException = new EOFException("Disconnected from " + addr);
 
-        _queue.entrySet().stream()
-                .filter(e -> e.getValue().addr.equals(addr))
-                .forEach(e -> {
-                    e.getValue().failed(eofException);
-                    _queue.remove(e.getKey());
-                });
+        // the queue holds requests of a single connection only
+        IntObjectHashMap<PendingRequest> disconnected;
+        synchronized (this) {
+            disconnected = _queue;
+            _queue = new IntObjectHashMap<>();
+        }
+
+        // notify outside of the lock, as handlers may register new requests
+        disconnected.forEachValue(r -> r.failed(eofException));
     }
 
     /**
@@ -111,7 +183,10 @@ public class ReplyQueue {
      * @return completion handler for given xid or {@code null} if xid is unknown.
      */
     public CompletionHandler<RpcReply, RpcTransport> get(int xid) {
-        PendingRequest request = _queue.remove(xid);
+        PendingRequest request;
+        synchronized (this) {
+            request = _queue.remove(xid);
+        }
         if (request != null) { //means we're first. call off any pending timeouts
             request.cancelTimeout();
             return request.handler;
@@ -121,19 +196,19 @@ public class ReplyQueue {
     }
 
     /**
-     * Get unmodifiable {@link Collection} of pending requests.
+     * Get unmodifiable snapshot of pending requests.
      * @return collection of pending requests.
      */
-    public Collection<PendingRequest> getPendingRequests() {
+    public synchronized Collection<PendingRequest> getPendingRequests() {
         return Collections.unmodifiableCollection(_queue.values());
     }
 
     public static class PendingRequest {
         private final CompletionHandler<RpcReply, RpcTransport> handler;
-        private final ScheduledFuture<?> scheduledTimeout;
+        private final Timer.Timeout scheduledTimeout;
         private final SocketAddress addr;
 
-        public PendingRequest(SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> handler, ScheduledFuture<?> scheduledTimeout) {
+        public PendingRequest(SocketAddress addr, CompletionHandler<RpcReply, RpcTransport> handler, Timer.Timeout scheduledTimeout) {
             this.handler = handler;
             this.scheduledTimeout = scheduledTimeout;
             this.addr = addr;
@@ -141,7 +216,7 @@ public class ReplyQueue {
 
         void cancelTimeout() {
             if (scheduledTimeout != null) {
-                scheduledTimeout.cancel(false);
+                scheduledTimeout.cancel();
             }
         }
 
@@ -152,14 +227,16 @@ public class ReplyQueue {
     }
 
     @VisibleForTesting
-    BlockingQueue<Runnable> getTimeoutQueue() {
-        return executorService.getQueue();
+    long getPendingTimeouts() {
+        return _timer.pendingTimeouts();
     }
 
     /**
      * Shutdown all background activity, if any.
      */
     public void shutdown() {
-        executorService.shutdown();
+        if (_ownsTimer) {
+            _timer.shutdown();
+        }
     }
 }
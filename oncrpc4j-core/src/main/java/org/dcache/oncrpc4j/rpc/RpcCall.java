@@ -20,10 +20,13 @@
 package org.dcache.oncrpc4j.rpc;
 
 import com.google.common.annotations.Beta;
+import org.dcache.oncrpc4j.rpc.jfr.JfrSupport;
+import org.dcache.oncrpc4j.rpc.jfr.ReplyEncodeEvent;
 import org.dcache.oncrpc4j.xdr.Xdr;
 import org.dcache.oncrpc4j.xdr.XdrVoid;
 import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
 import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrSizeable;
 import com.google.common.base.Throwables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,27 +36,20 @@ import java.io.InterruptedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.InetSocketAddress;
 import java.nio.channels.CompletionHandler;
-import java.util.Random;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class RpcCall {
 
     private final static Logger _log = LoggerFactory.getLogger(RpcCall.class);
 
-    private final static Random RND = new Random();
-
-    /**
-     * XID number generator
-     */
-    private final AtomicInteger xidGenerator = new AtomicInteger(RND.nextInt());
-
     private int _xid;
 
     /**
@@ -96,11 +92,6 @@ public class RpcCall {
      */
     private final Xdr _xdr;
 
-    /**
-     * Object used to synchronize access to sendListeners.
-     */
-    private final Object _listenerLock = new Object();
-
     /**
      * The {link CompletionHandler} which is used to notify all registered
      * completion listeners.
@@ -109,7 +100,7 @@ public class RpcCall {
 
         @Override
         public void completed(Integer result, InetSocketAddress attachment) {
-            synchronized (_listenerLock) {
+            synchronized (_sendNotificationHandler) {
                 if (_sendListeners != null) {
                     _sendListeners
                             .parallelStream()
@@ -128,7 +119,7 @@ public class RpcCall {
         @Override
         public void failed(Throwable t, InetSocketAddress attachment) {
             _log.error("Failed to send RPC to {} : {}", attachment, t.getMessage());
-            synchronized (_listenerLock) {
+            synchronized (_sendNotificationHandler) {
                 if (_sendListeners != null) {
                     _sendListeners
                             .parallelStream()
@@ -166,9 +157,18 @@ public class RpcCall {
      */
     private List<CompletionHandler<Integer, InetSocketAddress>> _sendOnceListeners;
 
+    /**
+     * Notifies send listeners. Also used to synchronize access to them.
+     */
     private final CompletionHandler<Integer, InetSocketAddress> _sendNotificationHandler
             = new NotifyListenersCompletionHandler();
 
+    /**
+     * Executor used to encode and send the reply or {@code null}, if the reply
+     * is sent by the thread replying to the call.
+     */
+    private Executor _replyExecutor;
+
     public RpcCall(int prog, int ver, RpcAuth cred, RpcTransport transport) {
         this(prog, ver, cred, new Xdr(Xdr.INITIAL_XDR_SIZE), transport);
     }
@@ -199,6 +199,27 @@ public class RpcCall {
         _rpcvers = RPCVERS;
     }
 
+    /**
+     * Create a new call, which takes over the given accepted call, for instance,
+     * to unwrap its arguments and wrap its reply. The send listeners registered
+     * with the given call are notified, when the reply of the new call is sent.
+     *
+     * @param call the call to take over.
+     * @since 3.5
+     */
+    protected RpcCall(RpcCall call) {
+        this(call.getXid(), call.getProgram(), call.getProgramVersion(),
+                call.getProcedure(), call.getCredential(), call.getXdr(), call.getTransport());
+        _replyExecutor = call._replyExecutor;
+        synchronized (call._sendNotificationHandler) {
+            if (call._sendListeners != null) {
+                _sendListeners = new ArrayList<>(call._sendListeners);
+            }
+            _sendOnceListeners = call._sendOnceListeners;
+            call._sendOnceListeners = null;
+        }
+    }
+
     /**
      * Accept message. Have to be called prior processing RPC call.
      * @throws IOException if messages can't be accepted.
@@ -293,7 +314,17 @@ public class RpcCall {
      * @param reason {@code status} specific reply object.
      */
     public void reject(int status, XdrAble reason) {
+        Executor executor = _replyExecutor;
+        if (executor != null) {
+            handOverReply(executor, () -> rejectedReply(status, reason));
+        } else {
+            rejectedReply(status, reason);
+        }
+    }
+
+    private void rejectedReply(int status, XdrAble reason) {
         XdrEncodingStream xdr = _xdr;
+        ReplyEncodeEvent event = startReplyEncodeEvent();
         try {
             xdr.beginEncoding();
             xdr.xdrEncodeInt(_xid);
@@ -302,27 +333,81 @@ public class RpcCall {
             xdr.xdrEncodeInt(status);
             reason.xdrEncode(_xdr);
             xdr.endEncoding();
+            commitReplyEncodeEvent(event, false, status);
 
             _transport.send((Xdr)xdr, _transport.getRemoteSocketAddress(), _sendNotificationHandler);
 
         } catch (OncRpcException e) {
             _log.warn("Xdr exception: ", e);
+            _sendNotificationHandler.failed(e, _transport.getRemoteSocketAddress());
         } catch (IOException e) {
             _log.error("Failed send reply: ", e);
+            _sendNotificationHandler.failed(e, _transport.getRemoteSocketAddress());
         }
     }
     /**
-     * Send accepted reply to the client.
+     * Send accepted reply to the client. If the service runs in pipeline mode,
+     * the reply is encoded and sent asynchronously by the reply stage. In that
+     * case, the reply object must not be modified or reused until the reply
+     * is sent, e.g. a listener registered with {@link #registerSendOnceListener}
+     * is notified.
      *
      * @param reply
      */
     public void reply(XdrAble reply) {
-        acceptedReply(RpcAccepsStatus.SUCCESS, reply);
+        acceptedReplyOnStage(RpcAccepsStatus.SUCCESS, reply);
+    }
+
+    /**
+     * Set executor used to encode and send the reply.
+     *
+     * @param executor the executor or {@code null}, if the reply is sent by
+     * the thread replying to the call.
+     */
+    void setReplyExecutor(Executor executor) {
+        _replyExecutor = executor;
+    }
+
+    /**
+     * Send accepted reply with the given status by the reply stage, if any.
+     */
+    private void acceptedReplyOnStage(int state, XdrAble reply) {
+        Executor executor = _replyExecutor;
+        if (executor != null) {
+            handOverReply(executor, () -> acceptedReply(state, reply));
+        } else {
+            acceptedReply(state, reply);
+        }
     }
 
+    /**
+     * Hand over encoding and sending of the reply to the reply stage. As a call
+     * is replied only once, the executor is cleared, thus nested replies, like
+     * a reject by {@link org.dcache.oncrpc4j.rpc.gss.RpcGssCall}, are sent by
+     * the stage's thread directly.
+     */
+    private void handOverReply(Executor executor, Runnable encodeAndSend) {
+        _replyExecutor = null;
+        try {
+            executor.execute(encodeAndSend);
+        } catch (RejectedExecutionException e) {
+            _log.warn("Failed to send reply: {}", e.toString());
+            _xdr.close();
+            _sendNotificationHandler.failed(e, _transport.getRemoteSocketAddress());
+        }
+    }
+
+    /**
+     * Encode and send accepted reply with the given status by the calling
+     * thread, bypassing the reply stage.
+     *
+     * @param state the accept status of the reply.
+     * @param reply the reply object.
+     */
     public void acceptedReply(int state, XdrAble reply) {
 
         XdrEncodingStream xdr = _xdr;
+        ReplyEncodeEvent event = startReplyEncodeEvent();
         try {
             xdr.beginEncoding();
             xdr.xdrEncodeInt(_xid);
@@ -330,15 +415,22 @@ public class RpcCall {
             xdr.xdrEncodeInt(RpcReplyStatus.MSG_ACCEPTED);
             _cred.getVerifier().xdrEncode(xdr);
             xdr.xdrEncodeInt(state);
+            if (reply instanceof XdrSizeable) {
+                // grow the buffer at most once
+                _xdr.ensureCapacity(((XdrSizeable) reply).xdrEncodedSize());
+            }
             reply.xdrEncode(xdr);
             xdr.endEncoding();
+            commitReplyEncodeEvent(event, true, state);
 
             _transport.send((Xdr)xdr, _transport.getRemoteSocketAddress(), _sendNotificationHandler);
 
         } catch (OncRpcException e) {
             _log.warn("Xdr exception: ", e);
+            _sendNotificationHandler.failed(e, _transport.getRemoteSocketAddress());
         } catch (IOException e) {
             _log.error("Failed send reply: ", e);
+            _sendNotificationHandler.failed(e, _transport.getRemoteSocketAddress());
         }
     }
 
@@ -353,6 +445,24 @@ public class RpcCall {
         _xdr.endDecoding();
     }
 
+    private static ReplyEncodeEvent startReplyEncodeEvent() {
+        if (!JfrSupport.isInitialized() || !JfrSupport.isEnabled(ReplyEncodeEvent.class)) {
+            return null;
+        }
+        ReplyEncodeEvent event = new ReplyEncodeEvent();
+        event.begin();
+        return event;
+    }
+
+    private void commitReplyEncodeEvent(ReplyEncodeEvent event, boolean accepted, int status) {
+        if (event != null && event.shouldCommit()) {
+            event.setCall(this);
+            event.accepted = accepted;
+            event.status = status;
+            event.commit();
+        }
+    }
+
     /**
      * Reply to client with error program version mismatch.
      * Accepted message sent.
@@ -361,7 +471,7 @@ public class RpcCall {
      * @param max maximal supported version
      */
     public void failProgramMismatch(int min, int max) {
-        acceptedReply(RpcAccepsStatus.PROG_MISMATCH, new MismatchInfo(min, max));
+        acceptedReplyOnStage(RpcAccepsStatus.PROG_MISMATCH, new MismatchInfo(min, max));
     }
 
     /**
@@ -369,28 +479,28 @@ public class RpcCall {
      * Accepted message sent.
      */
     public void failProgramUnavailable() {
-        acceptedReply(RpcAccepsStatus.PROG_UNAVAIL, XdrVoid.XDR_VOID);
+        acceptedReplyOnStage(RpcAccepsStatus.PROG_UNAVAIL, XdrVoid.XDR_VOID);
     }
 
     /**
      * Reply to client with error procedure unavailable.
      */
     public void failProcedureUnavailable() {
-        acceptedReply(RpcAccepsStatus.PROC_UNAVAIL, XdrVoid.XDR_VOID);
+        acceptedReplyOnStage(RpcAccepsStatus.PROC_UNAVAIL, XdrVoid.XDR_VOID);
     }
 
     /**
      * Reply to client with error garbage args.
      */
     public void failRpcGarbage() {
-        acceptedReply(RpcAccepsStatus.GARBAGE_ARGS, XdrVoid.XDR_VOID);
+        acceptedReplyOnStage(RpcAccepsStatus.GARBAGE_ARGS, XdrVoid.XDR_VOID);
     }
 
     /**
      * Reply to client with error system error.
      */
     public void failRpcSystem() {
-        acceptedReply(RpcAccepsStatus.SYSTEM, XdrVoid.XDR_VOID);
+        acceptedReplyOnStage(RpcAccepsStatus.SYSTEM, XdrVoid.XDR_VOID);
     }
 
     /**
@@ -457,21 +567,33 @@ public class RpcCall {
 
         int xid = nextXid();
 
-        Xdr xdr = new Xdr(Xdr.INITIAL_XDR_SIZE);
-        xdr.beginEncoding();
-        xdr.xdrEncodeInt(xid);
-        xdr.xdrEncodeInt(RpcMessageType.CALL);
-        xdr.xdrEncodeInt(RPCVERS);
-        xdr.xdrEncodeInt(_prog);
-        xdr.xdrEncodeInt(_version);
-        xdr.xdrEncodeInt(procedure);
-        if (auth != null) {
-            auth.xdrEncode(xdr);
-        } else {
-            _cred.xdrEncode(xdr);
+        int size = Xdr.INITIAL_XDR_SIZE;
+        if (args instanceof XdrSizeable) {
+            // the initial size is big enough for rpc header, credentials and verifier
+            size += ((XdrSizeable) args).xdrEncodedSize();
+        }
+        // allocate with transport's memory manager, thus pooled buffers are recycled after the write
+        Xdr xdr = _transport.newXdr(size);
+        try {
+            xdr.beginEncoding();
+            xdr.xdrEncodeInt(xid);
+            xdr.xdrEncodeInt(RpcMessageType.CALL);
+            xdr.xdrEncodeInt(RPCVERS);
+            xdr.xdrEncodeInt(_prog);
+            xdr.xdrEncodeInt(_version);
+            xdr.xdrEncodeInt(procedure);
+            if (auth != null) {
+                auth.xdrEncode(xdr);
+            } else {
+                _cred.xdrEncode(xdr);
+            }
+            args.xdrEncode(xdr);
+            xdr.endEncoding();
+        } catch (IOException | RuntimeException e) {
+            // the message will never be sent
+            xdr.close();
+            throw e;
         }
-        args.xdrEncode(xdr);
-        xdr.endEncoding();
 
         ReplyQueue replyQueue = _transport.getReplyQueue();
 
@@ -696,7 +818,18 @@ public class RpcCall {
 
 
     private int nextXid() {
-        return xidGenerator.incrementAndGet();
+        return _transport.getReplyQueue().nextXid();
+    }
+
+    /**
+     * Notify send listeners, that no reply will be sent for this call, for
+     * instance, as the call is dropped. The listeners are notified as if a
+     * reply of zero bytes was sent.
+     *
+     * @since 3.5
+     */
+    public void completeWithoutReply() {
+        _sendNotificationHandler.completed(0, _transport.getRemoteSocketAddress());
     }
 
     /**
@@ -707,7 +840,7 @@ public class RpcCall {
      * @param listener the message sent listener
      */
     public void registerSendListener(CompletionHandler<Integer, InetSocketAddress> listener) {
-        synchronized (_listenerLock) {
+        synchronized (_sendNotificationHandler) {
             if (_sendListeners == null) {
                 _sendListeners = new ArrayList<>();
             }
@@ -722,7 +855,7 @@ public class RpcCall {
      * @param listener the message sent listener
      */
     public void registerSendOnceListener(CompletionHandler<Integer, InetSocketAddress> listener) {
-        synchronized (_listenerLock) {
+        synchronized (_sendNotificationHandler) {
             if (_sendOnceListeners == null) {
                 _sendOnceListeners = new ArrayList<>();
             }
@@ -20,18 +20,28 @@
 package org.dcache.oncrpc4j.rpc;
 
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import javax.security.auth.Subject;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 import com.google.common.base.Throwables;
+import org.dcache.oncrpc4j.rpc.jfr.CallExecutionEvent;
+import org.dcache.oncrpc4j.rpc.jfr.CallQueuedEvent;
+import org.dcache.oncrpc4j.rpc.jfr.JfrSupport;
+import org.dcache.oncrpc4j.rpc.metrics.ProcedureMetrics;
+import org.dcache.oncrpc4j.rpc.metrics.RpcMetrics;
+import org.dcache.oncrpc4j.util.ShardedExecutorService;
+import org.dcache.oncrpc4j.xdr.XdrAble;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.nio.NIOConnection;
 
 import static java.util.Objects.requireNonNull;
 
@@ -44,6 +54,12 @@ public class RpcDispatcher extends BaseFilter {
      */
     private final Map<OncRpcProgram, RpcDispatchable> _programs;
 
+    /**
+     * Registered RPC services, which can be looked up without allocating a key,
+     * or {@code null}, if {@link #_programs} is a generic map.
+     */
+    private final ProgramTable _programTable;
+
     /**
      * {@link ExecutorService} used for request processing
      */
@@ -60,6 +76,23 @@ public class RpcDispatcher extends BaseFilter {
      */
     private final Consumer<RpcCall> _callInterceptor;
 
+    /**
+     * Per procedure call statistics or {@code null}, if not collected.
+     */
+    private final RpcMetrics _metrics;
+
+    /**
+     * Per program and procedure executors or {@code null}, if all calls are
+     * executed by {@link #_asyncExecutorService}.
+     */
+    private final ExecutionTable _executionTable;
+
+    /**
+     * Executor used to encode and send replies or {@code null}, if replies are
+     * sent by the thread processing the call.
+     */
+    private final Executor _replyExecutor;
+
     /**
      * Create new RPC dispatcher for given program.
      *
@@ -75,11 +108,58 @@ public class RpcDispatcher extends BaseFilter {
     public RpcDispatcher(ExecutorService executor, Map<OncRpcProgram,
             RpcDispatchable> programs, boolean withSubjectPropagation, Consumer<RpcCall> callInterceptor)
             throws NullPointerException {
+        this(executor, programs, withSubjectPropagation, callInterceptor, null);
+    }
+
+    /**
+     * Create new RPC dispatcher for given program.
+     *
+     * @param executor {@link ExecutorService} to use for request processing
+     * @param programs {@link Map}
+     *     with a mapping between program number and program
+     *     handler.
+     * @param withSubjectPropagation use {@link Subject#doAs} to exacerbate request.
+     * @param callInterceptor consumer that will be called before the dispatcher performs its real work.
+     * @param metrics call statistics to update or {@code null}, if not collected.
+     *
+     * @throws NullPointerException if executor or program is null
+     * @since 3.5
+     */
+    public RpcDispatcher(ExecutorService executor, Map<OncRpcProgram,
+            RpcDispatchable> programs, boolean withSubjectPropagation, Consumer<RpcCall> callInterceptor,
+            RpcMetrics metrics) throws NullPointerException {
+        this(executor, programs, withSubjectPropagation, callInterceptor, metrics, null, null);
+    }
+
+    /**
+     * Create new RPC dispatcher for given program.
+     *
+     * @param executor {@link ExecutorService} to use for request processing
+     * @param programs {@link Map}
+     *     with a mapping between program number and program
+     *     handler.
+     * @param withSubjectPropagation use {@link Subject#doAs} to exacerbate request.
+     * @param callInterceptor consumer that will be called before the dispatcher performs its real work.
+     * @param metrics call statistics to update or {@code null}, if not collected.
+     * @param executionTable executors of individual programs and procedures or
+     *     {@code null}, if all calls are processed by {@code executor}.
+     * @param replyExecutor executor used to encode and send replies or
+     *     {@code null}, if replies are sent by the thread processing the call.
+     *
+     * @throws NullPointerException if executor or program is null
+     */
+    RpcDispatcher(ExecutorService executor, Map<OncRpcProgram,
+            RpcDispatchable> programs, boolean withSubjectPropagation, Consumer<RpcCall> callInterceptor,
+            RpcMetrics metrics, ExecutionTable executionTable, Executor replyExecutor) throws NullPointerException {
 
         _programs = requireNonNull(programs, "Programs is NULL");
+        _programTable = programs instanceof ProgramTable ? (ProgramTable) programs : null;
         _asyncExecutorService = requireNonNull(executor, "ExecutorService is NULL");
         _withSubjectPropagation = withSubjectPropagation;
         _callInterceptor = callInterceptor;
+        _metrics = metrics;
+        _executionTable = executionTable != null && !executionTable.isEmpty() ? executionTable : null;
+        _replyExecutor = replyExecutor;
     }
 
     @Override
@@ -92,51 +172,94 @@ public class RpcDispatcher extends BaseFilter {
 
         _log.debug("processing request {}", call);
 
-        final RpcDispatchable program = _programs.get(new OncRpcProgram(prog, vers));
+        if (_replyExecutor != null) {
+            // all replies, including errors, are encoded and sent by the reply stage
+            call.setReplyExecutor(_replyExecutor);
+        }
+
+        final RpcDispatchable program = _programTable != null
+                ? _programTable.get(prog, vers)
+                : _programs.get(new OncRpcProgram(prog, vers));
         if (program == null) {
             call.failProgramUnavailable();
         } else {
-            _asyncExecutorService.execute(new Runnable() {
+
+            final boolean withEvents = JfrSupport.isInitialized();
+            final CallQueuedEvent queued = withEvents && JfrSupport.isEnabled(CallQueuedEvent.class) ? new CallQueuedEvent() : null;
+            if (queued != null) {
+                queued.begin();
+            }
+
+            final ProcedureMetrics metrics;
+            final long queuedAt;
+            if (_metrics != null) {
+                metrics = _metrics.forProcedure(prog, vers, proc);
+                _metrics.callQueued(metrics);
+                queuedAt = System.nanoTime();
+            } else {
+                metrics = null;
+                queuedAt = 0;
+            }
+
+            Executor executor = _executionTable != null ? _executionTable.executorFor(prog, vers, proc) : null;
+            if (executor == null) {
+                executor = _asyncExecutorService;
+            }
+
+            Runnable task = new Runnable() {
                 @Override
                 public void run() {
 
+                    if (queued != null && queued.shouldCommit()) {
+                        queued.setCall(call);
+                        queued.commit();
+                    }
+
                     _callInterceptor.accept(call);
 
+                    CallExecutionEvent event = null;
+                    if (withEvents && JfrSupport.isEnabled(CallExecutionEvent.class)) {
+                        event = new CallExecutionEvent();
+                        event.begin();
+                    }
+                    final long startedAt = metrics != null ? System.nanoTime() : 0;
+                    final CallExecutionEvent execution = event;
+                    CompletionStage<? extends XdrAble> pending = null;
+                    boolean failed = true;
                     try {
-                        if (_withSubjectPropagation) {
-                            Subject subject = call.getCredential().getSubject();
-
-                            try {
-                                Subject.callAs(subject, () -> {
-                                    program.dispatchOncRpcCall(call);
-                                    return null;
-                                });
-                            } catch (CompletionException e) {
-                                Throwable t = e.getCause();
-                                Throwables.throwIfInstanceOf(t, IOException.class);
-                                Throwables.throwIfUnchecked(t);
-                                throw new RuntimeException("Unexpected exception", e);
-                            }
-                        } else {
-                            program.dispatchOncRpcCall(call);
-                        }
-                    } catch (RpcException e) {
-                        call.reject(e.getStatus(), e.getRpcReply());
-                        _log.warn("Failed to process RPC request: {}", e.getMessage());
-                    } catch (OncRpcException e) {
-                        call.failRpcGarbage();
-                        _log.warn("Failed to process RPC request: {}", e.getMessage());
+                        pending = dispatch(program, call);
+                        failed = false;
                     } catch (IOException e) {
-                        call.failRpcGarbage();
-                        _log.warn("Failed to process RPC request: {}", e.getMessage());
+                        failCall(call, e);
                     } catch (RuntimeException e) {
-                        /*
-                         * This looks like a bug in dispatcher implementation.
-                         * Log the error and tell client that we fail.
-                         */
-                        _log.error("Failed to process RPC request:", e);
-                        call.failRpcSystem();
+                        failCall(call, e);
                         throw e;
+                    } finally {
+                        if (pending == null) {
+                            callCompleted(call, metrics, queuedAt, startedAt, execution, failed);
+                        }
+                    }
+
+                    if (pending != null) {
+                        // the worker thread is released; the reply is sent by the thread completing the stage
+                        pending.whenComplete((reply, t) -> {
+                            boolean asyncFailed = t != null;
+                            try {
+                                if (asyncFailed) {
+                                    failCall(call, t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                                } else if (reply == null) {
+                                    asyncFailed = true;
+                                    failCall(call, new NullPointerException("Asynchronous dispatcher completed with NULL"));
+                                } else {
+                                    call.reply(reply);
+                                }
+                            } catch (RuntimeException e) {
+                                _log.error("Failed to send RPC reply:", e);
+                                asyncFailed = true;
+                            } finally {
+                                callCompleted(call, metrics, queuedAt, startedAt, execution, asyncFailed);
+                            }
+                        });
                     }
                 }
 
@@ -144,8 +267,81 @@ public class RpcDispatcher extends BaseFilter {
                 public String toString() {
                     return call.toString();
                 }
-            });
+            };
+
+            if (executor instanceof ShardedExecutorService sharded
+                    && ctx.getConnection() instanceof NIOConnection connection) {
+                // keep the call in the worker group of the selector, which has read it
+                sharded.execute(task, connection.getSelectorRunner());
+            } else {
+                executor.execute(task);
+            }
         }
         return ctx.getInvokeAction();
     }
+    /**
+     * Invoke the program's handler, optionally as the {@link Subject} of the caller.
+     *
+     * @return the stage to wait for, if the handler is asynchronous, or {@code null}
+     * if request is already processed.
+     */
+    private CompletionStage<? extends XdrAble> dispatch(RpcDispatchable program, RpcCall call)
+            throws OncRpcException, IOException {
+
+        if (!_withSubjectPropagation) {
+            return invoke(program, call);
+        }
+
+        Subject subject = call.getCredential().getSubject();
+        try {
+            return Subject.callAs(subject, () -> invoke(program, call));
+        } catch (CompletionException e) {
+            Throwable t = e.getCause();
+            Throwables.throwIfInstanceOf(t, IOException.class);
+            Throwables.throwIfUnchecked(t);
+            throw new RuntimeException("Unexpected exception", e);
+        }
+    }
+
+    private static CompletionStage<? extends XdrAble> invoke(RpcDispatchable program, RpcCall call)
+            throws OncRpcException, IOException {
+        if (program instanceof AsyncRpcDispatchable asyncProgram) {
+            return requireNonNull(asyncProgram.dispatchAsync(call), "Asynchronous dispatcher returned NULL");
+        }
+        program.dispatchOncRpcCall(call);
+        return null;
+    }
+
+    /**
+     * Send to the client the error reply, which corresponds to the given failure.
+     */
+    private static void failCall(RpcCall call, Throwable t) {
+        if (t instanceof RpcException e) {
+            call.reject(e.getStatus(), e.getRpcReply());
+            _log.warn("Failed to process RPC request: {}", e.getMessage());
+        } else if (t instanceof IOException) {
+            // OncRpcException is an IOException as well
+            call.failRpcGarbage();
+            _log.warn("Failed to process RPC request: {}", t.getMessage());
+        } else {
+            /*
+             * This looks like a bug in dispatcher implementation.
+             * Log the error and tell client that we fail.
+             */
+            _log.error("Failed to process RPC request:", t);
+            call.failRpcSystem();
+        }
+    }
+
+    private void callCompleted(RpcCall call, ProcedureMetrics metrics, long queuedAt, long startedAt,
+            CallExecutionEvent event, boolean failed) {
+        if (metrics != null) {
+            _metrics.callCompleted(metrics, startedAt - queuedAt, System.nanoTime() - startedAt, failed);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.failed = failed;
+            event.setCall(call);
+            event.commit();
+        }
+    }
 }
@@ -20,17 +20,29 @@
 package org.dcache.oncrpc4j.rpc;
 
 import java.io.IOException;
+import java.net.ProtocolException;
 
+import org.dcache.oncrpc4j.rpc.jfr.JfrSupport;
+import org.dcache.oncrpc4j.rpc.jfr.RecordAssemblyEvent;
 import org.dcache.oncrpc4j.xdr.Xdr;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.memory.BuffersBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.NullaryFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 public class RpcMessageParserTCP extends BaseFilter {
 
+    private final static Logger _log = LoggerFactory.getLogger(RpcMessageParserTCP.class);
+
     /**
      * RPC fragment record marker mask
      */
@@ -40,6 +52,42 @@ public class RpcMessageParserTCP extends BaseFilter {
      */
     public final static int RPC_SIZE_MASK = 0x7fffffff;
 
+    /**
+     * Per connection parser state.
+     */
+    private static final Attribute<ParserState> PARSER_STATE = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+            RpcMessageParserTCP.class.getName() + ".state",
+            (NullaryFunction<ParserState>) ParserState::new);
+
+    /**
+     * Maximal size of a record, excluding fragment headers.
+     */
+    private final int _maxRecordSize;
+
+    /**
+     * Per connection in-flight limits, or {@code null}, if unlimited.
+     */
+    private final InFlightLimiter _inFlightLimiter;
+
+    public RpcMessageParserTCP() {
+        this(RPC_SIZE_MASK, null);
+    }
+
+    /**
+     * Create a new parser.
+     *
+     * @param maxRecordSize maximal size of a record. Connections which send
+     * bigger records are closed.
+     * @param inFlightLimiter per connection in-flight limits, or {@code null},
+     * if unlimited.
+     * @since 3.5
+     */
+    public RpcMessageParserTCP(int maxRecordSize, InFlightLimiter inFlightLimiter) {
+        checkArgument(maxRecordSize > 0, "Record size must be positive");
+        _maxRecordSize = maxRecordSize;
+        _inFlightLimiter = inFlightLimiter;
+    }
+
     @Override
     public NextAction handleRead(FilterChainContext ctx) throws IOException {
 
@@ -48,10 +96,43 @@ public class RpcMessageParserTCP extends BaseFilter {
             return ctx.getStopAction();
         }
 
-        if (!isAllFragmentsArrived(messageBuffer)) {
+        if (_inFlightLimiter != null) {
+            NextAction suspend = _inFlightLimiter.suspendIfExhausted(ctx);
+            if (suspend != null) {
+                return suspend;
+            }
+        }
+
+        ParserState state = PARSER_STATE.get(ctx.getConnection());
+        if (state.event == null && JfrSupport.isInitialized() && JfrSupport.isEnabled(RecordAssemblyEvent.class)) {
+            // the first chunk of a new record
+            state.event = new RecordAssemblyEvent();
+            state.event.begin();
+        }
+
+        final boolean isComplete;
+        try {
+            isComplete = isAllFragmentsArrived(messageBuffer, state);
+        } catch (ProtocolException e) {
+            _log.warn("Closing connection {}: {}", ctx.getConnection(), e.getMessage());
+            state.reset();
+            ctx.getConnection().closeSilently();
+            return ctx.getStopAction();
+        }
+
+        if (!isComplete) {
             return ctx.getStopAction(messageBuffer);
         }
 
+        RecordAssemblyEvent event = state.event;
+        if (event != null && event.shouldCommit()) {
+            event.peer = String.valueOf(ctx.getConnection().getPeerAddress());
+            event.bytes = state.validatedBytes - 4L * state.fragments;
+            event.fragments = state.fragments;
+            event.commit();
+        }
+        state.reset();
+
         ctx.setMessage(assembleXdr(messageBuffer, ctx.getMemoryManager()));
 
         final Buffer reminder = messageBuffer.hasRemaining()
@@ -60,41 +141,54 @@ public class RpcMessageParserTCP extends BaseFilter {
         return ctx.getInvokeAction(reminder);
     }
 
-    private boolean isAllFragmentsArrived(Buffer messageBuffer) {
-        final Buffer buffer = messageBuffer;
-        if (buffer.remaining() < 4) {
-          return false;
-        }
+    /**
+     * Check whatever all fragments of the message are received. Only fragment
+     * headers, which are not validated by previous invocations are checked.
+     */
+    private boolean isAllFragmentsArrived(Buffer messageBuffer, ParserState state) throws ProtocolException {
 
-        buffer.mark();
-        try {
-          do {
-            int messageMarker = buffer.getInt();
+        final int start = messageBuffer.position();
+        final int available = messageBuffer.remaining();
+
+        // offset of the first not yet validated fragment header relative to the beginning of the message
+        int offset = state.validatedBytes;
+        while (available - offset >= 4) {
+
+            int messageMarker = messageBuffer.getInt(start + offset);
             int size = getMessageSize(messageMarker);
 
+            /*
+             * reject oversized records as soon as the fragment header is seen
+             */
+            long recordSize = (long) offset - 4L * state.fragments + size;
+            if (recordSize > _maxRecordSize) {
+                throw new ProtocolException("Record size " + recordSize + " exceeds the limit of " + _maxRecordSize);
+            }
+
             /*
              * fragment size bigger than we have received
              */
-            if (size > buffer.remaining()) {
-                return false;
+            if (size > available - offset - 4) {
+                break;
             }
 
             /*
              * complete fragment received
              */
             if (isLastFragment(messageMarker)) {
+                state.validatedBytes = offset + 4 + size;
+                state.fragments++;
                 return true;
             }
 
             /*
              * seek to the end of the current fragment
              */
-            buffer.position(buffer.position() + size);
-          } while(buffer.remaining() >= 4);
-        } finally {
-          buffer.reset();
+            offset += 4 + size;
+            state.fragments++;
         }
 
+        state.validatedBytes = offset;
         return false;
     }
 
@@ -138,4 +232,32 @@ public class RpcMessageParserTCP extends BaseFilter {
 
         return new Xdr(multipleFragments == null ? currentFragment : multipleFragments, memoryManager);
     }
+
+    /**
+     * The state of partially received message.
+     */
+    private static class ParserState {
+
+        /**
+         * Number of bytes, starting from the beginning of the message, which
+         * contain complete fragments.
+         */
+        int validatedBytes;
+
+        /**
+         * Number of complete fragments seen so far.
+         */
+        int fragments;
+
+        /**
+         * Record assembly event, if recording is enabled.
+         */
+        RecordAssemblyEvent event;
+
+        void reset() {
+            validatedBytes = 0;
+            fragments = 0;
+            event = null;
+        }
+    }
 }
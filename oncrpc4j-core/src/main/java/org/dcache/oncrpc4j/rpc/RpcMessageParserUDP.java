@@ -19,6 +19,8 @@
  */
 package org.dcache.oncrpc4j.rpc;
 
+import org.dcache.oncrpc4j.rpc.jfr.JfrSupport;
+import org.dcache.oncrpc4j.rpc.jfr.RecordAssemblyEvent;
 import org.dcache.oncrpc4j.xdr.Xdr;
 import java.io.IOException;
 import org.glassfish.grizzly.Buffer;
@@ -37,6 +39,16 @@ public class RpcMessageParserUDP extends BaseFilter {
     public NextAction handleRead(FilterChainContext ctx) throws IOException {
         Buffer messageBuffer = ctx.getMessage();
 
+        if (JfrSupport.isInitialized() && JfrSupport.isEnabled(RecordAssemblyEvent.class)) {
+            RecordAssemblyEvent event = new RecordAssemblyEvent();
+            if (event.shouldCommit()) {
+                event.peer = String.valueOf(ctx.getAddress());
+                event.bytes = messageBuffer.remaining();
+                event.fragments = 1;
+                event.commit();
+            }
+        }
+
         Xdr xdr = new Xdr(messageBuffer, ctx.getMemoryManager());
         ctx.setMessage(xdr);
 
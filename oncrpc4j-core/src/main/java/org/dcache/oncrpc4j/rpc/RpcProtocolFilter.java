@@ -19,11 +19,15 @@
  */
 package org.dcache.oncrpc4j.rpc;
 
+import org.dcache.oncrpc4j.rpc.jfr.CallDecodeEvent;
+import org.dcache.oncrpc4j.rpc.jfr.JfrSupport;
 import org.dcache.oncrpc4j.xdr.Xdr;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.channels.CompletionHandler;
 import org.dcache.oncrpc4j.grizzly.GrizzlyRpcTransport;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.glassfish.grizzly.filterchain.BaseFilter;
@@ -35,8 +39,47 @@ public class RpcProtocolFilter extends BaseFilter {
     private final static Logger _log = LoggerFactory.getLogger(RpcProtocolFilter.class);
     private final ReplyQueue _replyQueue;
 
+    /**
+     * Segment size used to encode replies and requests, or zero to use realloc-and-copy growth.
+     */
+    private final int _encodingSegmentSize;
+
+    /**
+     * Per connection in-flight limits, or {@code null}, if unlimited.
+     */
+    private final InFlightLimiter _inFlightLimiter;
+
     public RpcProtocolFilter(ReplyQueue replyQueue) {
+        this(replyQueue, 0);
+    }
+
+    /**
+     * Create a new filter.
+     *
+     * @param replyQueue service-wide reply queue.
+     * @param encodingSegmentSize segment size used to encode messages, or zero
+     * to use realloc-and-copy growth.
+     * @see Xdr#setSegmentSize(int)
+     * @since 3.5
+     */
+    public RpcProtocolFilter(ReplyQueue replyQueue, int encodingSegmentSize) {
+        this(replyQueue, encodingSegmentSize, null);
+    }
+
+    /**
+     * Create a new filter.
+     *
+     * @param replyQueue service-wide reply queue.
+     * @param encodingSegmentSize segment size used to encode messages, or zero
+     * to use realloc-and-copy growth.
+     * @param inFlightLimiter per connection in-flight limits, or {@code null},
+     * if unlimited.
+     * @since 3.5
+     */
+    public RpcProtocolFilter(ReplyQueue replyQueue, int encodingSegmentSize, InFlightLimiter inFlightLimiter) {
         _replyQueue = replyQueue;
+        _encodingSegmentSize = encodingSegmentSize;
+        _inFlightLimiter = inFlightLimiter;
     }
 
     @Override
@@ -53,18 +96,43 @@ public class RpcProtocolFilter extends BaseFilter {
         final int xid = xdr.xdrDecodeInt();
         final int type = xdr.xdrDecodeInt();
 
+        Connection<InetSocketAddress> connection = ctx.getConnection();
+        boolean isStreaming = connection.getTransport() instanceof TCPNIOTransport;
+
         /**
          * In case of UDP grizzly does not populates connection with correct destination address.
          * We have to get peer address from the request context, which will contain SocketAddress where from
          * request was coming.
          */
-        RpcTransport transport = new GrizzlyRpcTransport(ctx.getConnection(), (InetSocketAddress)ctx.getAddress(), _replyQueue);
+        RpcTransport transport = isStreaming
+                ? GrizzlyRpcTransport.forConnection(connection, _replyQueue, _encodingSegmentSize)
+                : new GrizzlyRpcTransport(connection, (InetSocketAddress)ctx.getAddress(), _replyQueue, _encodingSegmentSize);
 
         switch (type) {
             case RpcMessageType.CALL:
+                // the reply is encoded into the same xdr
+                xdr.setSegmentSize(_encodingSegmentSize);
+                if (isStreaming) {
+                    // space for the record marker
+                    xdr.setReservedHeaderSize(Integer.BYTES);
+                }
                 RpcCall call = new RpcCall(xid, xdr, transport);
+                if (_inFlightLimiter != null) {
+                    trackInFlight(ctx.getConnection(), call, xdr.asBuffer().limit());
+                }
+                CallDecodeEvent event = null;
+                if (JfrSupport.isInitialized() && JfrSupport.isEnabled(CallDecodeEvent.class)) {
+                    event = new CallDecodeEvent();
+                    event.begin();
+                }
                 try {
                     call.accept();
+                    if (event != null && event.shouldCommit()) {
+                        event.setCall(call);
+                        event.authFlavor = call.getCredential().type();
+                        event.bytes = xdr.asBuffer().limit();
+                        event.commit();
+                    }
                     ctx.setMessage(call);
 
                 } catch (RpcException e) {
@@ -73,13 +141,15 @@ public class RpcProtocolFilter extends BaseFilter {
                     return ctx.getStopAction();
                 } catch (OncRpcException e) {
                     _log.info("failed to process RPC request: {}", e.getMessage());
+                    // no reply will be sent
+                    call.completeWithoutReply();
                     return ctx.getStopAction();
                 }
                 return ctx.getInvokeAction();
             case RpcMessageType.REPLY:
                 try {
                     RpcReply reply = new RpcReply(xid, xdr, transport);
-                    CompletionHandler<RpcReply, RpcTransport> callback = _replyQueue.get(xid);
+                    CompletionHandler<RpcReply, RpcTransport> callback = transport.getReplyQueue().get(xid);
                     if (callback != null) {
                         if (!reply.isAccepted()) {
                             callback.failed(new OncRpcRejectedException(reply.getRejectStatus()), transport);
@@ -98,4 +168,24 @@ public class RpcProtocolFilter extends BaseFilter {
                 return ctx.getStopAction();
         }
     }
+
+    /**
+     * Account the call in the connection's in-flight budget, which is released
+     * when reply is sent, or, if the call is dropped, by {@link RpcCall#completeWithoutReply()}.
+     * Calls which take over the call, like {@code RpcGssCall}, inherit the release.
+     */
+    private void trackInFlight(Connection<?> connection, RpcCall call, int size) {
+        _inFlightLimiter.acquire(connection, size);
+        call.registerSendOnceListener(new CompletionHandler<Integer, InetSocketAddress>() {
+            @Override
+            public void completed(Integer result, InetSocketAddress attachment) {
+                _inFlightLimiter.release(connection, size);
+            }
+
+            @Override
+            public void failed(Throwable t, InetSocketAddress attachment) {
+                _inFlightLimiter.release(connection, size);
+            }
+        });
+    }
 }
@@ -22,7 +22,9 @@ package org.dcache.oncrpc4j.rpc;
 import com.google.common.annotations.Beta;
 import java.net.InetSocketAddress;
 import java.nio.channels.CompletionHandler;
+import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
 import org.dcache.oncrpc4j.xdr.Xdr;
+import org.glassfish.grizzly.memory.MemoryManager;
 
 /**
  *
@@ -45,6 +47,27 @@ public interface RpcTransport {
 
     ReplyQueue getReplyQueue();
 
+    /**
+     * Get {@link MemoryManager} which should be used to allocate messages sent over this transport.
+     *
+     * @return memory manager of this transport.
+     * @since 3.5
+     */
+    default MemoryManager getMemoryManager() {
+        return GrizzlyMemoryManager.getDefaultMemoryManager();
+    }
+
+    /**
+     * Create a new {@link Xdr} to encode a message which will be sent over this transport.
+     *
+     * @param size initial size of the message in bytes.
+     * @return a new Xdr.
+     * @since 3.5
+     */
+    default Xdr newXdr(int size) {
+        return new Xdr(size, getMemoryManager());
+    }
+
     /**
      * Returns is this transport is open and ready.
      *
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.dcache.oncrpc4j.rpc.metrics.StageMetrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A processing stage of the request pipeline with a fixed number of threads
+ * and a bounded queue. When the queue is full, tasks are executed by the
+ * submitting thread, which slows down the previous stage and, eventually,
+ * reading from the network.
+ *
+ * @since 3.5
+ */
+final class StageExecutor extends AbstractExecutorService {
+
+    private final ThreadPoolExecutor _executor;
+
+    /**
+     * Free slots in the queue.
+     */
+    private final Semaphore _slots;
+
+    private final StageMetrics _metrics;
+
+    /**
+     * Create new stage.
+     *
+     * @param serviceName the name of the service.
+     * @param stage the stage.
+     * @param threads number of threads.
+     * @param queueSize capacity of the queue.
+     */
+    StageExecutor(String serviceName, PipelineStage stage, int threads, int queueSize) {
+        checkArgument(threads > 0, "number of threads must be positive");
+        checkArgument(queueSize > 0, "queue size must be positive");
+
+        String name = stage.name().toLowerCase();
+        _metrics = new StageMetrics(name, threads, queueSize);
+        _slots = new Semaphore(queueSize);
+        _executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat(serviceName + " " + name + " (%d)")
+                        .build());
+    }
+
+    StageMetrics getMetrics() {
+        return _metrics;
+    }
+
+    /**
+     * Reserve a slot in the queue for a task, which is submitted later by
+     * {@link #executeReserved(Runnable)}.
+     *
+     * @return {@code true}, if a slot is reserved, or {@code false}, if queue is full.
+     */
+    boolean tryReserve() {
+        if (_slots.tryAcquire()) {
+            return true;
+        }
+        _metrics.taskOverflowed();
+        return false;
+    }
+
+    /**
+     * Queue a task into a slot reserved by {@link #tryReserve()}.
+     *
+     * @param task the task to execute.
+     * @throws RejectedExecutionException if stage is shut down.
+     */
+    void executeReserved(Runnable task) throws RejectedExecutionException {
+        _metrics.taskQueued();
+        long queuedAt = System.nanoTime();
+        try {
+            _executor.execute(() -> {
+                _slots.release();
+                long startedAt = System.nanoTime();
+                _metrics.taskStarted(startedAt - queuedAt);
+                try {
+                    task.run();
+                } finally {
+                    _metrics.taskCompleted(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            _slots.release();
+            _metrics.taskStarted(0);
+            throw e;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (tryReserve()) {
+            executeReserved(task);
+            return;
+        }
+
+        if (_executor.isShutdown()) {
+            throw new RejectedExecutionException("Stage " + _metrics.getName() + " is shut down");
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            _metrics.taskCompleted(System.nanoTime() - startedAt);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        _executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return _executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return _executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return _executor.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+
+/**
+ * A filter, which continues processing of a received message by the following
+ * filters on a {@link StageExecutor} thread. The filter chain is suspended in
+ * the meantime, thus, messages of a connection are still processed in order.
+ * The message itself is handed over without copying. If the stage queue is
+ * full, then the message is processed by the current thread.
+ *
+ * @since 3.5
+ */
+final class StageHandOffFilter extends BaseFilter {
+
+    private final StageExecutor _stage;
+
+    StageHandOffFilter(StageExecutor stage) {
+        _stage = stage;
+    }
+
+    @Override
+    public NextAction handleRead(FilterChainContext ctx) throws IOException {
+        if (!_stage.tryReserve()) {
+            return ctx.getInvokeAction();
+        }
+
+        // suspend before hand-off, as the stage may resume the context immediately
+        ctx.suspend();
+        try {
+            _stage.executeReserved(ctx::resumeNext);
+        } catch (RejectedExecutionException e) {
+            // the stage is shut down, continue with the current thread
+            ctx.resumeNext();
+        }
+        return ctx.getSuspendAction();
+    }
+}
@@ -34,6 +34,8 @@ import org.dcache.oncrpc4j.rpc.RpcAuthVerifier;
 import org.dcache.oncrpc4j.rpc.RpcCall;
 import org.dcache.oncrpc4j.rpc.RpcException;
 import org.dcache.oncrpc4j.rpc.RpcRejectStatus;
+import org.dcache.oncrpc4j.rpc.jfr.GssProcessingEvent;
+import org.dcache.oncrpc4j.rpc.jfr.JfrSupport;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
@@ -82,6 +84,12 @@ public class GssProtocolFilter extends BaseFilter {
             return ctx.getInvokeAction();
         }
 
+        GssProcessingEvent event = null;
+        if (JfrSupport.isInitialized() && JfrSupport.isEnabled(GssProcessingEvent.class)) {
+            event = new GssProcessingEvent();
+            event.begin();
+        }
+
         boolean hasContext = false;
         try {
             RpcAuthGss authGss = (RpcAuthGss) call.getCredential();
@@ -122,6 +130,7 @@ public class GssProtocolFilter extends BaseFilter {
                     gssContext = _gssSessionManager.destroyContext(authGss.getHandle());
                     validateVerifier(authGss, gssContext);
                     gssContext.dispose();
+                    call.completeWithoutReply();
                     break;
                 case GssProc.RPCSEC_GSS_DATA:
                     gssContext =  _gssSessionManager.getEstablishedContext(authGss.getHandle());
@@ -148,6 +157,14 @@ public class GssProtocolFilter extends BaseFilter {
             _log.warn("GSS mechanism failed {}", e.getMessage());
         }
 
+        if (event != null && event.shouldCommit()) {
+            RpcAuthGss authGss = (RpcAuthGss) call.getCredential();
+            event.setCall(call);
+            event.gssProcedure = authGss.getProc();
+            event.gssService = authGss.getService();
+            event.commit();
+        }
+
         if(hasContext)
             return ctx.getInvokeAction();
 
@@ -48,8 +48,8 @@ public class RpcGssCall extends RpcCall {
     private final MessageProp _mop;
 
     public RpcGssCall(RpcCall call, GSSContext gssContext, MessageProp mop) {
-        super(call.getXid(), call.getProgram(), call.getProgramVersion(),
-                call.getProcedure(), call.getCredential(), call.getXdr(), call.getTransport());
+        // keep send listeners of the call, like the in-flight budget release
+        super(call);
         _gssContext = gssContext;
         _mop = mop;
     }
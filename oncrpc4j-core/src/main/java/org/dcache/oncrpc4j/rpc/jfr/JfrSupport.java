@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Helper to emit flight recorder events only when needed.
+ *
+ * <p>Loading of the first event class initializes the flight recorder subsystem,
+ * which takes a noticeable amount of time. As the flight recorder is initialized
+ * anyway, when a recording is started, event classes are not touched until then.
+ *
+ * @since 3.5
+ */
+public final class JfrSupport {
+
+    /**
+     * Event types by event class, looked up only once per class.
+     */
+    private static final ClassValue<EventType> EVENT_TYPES = new ClassValue<>() {
+        @Override
+        protected EventType computeValue(Class<?> type) {
+            return EventType.getEventType(type.asSubclass(Event.class));
+        }
+    };
+
+    private JfrSupport() {}
+
+    /**
+     * Check whether flight recorder is initialized, e.g. a recording was started.
+     * This method doesn't load any event class.
+     *
+     * @return true, if events can be emitted.
+     */
+    public static boolean isInitialized() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * Check whether the given event type is enabled in any running recording.
+     * Allows to avoid event allocation on hot paths, and when event is passed
+     * to another thread. As the class literal loads the event class, the call
+     * must be guarded by {@link #isInitialized()}.
+     *
+     * @param eventClass the event class to check.
+     * @return true, if events of this type are recorded.
+     */
+    public static boolean isEnabled(Class<? extends Event> eventClass) {
+        return EVENT_TYPES.get(eventClass).isEnabled();
+    }
+}
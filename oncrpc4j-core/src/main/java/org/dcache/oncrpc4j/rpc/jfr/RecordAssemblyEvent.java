@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a complete RPC record is received. For TCP, the duration covers
+ * the time between the arrival of the first and the last fragment of the record.
+ *
+ * @since 3.5
+ */
+@Name("org.dcache.oncrpc4j.RecordAssembly")
+@Label("RPC Record Assembly")
+@Category({"ONC RPC", "Transport"})
+@Description("Reception of a complete RPC record")
+public class RecordAssemblyEvent extends Event {
+
+    @Label("Peer")
+    public String peer;
+
+    @Label("Record Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Fragments")
+    public int fragments;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a reply to an RPC call is encoded.
+ *
+ * @since 3.5
+ */
+@Name("org.dcache.oncrpc4j.ReplyEncode")
+@Label("RPC Reply Encode")
+@Description("Encoding of RPC reply")
+public class ReplyEncodeEvent extends RpcCallEvent {
+
+    @Label("Accepted")
+    public boolean accepted;
+
+    /**
+     * Accept status for accepted replies, reject status otherwise.
+     */
+    @Label("Status")
+    public int status;
+}
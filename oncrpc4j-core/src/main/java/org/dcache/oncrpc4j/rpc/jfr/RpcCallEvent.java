@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+
+/**
+ * Base class for flight recorder events related to a single RPC call.
+ *
+ * @since 3.5
+ */
+@Category({"ONC RPC", "Call"})
+public abstract class RpcCallEvent extends Event {
+
+    @Label("XID")
+    public int xid;
+
+    @Label("Program")
+    public int program;
+
+    @Label("Version")
+    public int version;
+
+    @Label("Procedure")
+    public int procedure;
+
+    @Label("Peer")
+    public String peer;
+
+    /**
+     * Populate call specific fields from the given call.
+     * @param call the RPC call.
+     */
+    public void setCall(RpcCall call) {
+        xid = call.getXid();
+        program = call.getProgram();
+        version = call.getProgramVersion();
+        procedure = call.getProcedure();
+        peer = String.valueOf(call.getTransport().getRemoteSocketAddress());
+    }
+}
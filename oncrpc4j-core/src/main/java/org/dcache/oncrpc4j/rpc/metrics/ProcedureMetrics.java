@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.dcache.oncrpc4j.util.LogHistogram;
+
+/**
+ * Call counters and latency histograms of a single RPC procedure. All times
+ * are recorded in nanoseconds.
+ *
+ * @since 3.5
+ */
+public class ProcedureMetrics {
+
+    private final int _program;
+    private final int _version;
+    private final int _procedure;
+
+    private final LongAdder _calls = new LongAdder();
+    private final LongAdder _failures = new LongAdder();
+    private final LongAdder _inFlight = new LongAdder();
+
+    /**
+     * Time between a call is decoded and a worker thread picks it up.
+     */
+    private final LogHistogram _queueTime = new LogHistogram();
+
+    /**
+     * Time spent in the {@link org.dcache.oncrpc4j.rpc.RpcDispatchable}.
+     */
+    private final LogHistogram _executionTime = new LogHistogram();
+
+    /**
+     * Queue and execution time together.
+     */
+    private final LogHistogram _totalTime = new LogHistogram();
+
+    ProcedureMetrics(int program, int version, int procedure) {
+        _program = program;
+        _version = version;
+        _procedure = procedure;
+    }
+
+    /**
+     * Account a call which is accepted for execution.
+     */
+    void callQueued() {
+        _inFlight.increment();
+    }
+
+    /**
+     * Account a call which is processed.
+     *
+     * @param queueTime time in nanoseconds the call waited for execution.
+     * @param executionTime time in nanoseconds the call was executed.
+     * @param failed {@code true} if call processing failed.
+     */
+    void callCompleted(long queueTime, long executionTime, boolean failed) {
+        _inFlight.decrement();
+        _calls.increment();
+        if (failed) {
+            _failures.increment();
+        }
+        _queueTime.record(queueTime);
+        _executionTime.record(executionTime);
+        _totalTime.record(queueTime + executionTime);
+    }
+
+    public int getProgram() {
+        return _program;
+    }
+
+    public int getVersion() {
+        return _version;
+    }
+
+    /**
+     * Get procedure number or {@code -1} if metrics are shared by all procedures
+     * above {@link RpcMetrics#MAX_PROCEDURE}.
+     * @return procedure number.
+     */
+    public int getProcedure() {
+        return _procedure;
+    }
+
+    public long getCalls() {
+        return _calls.sum();
+    }
+
+    public long getFailures() {
+        return _failures.sum();
+    }
+
+    public long getInFlight() {
+        return _inFlight.sum();
+    }
+
+    public LogHistogram getQueueTime() {
+        return _queueTime;
+    }
+
+    public LogHistogram getExecutionTime() {
+        return _executionTime;
+    }
+
+    public LogHistogram getTotalTime() {
+        return _totalTime;
+    }
+}
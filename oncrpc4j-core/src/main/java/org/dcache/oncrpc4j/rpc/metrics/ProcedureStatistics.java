@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.metrics;
+
+import javax.management.ConstructorParameters;
+import org.dcache.oncrpc4j.util.LogHistogram;
+
+/**
+ * Point-in-time statistics of a single procedure as exposed by {@link RpcMetricsMXBean}.
+ * Latencies are in microseconds.
+ *
+ * @since 3.5
+ */
+public class ProcedureStatistics {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final int program;
+    private final int version;
+    private final int procedure;
+    private final long calls;
+    private final long failures;
+    private final long inFlight;
+    private final double queueTimeP50;
+    private final double queueTimeP99;
+    private final double queueTimeP999;
+    private final double executionTimeP50;
+    private final double executionTimeP99;
+    private final double executionTimeP999;
+    private final double totalTimeP50;
+    private final double totalTimeP99;
+    private final double totalTimeP999;
+
+    @ConstructorParameters({"program", "version", "procedure", "calls", "failures", "inFlight",
+        "queueTimeP50", "queueTimeP99", "queueTimeP999",
+        "executionTimeP50", "executionTimeP99", "executionTimeP999",
+        "totalTimeP50", "totalTimeP99", "totalTimeP999"})
+    public ProcedureStatistics(int program, int version, int procedure, long calls, long failures, long inFlight,
+            double queueTimeP50, double queueTimeP99, double queueTimeP999,
+            double executionTimeP50, double executionTimeP99, double executionTimeP999,
+            double totalTimeP50, double totalTimeP99, double totalTimeP999) {
+        this.program = program;
+        this.version = version;
+        this.procedure = procedure;
+        this.calls = calls;
+        this.failures = failures;
+        this.inFlight = inFlight;
+        this.queueTimeP50 = queueTimeP50;
+        this.queueTimeP99 = queueTimeP99;
+        this.queueTimeP999 = queueTimeP999;
+        this.executionTimeP50 = executionTimeP50;
+        this.executionTimeP99 = executionTimeP99;
+        this.executionTimeP999 = executionTimeP999;
+        this.totalTimeP50 = totalTimeP50;
+        this.totalTimeP99 = totalTimeP99;
+        this.totalTimeP999 = totalTimeP999;
+    }
+
+    static ProcedureStatistics of(ProcedureMetrics metrics) {
+        LogHistogram queueTime = metrics.getQueueTime();
+        LogHistogram executionTime = metrics.getExecutionTime();
+        LogHistogram totalTime = metrics.getTotalTime();
+        return new ProcedureStatistics(metrics.getProgram(), metrics.getVersion(), metrics.getProcedure(),
+                metrics.getCalls(), metrics.getFailures(), metrics.getInFlight(),
+                toMicros(queueTime, 50), toMicros(queueTime, 99), toMicros(queueTime, 99.9),
+                toMicros(executionTime, 50), toMicros(executionTime, 99), toMicros(executionTime, 99.9),
+                toMicros(totalTime, 50), toMicros(totalTime, 99), toMicros(totalTime, 99.9));
+    }
+
+    static double toMicros(LogHistogram histogram, double percentile) {
+        return histogram.percentile(percentile) / NANOS_PER_MICRO;
+    }
+
+    public int getProgram() {
+        return program;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getProcedure() {
+        return procedure;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    public double getQueueTimeP50() {
+        return queueTimeP50;
+    }
+
+    public double getQueueTimeP99() {
+        return queueTimeP99;
+    }
+
+    public double getQueueTimeP999() {
+        return queueTimeP999;
+    }
+
+    public double getExecutionTimeP50() {
+        return executionTimeP50;
+    }
+
+    public double getExecutionTimeP99() {
+        return executionTimeP99;
+    }
+
+    public double getExecutionTimeP999() {
+        return executionTimeP999;
+    }
+
+    public double getTotalTimeP50() {
+        return totalTimeP50;
+    }
+
+    public double getTotalTimeP99() {
+        return totalTimeP99;
+    }
+
+    public double getTotalTimeP999() {
+        return totalTimeP999;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.dcache.oncrpc4j.util.LogHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per program and procedure call statistics of an RPC service.
+ * <p>
+ * Metrics of a procedure are created on the first call and are looked up
+ * without locking or allocation afterwards.
+ *
+ * @since 3.5
+ */
+public class RpcMetrics implements RpcMetricsMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RpcMetrics.class);
+
+    /**
+     * The highest procedure number with individual metrics. Calls to procedures
+     * with a higher number are accounted together.
+     */
+    public static final int MAX_PROCEDURE = 1023;
+
+    private static final ProgramMetrics[] NO_PROGRAMS = new ProgramMetrics[0];
+
+    /**
+     * Copy-on-write array of programs. Typically, a service has a handful of
+     * programs, thus a linear search is cheaper than a hash lookup.
+     */
+    private volatile ProgramMetrics[] _programs = NO_PROGRAMS;
+
+    /**
+     * Queue and execution time of all calls.
+     */
+    private final LogHistogram _totalTime = new LogHistogram();
+    private final LongAdder _failures = new LongAdder();
+    private final LongAdder _inFlight = new LongAdder();
+
+    /**
+     * Processing stages, if the service runs in pipeline mode.
+     */
+    private final List<StageMetrics> _stages = new CopyOnWriteArrayList<>();
+
+    /**
+     * The name under which this object is registered with platform MBean server.
+     */
+    private ObjectName _objectName;
+
+    /**
+     * Get metrics of the given procedure.
+     *
+     * @param program program number.
+     * @param version program version.
+     * @param procedure procedure number.
+     * @return procedure metrics.
+     */
+    public ProcedureMetrics forProcedure(int program, int version, int procedure) {
+        return forProgram(program, version).forProcedure(procedure);
+    }
+
+    /**
+     * Account a call which is accepted for execution.
+     * @param metrics the procedure metrics.
+     */
+    public void callQueued(ProcedureMetrics metrics) {
+        _inFlight.increment();
+        metrics.callQueued();
+    }
+
+    /**
+     * Account a call which is processed.
+     *
+     * @param metrics the procedure metrics.
+     * @param queueTime time in nanoseconds the call waited for execution.
+     * @param executionTime time in nanoseconds the call was executed.
+     * @param failed {@code true} if call processing failed.
+     */
+    public void callCompleted(ProcedureMetrics metrics, long queueTime, long executionTime, boolean failed) {
+        _inFlight.decrement();
+        if (failed) {
+            _failures.increment();
+        }
+        _totalTime.record(queueTime + executionTime);
+        metrics.callCompleted(queueTime, executionTime, failed);
+    }
+
+    private ProgramMetrics forProgram(int program, int version) {
+        for (ProgramMetrics p : _programs) {
+            if (p.program == program && p.version == version) {
+                return p;
+            }
+        }
+
+        synchronized (this) {
+            ProgramMetrics[] programs = _programs;
+            for (ProgramMetrics p : programs) {
+                if (p.program == program && p.version == version) {
+                    return p;
+                }
+            }
+            ProgramMetrics p = new ProgramMetrics(program, version);
+            programs = Arrays.copyOf(programs, programs.length + 1);
+            programs[programs.length - 1] = p;
+            _programs = programs;
+            return p;
+        }
+    }
+
+    /**
+     * Get metrics of all procedures that have been called.
+     * @return list of procedure metrics.
+     */
+    public List<ProcedureMetrics> getProcedureMetrics() {
+        List<ProcedureMetrics> procedures = new ArrayList<>();
+        for (ProgramMetrics p : _programs) {
+            for (ProcedureMetrics m : p.procedures) {
+                if (m != null) {
+                    procedures.add(m);
+                }
+            }
+            if (p.overflow.getCalls() > 0 || p.overflow.getInFlight() > 0) {
+                procedures.add(p.overflow);
+            }
+        }
+        return procedures;
+    }
+
+    @Override
+    public long getCalls() {
+        return _totalTime.count();
+    }
+
+    @Override
+    public long getFailures() {
+        return _failures.sum();
+    }
+
+    @Override
+    public long getInFlight() {
+        return _inFlight.sum();
+    }
+
+    @Override
+    public double getLatencyP50() {
+        return ProcedureStatistics.toMicros(_totalTime, 50);
+    }
+
+    @Override
+    public double getLatencyP99() {
+        return ProcedureStatistics.toMicros(_totalTime, 99);
+    }
+
+    @Override
+    public double getLatencyP999() {
+        return ProcedureStatistics.toMicros(_totalTime, 99.9);
+    }
+
+    @Override
+    public List<ProcedureStatistics> getProcedures() {
+        List<ProcedureStatistics> statistics = new ArrayList<>();
+        for (ProcedureMetrics m : getProcedureMetrics()) {
+            statistics.add(ProcedureStatistics.of(m));
+        }
+        return statistics;
+    }
+
+    /**
+     * Add metrics of a processing stage.
+     * @param stage the stage metrics.
+     */
+    public void addStage(StageMetrics stage) {
+        _stages.add(stage);
+    }
+
+    /**
+     * Get metrics of processing stages.
+     * @return list of stage metrics.
+     */
+    public List<StageMetrics> getStageMetrics() {
+        return List.copyOf(_stages);
+    }
+
+    @Override
+    public List<StageStatistics> getStages() {
+        List<StageStatistics> statistics = new ArrayList<>();
+        for (StageMetrics m : _stages) {
+            statistics.add(StageStatistics.of(m));
+        }
+        return statistics;
+    }
+
+    /**
+     * Register this object with the platform MBean server. If another object
+     * is already registered with the same service name, then a numeric suffix
+     * is added to the name.
+     *
+     * @param serviceName the name of RPC service.
+     */
+    public synchronized void register(String serviceName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String name = ObjectName.quote(serviceName);
+        try {
+            for (int i = 2; ; i++) {
+                ObjectName objectName = new ObjectName("org.dcache.oncrpc4j:type=OncRpcSvc,name=" + name);
+                try {
+                    server.registerMBean(this, objectName);
+                    _objectName = objectName;
+                    return;
+                } catch (InstanceAlreadyExistsException e) {
+                    name = ObjectName.quote(serviceName + "-" + i);
+                }
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Failed to register RPC metrics of {}: {}", serviceName, e.getMessage());
+        }
+    }
+
+    /**
+     * Unregister this object from the platform MBean server, if registered.
+     */
+    public synchronized void unregister() {
+        if (_objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(_objectName);
+        } catch (JMException e) {
+            LOGGER.warn("Failed to unregister RPC metrics {}: {}", _objectName, e.getMessage());
+        }
+        _objectName = null;
+    }
+
+    /**
+     * Get the name under which this object is registered with the platform MBean
+     * server.
+     * @return object name or {@code null}, if not registered.
+     */
+    public synchronized ObjectName getObjectName() {
+        return _objectName;
+    }
+
+    private static class ProgramMetrics {
+
+        private final int program;
+        private final int version;
+
+        /**
+         * Copy-on-write array of procedures indexed by procedure number.
+         */
+        private volatile ProcedureMetrics[] procedures = new ProcedureMetrics[0];
+
+        /**
+         * Metrics of procedures above {@link #MAX_PROCEDURE}.
+         */
+        private final ProcedureMetrics overflow;
+
+        ProgramMetrics(int program, int version) {
+            this.program = program;
+            this.version = version;
+            this.overflow = new ProcedureMetrics(program, version, -1);
+        }
+
+        ProcedureMetrics forProcedure(int procedure) {
+            if (procedure < 0 || procedure > MAX_PROCEDURE) {
+                return overflow;
+            }
+
+            ProcedureMetrics[] p = procedures;
+            if (procedure < p.length && p[procedure] != null) {
+                return p[procedure];
+            }
+
+            synchronized (this) {
+                p = procedures;
+                if (procedure >= p.length) {
+                    p = Arrays.copyOf(p, procedure + 1);
+                } else if (p[procedure] == null) {
+                    p = p.clone();
+                } else {
+                    return p[procedure];
+                }
+                p[procedure] = new ProcedureMetrics(program, version, procedure);
+                procedures = p;
+                return p[procedure];
+            }
+        }
+    }
+}
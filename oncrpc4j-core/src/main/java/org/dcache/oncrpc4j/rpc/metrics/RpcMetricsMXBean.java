@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.metrics;
+
+import java.util.List;
+
+/**
+ * Management interface of {@link RpcMetrics}. Latencies are reported in
+ * microseconds.
+ *
+ * @since 3.5
+ */
+public interface RpcMetricsMXBean {
+
+    /**
+     * Get number of processed calls.
+     * @return number of processed calls.
+     */
+    long getCalls();
+
+    /**
+     * Get number of calls which failed with an error.
+     * @return number of failed calls.
+     */
+    long getFailures();
+
+    /**
+     * Get number of calls which are queued or being executed.
+     * @return number of calls in flight.
+     */
+    long getInFlight();
+
+    /**
+     * Get median time between arrival of a call and completion of its execution.
+     * @return the 50th percentile in microseconds.
+     */
+    double getLatencyP50();
+
+    /**
+     * Get 99th percentile of time between arrival of a call and completion of its execution.
+     * @return the 99th percentile in microseconds.
+     */
+    double getLatencyP99();
+
+    /**
+     * Get 99.9th percentile of time between arrival of a call and completion of its execution.
+     * @return the 99.9th percentile in microseconds.
+     */
+    double getLatencyP999();
+
+    /**
+     * Get statistics of all procedures that have been called.
+     * @return list of per procedure statistics.
+     */
+    List<ProcedureStatistics> getProcedures();
+
+    /**
+     * Get statistics of processing stages, if the service runs in pipeline mode.
+     * @return list of per stage statistics.
+     * @since 3.5
+     */
+    List<StageStatistics> getStages();
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.dcache.oncrpc4j.util.LogHistogram;
+
+/**
+ * Queue and service time statistics of a single processing stage. All times
+ * are recorded in nanoseconds.
+ *
+ * @since 3.5
+ */
+public class StageMetrics {
+
+    private final String _name;
+    private final int _threads;
+    private final int _queueSize;
+
+    /**
+     * Number of tasks waiting in the queue.
+     */
+    private final AtomicInteger _queueDepth = new AtomicInteger();
+
+    /**
+     * Number of tasks executed by the submitting thread, as the queue was full.
+     */
+    private final LongAdder _overflows = new LongAdder();
+
+    /**
+     * Time between a task is queued and a stage thread picks it up.
+     */
+    private final LogHistogram _queueTime = new LogHistogram();
+
+    /**
+     * Time spent executing a task.
+     */
+    private final LogHistogram _serviceTime = new LogHistogram();
+
+    /**
+     * Create metrics of a stage.
+     *
+     * @param name the name of the stage.
+     * @param threads number of threads of the stage.
+     * @param queueSize capacity of the stage queue.
+     */
+    public StageMetrics(String name, int threads, int queueSize) {
+        _name = name;
+        _threads = threads;
+        _queueSize = queueSize;
+    }
+
+    /**
+     * Account a task, which is added to the queue.
+     */
+    public void taskQueued() {
+        _queueDepth.incrementAndGet();
+    }
+
+    /**
+     * Account a task, which is taken from the queue.
+     *
+     * @param queueTime time in nanoseconds the task waited in the queue.
+     */
+    public void taskStarted(long queueTime) {
+        _queueDepth.decrementAndGet();
+        _queueTime.record(queueTime);
+    }
+
+    /**
+     * Account a task, which is executed by the submitting thread, as the queue is full.
+     */
+    public void taskOverflowed() {
+        _overflows.increment();
+    }
+
+    /**
+     * Account a task, which is executed.
+     *
+     * @param serviceTime time in nanoseconds the task was executed.
+     */
+    public void taskCompleted(long serviceTime) {
+        _serviceTime.record(serviceTime);
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    public int getThreads() {
+        return _threads;
+    }
+
+    public int getQueueSize() {
+        return _queueSize;
+    }
+
+    public int getQueueDepth() {
+        return _queueDepth.get();
+    }
+
+    public long getOverflows() {
+        return _overflows.sum();
+    }
+
+    /**
+     * Get number of executed tasks, including overflows.
+     * @return number of tasks.
+     */
+    public long getTasks() {
+        return _serviceTime.count();
+    }
+
+    public LogHistogram getQueueTime() {
+        return _queueTime;
+    }
+
+    public LogHistogram getServiceTime() {
+        return _serviceTime;
+    }
+}
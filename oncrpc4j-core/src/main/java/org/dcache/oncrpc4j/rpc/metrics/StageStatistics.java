@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.rpc.metrics;
+
+import javax.management.ConstructorParameters;
+import org.dcache.oncrpc4j.util.LogHistogram;
+
+import static org.dcache.oncrpc4j.rpc.metrics.ProcedureStatistics.toMicros;
+
+/**
+ * Point-in-time statistics of a single processing stage as exposed by {@link RpcMetricsMXBean}.
+ * Latencies are in microseconds.
+ *
+ * @since 3.5
+ */
+public class StageStatistics {
+
+    private final String name;
+    private final int threads;
+    private final int queueSize;
+    private final int queueDepth;
+    private final long tasks;
+    private final long overflows;
+    private final double queueTimeP50;
+    private final double queueTimeP99;
+    private final double serviceTimeP50;
+    private final double serviceTimeP99;
+
+    @ConstructorParameters({"name", "threads", "queueSize", "queueDepth", "tasks", "overflows",
+        "queueTimeP50", "queueTimeP99", "serviceTimeP50", "serviceTimeP99"})
+    public StageStatistics(String name, int threads, int queueSize, int queueDepth, long tasks, long overflows,
+            double queueTimeP50, double queueTimeP99, double serviceTimeP50, double serviceTimeP99) {
+        this.name = name;
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.queueDepth = queueDepth;
+        this.tasks = tasks;
+        this.overflows = overflows;
+        this.queueTimeP50 = queueTimeP50;
+        this.queueTimeP99 = queueTimeP99;
+        this.serviceTimeP50 = serviceTimeP50;
+        this.serviceTimeP99 = serviceTimeP99;
+    }
+
+    static StageStatistics of(StageMetrics metrics) {
+        LogHistogram queueTime = metrics.getQueueTime();
+        LogHistogram serviceTime = metrics.getServiceTime();
+        return new StageStatistics(metrics.getName(), metrics.getThreads(), metrics.getQueueSize(),
+                metrics.getQueueDepth(), metrics.getTasks(), metrics.getOverflows(),
+                toMicros(queueTime, 50), toMicros(queueTime, 99),
+                toMicros(serviceTime, 50), toMicros(serviceTime, 99));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getTasks() {
+        return tasks;
+    }
+
+    public long getOverflows() {
+        return overflows;
+    }
+
+    public double getQueueTimeP50() {
+        return queueTimeP50;
+    }
+
+    public double getQueueTimeP99() {
+        return queueTimeP99;
+    }
+
+    public double getServiceTimeP50() {
+        return serviceTimeP50;
+    }
+
+    public double getServiceTimeP99() {
+        return serviceTimeP99;
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+
+/**
+ * A {@link Timer} based on hashed timing wheel, as described by George Varghese
+ * and Tony Lauck in 'Hashed and Hierarchical Timing Wheels: data structures
+ * to efficiently implement a timer facility'.
+ *
+ * <p>Registration and cancellation of a task costs O(1) independent of number of
+ * pending tasks. The price is the precision: tasks expire on tick boundary, e.g.
+ * up to one tick duration later than requested. This makes the timer a good
+ * fit for large number of mostly cancelled timeouts, like RPC requests waiting
+ * for reply.
+ *
+ * <p>All tasks are executed by a single background thread. Thus the tasks must
+ * be short and non-blocking.
+ *
+ * <p>Like {@link java.util.concurrent.ScheduledThreadPoolExecutor#shutdown()},
+ * {@link #shutdown()} rejects new tasks, but already scheduled tasks are still
+ * executed when they expire, unless cancelled. The background thread exits
+ * once no task is pending.
+ *
+ * @since 3.5
+ */
+public class HashedWheelTimer implements Timer {
+
+    private final static Logger _log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    /**
+     * Default duration of a single tick in milliseconds.
+     */
+    public static final long DEFAULT_TICK_DURATION = 10;
+
+    /**
+     * Default number of buckets in the wheel.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_SHUTDOWN = 2;
+
+    /**
+     * Timer state: {@link #STATE_INIT}, {@link #STATE_STARTED} or {@link #STATE_SHUTDOWN}.
+     */
+    private final AtomicInteger _state = new AtomicInteger(STATE_INIT);
+
+    /**
+     * Duration of a single tick in nanoseconds.
+     */
+    private final long _tickDuration;
+
+    /**
+     * The wheel. Accessed by worker thread only.
+     */
+    private final Bucket[] _wheel;
+
+    /**
+     * Mask to translate tick into bucket index.
+     */
+    private final int _mask;
+
+    /**
+     * Newly scheduled timeouts, which are not placed into a bucket yet.
+     */
+    private final Queue<WheelTimeout> _newTimeouts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Cancelled timeouts, which must be removed from they buckets.
+     */
+    private final Queue<WheelTimeout> _cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of pending timeouts.
+     */
+    private final AtomicLong _pending = new AtomicLong();
+
+    private final Thread _workerThread;
+
+    /**
+     * Time in nanoseconds when worker thread has been started, or zero, if not
+     * started yet. All deadlines are relative to this value.
+     */
+    private volatile long _startTime;
+
+    /**
+     * Released when {@link #_startTime} is initialized by the worker thread.
+     */
+    private final CountDownLatch _startTimeInitialized = new CountDownLatch(1);
+
+    /**
+     * Create a new timer with default tick duration and wheel size.
+     *
+     * @param name name of the timer used for worker thread name.
+     */
+    public HashedWheelTimer(String name) {
+        this(name, DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Create a new timer.
+     *
+     * @param name name of the timer used for worker thread name.
+     * @param tickDuration the duration of a single tick.
+     * @param unit the time unit of the tickDuration.
+     * @param wheelSize number of buckets in the wheel. Will be rounded up to the power of two.
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        checkArgument(tickDuration > 0, "tick duration must be positive");
+        checkArgument(wheelSize > 0 && wheelSize <= 1 << 30, "invalid wheel size");
+
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (size == 0) {
+            size = 1;
+        }
+        _wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            _wheel[i] = new Bucket();
+        }
+        _mask = size - 1;
+        _tickDuration = Math.max(unit.toNanos(tickDuration), TimeUnit.MILLISECONDS.toNanos(1));
+
+        _workerThread = new Thread(this::run, "timeout thread for " + name);
+        _workerThread.setDaemon(true);
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - _startTime;
+        if (delay > 0 && deadline < 0) {
+            // overflow on very long delays
+            deadline = Long.MAX_VALUE;
+        }
+        WheelTimeout timeout = new WheelTimeout(task, deadline);
+        _pending.incrementAndGet();
+        _newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public long pendingTimeouts() {
+        return _pending.get();
+    }
+
+    @Override
+    public void shutdown() {
+        if (_state.getAndSet(STATE_SHUTDOWN) == STATE_STARTED) {
+            // wake up the worker, which exits if there are no pending timeouts
+            _workerThread.interrupt();
+        }
+    }
+
+    private void start() {
+        switch (_state.get()) {
+            case STATE_INIT:
+                if (_state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                    _workerThread.start();
+                }
+                // the winner of the race might not have started the worker yet
+                start();
+                return;
+            case STATE_STARTED:
+                if (_startTime == 0) {
+                    // deadlines are relative to the start time of the worker thread
+                    awaitUninterruptibly(_startTimeInitialized);
+                }
+                return;
+            default:
+                throw new RejectedExecutionException("Timer is stopped");
+        }
+    }
+
+    private void run() {
+        long now = System.nanoTime();
+        // zero is used as 'not started' marker
+        _startTime = now == 0 ? 1 : now;
+        _startTimeInitialized.countDown();
+
+        long tick = 0;
+        // after shutdown, keep running until already scheduled timeouts are done
+        while (_state.get() == STATE_STARTED || _pending.get() > 0) {
+            if (!waitForNextTick(tick)) {
+                continue;
+            }
+            removeCancelled();
+            transferTimeoutsToBuckets(tick);
+            _wheel[(int) (tick & _mask)].expireTimeouts();
+            tick++;
+        }
+        _newTimeouts.clear();
+        _cancelledTimeouts.clear();
+    }
+
+    /**
+     * Sleep until the end of the given tick.
+     * @return false, if sleep was interrupted.
+     */
+    private boolean waitForNextTick(long tick) {
+        long deadline = _tickDuration * (tick + 1);
+        for (;;) {
+            long sleepTime = deadline - (System.nanoTime() - _startTime);
+            if (sleepTime <= 0) {
+                return true;
+            }
+            LockSupport.parkNanos(this, sleepTime);
+            if (Thread.interrupted()) {
+                return false;
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        WheelTimeout timeout;
+        while ((timeout = _cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferTimeoutsToBuckets(long tick) {
+        WheelTimeout timeout;
+        while ((timeout = _newTimeouts.poll()) != null) {
+            if (timeout.state.get() == WheelTimeout.ST_CANCELLED) {
+                continue;
+            }
+
+            long calculated = timeout.deadline / _tickDuration;
+            timeout.remainingRounds = (calculated - tick) / _wheel.length;
+
+            // schedule expired timeouts into current tick
+            long ticks = Math.max(calculated, tick);
+            _wheel[(int) (ticks & _mask)].add(timeout);
+        }
+    }
+
+    private class WheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+        private final Runnable task;
+        private final long deadline;
+
+        /*
+         * The fields below are accessed by worker thread only.
+         */
+        private long remainingRounds;
+        private Bucket bucket;
+        private WheelTimeout next;
+        private WheelTimeout prev;
+
+        WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            _pending.decrementAndGet();
+            _cancelledTimeouts.add(this);
+            return true;
+        }
+
+        void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            _pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                _log.warn("Timeout task failed: {}", e.toString(), e);
+            }
+        }
+    }
+
+    /**
+     * A doubly-linked list of timeouts. Accessed by worker thread only.
+     */
+    private static class Bucket {
+
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts() {
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.state.get() == WheelTimeout.ST_CANCELLED) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(WheelTimeout timeout) {
+            if (timeout.bucket != this) {
+                // already removed
+                return;
+            }
+            WheelTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
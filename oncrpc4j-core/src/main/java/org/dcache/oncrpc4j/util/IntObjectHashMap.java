@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A map with primitive {@code int} keys. The map uses open addressing with
+ * linear probing, thus, unlike {@code HashMap<Integer, V>}, keys are not boxed
+ * and no entry objects are allocated on insert.
+ *
+ * <p>The {@code null} values are not supported. This class is not thread-safe.
+ *
+ * @param <V> the type of mapped values
+ * @since 3.5
+ */
+public class IntObjectHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Maximal fill factor before the table is resized.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] _keys;
+    private V[] _values;
+    private int _mask;
+    private int _size;
+    private int _resizeThreshold;
+
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new map able to hold {@code expectedSize} entries without resizing.
+     * @param expectedSize number of expected entries.
+     */
+    public IntObjectHashMap(int expectedSize) {
+        checkArgument(expectedSize >= 0, "negative size");
+        allocate(tableSizeFor((int) Math.min(Integer.MAX_VALUE / 2, expectedSize / LOAD_FACTOR + 1)));
+    }
+
+    /**
+     * Get value associated with a key.
+     * @param key the key.
+     * @return the value or {@code null}, if there is no mapping for the key.
+     */
+    public V get(int key) {
+        int i = indexOf(key);
+        return i < 0 ? null : _values[i];
+    }
+
+    /**
+     * Associate the value with the key.
+     * @param key the key.
+     * @param value the value.
+     * @return previous value associated with the key or {@code null}.
+     */
+    public V put(int key, V value) {
+        requireNonNull(value, "value is NULL");
+        int i = hash(key) & _mask;
+        while (_values[i] != null) {
+            if (_keys[i] == key) {
+                V old = _values[i];
+                _values[i] = value;
+                return old;
+            }
+            i = (i + 1) & _mask;
+        }
+
+        _keys[i] = key;
+        _values[i] = value;
+        if (++_size > _resizeThreshold) {
+            rehash(_values.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Remove mapping for the key.
+     * @param key the key.
+     * @return the value associated with the key or {@code null}.
+     */
+    public V remove(int key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+
+        V old = _values[i];
+        _size--;
+
+        /*
+         * Shift following entries of the same probe sequence backward, so
+         * no tombstones are needed.
+         */
+        int hole = i;
+        int next = (hole + 1) & _mask;
+        while (_values[next] != null) {
+            int home = hash(_keys[next]) & _mask;
+            // move entry if its home slot is not between the hole and the current slot (cyclic)
+            if (((next - home) & _mask) >= ((next - hole) & _mask)) {
+                _keys[hole] = _keys[next];
+                _values[hole] = _values[next];
+                hole = next;
+            }
+            next = (next + 1) & _mask;
+        }
+        _values[hole] = null;
+        return old;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Remove all mappings from this map.
+     */
+    public void clear() {
+        Arrays.fill(_values, null);
+        _size = 0;
+    }
+
+    /**
+     * Perform the given action for each value of this map.
+     * @param action the action to perform.
+     */
+    public void forEachValue(Consumer<? super V> action) {
+        for (V v : _values) {
+            if (v != null) {
+                action.accept(v);
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of keys stored in this map.
+     * @return array of keys.
+     */
+    public int[] keys() {
+        int[] keys = new int[_size];
+        int n = 0;
+        for (int i = 0; i < _values.length; i++) {
+            if (_values[i] != null) {
+                keys[n++] = _keys[i];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Get a snapshot of values stored in this map.
+     * @return list of values.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(_size);
+        forEachValue(values::add);
+        return values;
+    }
+
+    private int indexOf(int key) {
+        int i = hash(key) & _mask;
+        while (_values[i] != null) {
+            if (_keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & _mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        _keys = new int[capacity];
+        _values = (V[]) new Object[capacity];
+        _mask = capacity - 1;
+        _resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = _keys;
+        V[] oldValues = _values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            V v = oldValues[i];
+            if (v != null) {
+                int j = hash(oldKeys[i]) & _mask;
+                while (_values[j] != null) {
+                    j = (j + 1) & _mask;
+                }
+                _keys[j] = oldKeys[i];
+                _values[j] = v;
+            }
+        }
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = Integer.highestOneBit(Math.max(n, 2) - 1) << 1;
+        return Math.max(size, 2);
+    }
+
+    /**
+     * Spread the bits of sequential keys, like xids, across the table.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values with logarithmic
+ * buckets. Each power of two range is split into {@value #SUB_BUCKETS} equal
+ * sub-buckets, thus the relative error of a reported value is below 12.5% for
+ * the whole {@code long} range, while the histogram has a fixed size of less
+ * than 4KB.
+ *
+ * <p>Recording a value does not allocate any objects and is safe to use from
+ * multiple threads concurrently. The statistics are not an atomic snapshot,
+ * which is good enough for monitoring.
+ *
+ * @since 3.5
+ */
+public class LogHistogram {
+
+    /**
+     * Number of bits used to split a power of two range.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Number of sub-buckets per power of two range.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets. Values below {@link #SUB_BUCKETS} have a bucket
+     * per value, all other values are grouped by the position of the highest bit.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder _count = new LongAdder();
+    private final LongAdder _sum = new LongAdder();
+    private final AtomicLong _max = new AtomicLong();
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     * @param value the value to record.
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        _buckets.incrementAndGet(bucketOf(v));
+        _count.increment();
+        _sum.add(v);
+        if (v > _max.get()) {
+            _max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * Get number of recorded values.
+     * @return number of recorded values.
+     */
+    public long count() {
+        return _count.sum();
+    }
+
+    /**
+     * Get the largest recorded value.
+     * @return largest recorded value or zero, if histogram is empty.
+     */
+    public long max() {
+        return _max.get();
+    }
+
+    /**
+     * Get the arithmetic mean of recorded values.
+     * @return the mean or zero, if histogram is empty.
+     */
+    public double mean() {
+        long count = _count.sum();
+        return count == 0 ? 0 : (double) _sum.sum() / count;
+    }
+
+    /**
+     * Get the value at given percentile. The returned value is the upper bound
+     * of the bucket the percentile falls into, but never bigger than the largest
+     * recorded value.
+     *
+     * @param percentile the percentile in range (0, 100].
+     * @return the value at the percentile or zero, if histogram is empty.
+     */
+    public long percentile(double percentile) {
+        checkArgument(percentile > 0 && percentile <= 100, "percentile must be in range (0, 100]");
+
+        long[] buckets = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = _buckets.get(i);
+            total += buckets[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBoundOf(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBoundOf(bucket + 1) - 1;
+    }
+}
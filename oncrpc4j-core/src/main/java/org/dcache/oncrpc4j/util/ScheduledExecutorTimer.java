@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Timer} backed by a single threaded {@link ScheduledThreadPoolExecutor}.
+ * Registration and cancellation of a task costs O(log n), where n is the number
+ * of pending tasks.
+ *
+ * @since 3.5
+ */
+public class ScheduledExecutorTimer implements Timer {
+
+    private final ScheduledThreadPoolExecutor executorService;
+
+    public ScheduledExecutorTimer(String name) {
+        executorService = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "timeout thread #" + counter.incrementAndGet() + " for " + name);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executorService.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        ScheduledFuture<?> future = executorService.schedule(task, delay, unit);
+        return () -> future.cancel(false);
+    }
+
+    @Override
+    public long pendingTimeouts() {
+        return executorService.getQueue().size();
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdown();
+    }
+}
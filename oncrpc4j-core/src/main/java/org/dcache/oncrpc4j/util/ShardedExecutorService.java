@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.nio.SelectorRunner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link ExecutorService} that consists of multiple independent worker groups
+ * (shards), each with its own task queue. A {@link SelectorRunner} is bound to a
+ * shard when it submits the first task with {@link #execute(Runnable, SelectorRunner)},
+ * and all subsequent tasks of that selector are executed by the same worker group.
+ * Selectors get distinct shards, as long as there are enough of them.
+ * <p>
+ * As RPC calls are submitted on behalf of the connection's selector, which has read
+ * them, each selector gets its own worker group. Thus, there is no single queue
+ * contended by all selectors, and a call stays on the same set of threads from read
+ * to reply. The drawback is that a busy shard can't use idle workers of other shards.
+ * <p>
+ * Tasks submitted with {@link #execute(Runnable)} by a selector thread stay in its
+ * shard; tasks of other threads are spread over all shards.
+ *
+ * @since 3.5
+ */
+public class ShardedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService[] _shards;
+
+    /**
+     * Selectors, which have a shard assigned. The selector at index {@code i}
+     * is bound to the shard {@code i % _shards.length}.
+     */
+    private volatile SelectorRunner[] _selectors = new SelectorRunner[0];
+
+    /**
+     * Next shard for tasks of threads, which are not selector threads.
+     */
+    private final AtomicInteger _nextShard = new AtomicInteger();
+
+    /**
+     * Create new executor service.
+     *
+     * @param name the name prefix of created threads.
+     * @param shards the number of worker groups.
+     * @param threadsPerShard the number of threads in each worker group.
+     */
+    public ShardedExecutorService(String name, int shards, int threadsPerShard) {
+        checkArgument(shards > 0, "number of shards must be positive");
+        checkArgument(threadsPerShard > 0, "number of threads must be positive");
+
+        _shards = new ExecutorService[shards];
+        for (int i = 0; i < shards; i++) {
+            _shards[i] = Executors.newFixedThreadPool(threadsPerShard, new ThreadFactoryBuilder()
+                    .setNameFormat(name + " (" + i + "-%d)")
+                    .build());
+        }
+    }
+
+    /**
+     * Get the number of worker groups.
+     *
+     * @return number of shards.
+     */
+    public int getShardCount() {
+        return _shards.length;
+    }
+
+    /**
+     * Execute the given task by the worker group of the given selector.
+     *
+     * @param command the task to execute.
+     * @param selector the selector on behalf of which the task is executed.
+     */
+    public void execute(Runnable command, SelectorRunner selector) {
+        SelectorRunner[] selectors = _selectors;
+        for (int i = 0; i < selectors.length; i++) {
+            if (selectors[i] == selector) {
+                _shards[i % _shards.length].execute(command);
+                return;
+            }
+        }
+        _shards[bind(selector) % _shards.length].execute(command);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Thread current = Thread.currentThread();
+        SelectorRunner[] selectors = _selectors;
+        for (int i = 0; i < selectors.length; i++) {
+            if (selectors[i].getRunnerThread() == current) {
+                _shards[i % _shards.length].execute(command);
+                return;
+            }
+        }
+        _shards[Math.floorMod(_nextShard.getAndIncrement(), _shards.length)].execute(command);
+    }
+
+    /**
+     * Bind the selector to the next unused shard.
+     *
+     * @return the index of the selector.
+     */
+    private synchronized int bind(SelectorRunner selector) {
+        SelectorRunner[] selectors = _selectors;
+        for (int i = 0; i < selectors.length; i++) {
+            if (selectors[i] == selector) {
+                return i;
+            }
+        }
+        SelectorRunner[] newSelectors = Arrays.copyOf(selectors, selectors.length + 1);
+        newSelectors[selectors.length] = selector;
+        _selectors = newSelectors;
+        return selectors.length;
+    }
+
+    @Override
+    public void shutdown() {
+        for (ExecutorService shard : _shards) {
+            shard.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (ExecutorService shard : _shards) {
+            tasks.addAll(shard.shutdownNow());
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (ExecutorService shard : _shards) {
+            if (!shard.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (ExecutorService shard : _shards) {
+            if (!shard.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExecutorService shard : _shards) {
+            if (!shard.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
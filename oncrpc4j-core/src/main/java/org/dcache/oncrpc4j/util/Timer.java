@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules one-shot tasks to be executed after a given delay. Used to expire
+ * RPC requests for which no reply has been received in time.
+ *
+ * @since 3.5
+ */
+public interface Timer {
+
+    /**
+     * Schedule the given task for one-time execution after the given delay.
+     *
+     * @param task the task to execute.
+     * @param delay the time from now to delay execution.
+     * @param unit the time unit of the delay parameter.
+     * @return a handle which can be used to cancel the task.
+     * @throws java.util.concurrent.RejectedExecutionException if timer is already stopped.
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * Get number of scheduled, but not yet expired or cancelled, tasks.
+     *
+     * @return number of pending tasks.
+     */
+    long pendingTimeouts();
+
+    /**
+     * Stop this timer. No new tasks can be scheduled afterwards. Already
+     * scheduled tasks are still executed when they expire, unless cancelled.
+     */
+    void shutdown();
+
+    /**
+     * A handle associated with a task scheduled by {@link Timer}.
+     */
+    interface Timeout {
+
+        /**
+         * Cancel the task associated with this handle. If task is already
+         * executed or cancelled, then this method has no effect.
+         *
+         * @return {@code true} if and only if the task was cancelled by this call.
+         */
+        boolean cancel();
+    }
+}
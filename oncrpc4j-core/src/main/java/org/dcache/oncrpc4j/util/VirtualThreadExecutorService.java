@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link ExecutorService} that runs each task in a new virtual thread.
+ * Optionally, the number of concurrently running tasks can be limited. In that
+ * case, excess tasks are parked in their virtual threads until a permit becomes
+ * available, thus the submitting thread never blocks. As the number of parked
+ * tasks is not limited, the submitter has to bound the backlog itself.
+ *
+ * @since 3.5
+ */
+public class VirtualThreadExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService _executor;
+
+    /**
+     * Limits the number of concurrently running tasks or {@code null}, if unlimited.
+     */
+    private final Semaphore _permits;
+
+    /**
+     * Create new executor service.
+     *
+     * @param name the name prefix of created threads.
+     * @param maxConcurrency max number of concurrently running tasks. Zero means unlimited.
+     */
+    public VirtualThreadExecutorService(String name, int maxConcurrency) {
+        checkArgument(maxConcurrency >= 0, "max concurrency must be non-negative");
+        _executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + " (v", 0).factory());
+        _permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (_permits == null) {
+            _executor.execute(command);
+            return;
+        }
+
+        _executor.execute(() -> {
+            _permits.acquireUninterruptibly();
+            try {
+                command.run();
+            } finally {
+                _permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        _executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return _executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return _executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return _executor.awaitTermination(timeout, unit);
+    }
+}
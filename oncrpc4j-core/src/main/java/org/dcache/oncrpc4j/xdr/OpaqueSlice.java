@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferArray;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Opaque data decoded without copying, e.g. a read-only view of the received
+ * message. If the message is stored in multiple buffers, for instance, when
+ * it spans multiple TCP fragments, the data is represented by multiple
+ * {@link ByteBuffer}s.
+ *
+ * <p>The slice shares the memory of the receive buffer. As pooled buffers
+ * are not returned into the pool while shared, the slice holds the receive
+ * buffer until {@link #release()} is called. The views must not be used after
+ * that. A slice can be passed to another owner with {@link #retain()}.
+ *
+ * @see Xdr#xdrDecodeOpaqueSlice()
+ * @since 3.5
+ */
+public final class OpaqueSlice implements AutoCloseable {
+
+    private static final ByteBuffer[] EMPTY = new ByteBuffer[0];
+
+    /**
+     * The part of the receive buffer which holds the data.
+     */
+    private final Buffer _buffer;
+
+    /**
+     * Read-only views of the data.
+     */
+    private final ByteBuffer[] _buffers;
+
+    private final int _length;
+
+    private final AtomicInteger _refCount = new AtomicInteger(1);
+
+    private OpaqueSlice(Buffer buffer, ByteBuffer[] buffers, int length) {
+        _buffer = buffer;
+        _buffers = buffers;
+        _length = length;
+    }
+
+    /**
+     * Create a new slice of {@code length} bytes of the given buffer starting
+     * at {@code position}.
+     */
+    static OpaqueSlice of(Buffer buffer, int position, int length) {
+        if (length == 0) {
+            return new OpaqueSlice(null, EMPTY, 0);
+        }
+
+        Buffer slice = buffer.slice(position, position + length);
+        slice.allowBufferDispose(true);
+
+        ByteBufferArray array = slice.toByteBufferArray();
+        try {
+            ByteBuffer[] views = new ByteBuffer[array.size()];
+            ByteBuffer[] buffers = array.getArray();
+            for (int i = 0; i < views.length; i++) {
+                views[i] = buffers[i].asReadOnlyBuffer();
+            }
+            return new OpaqueSlice(slice, views, length);
+        } finally {
+            array.restore();
+            array.recycle();
+        }
+    }
+
+    /**
+     * Get the number of bytes in this slice.
+     * @return the number of bytes in this slice.
+     */
+    public int length() {
+        return _length;
+    }
+
+    /**
+     * Get read-only views of the data. Each call returns new views, thus the
+     * caller may modify their positions and limits.
+     *
+     * @return views of the data in order.
+     * @throws IllegalStateException if slice is already released.
+     */
+    public ByteBuffer[] buffers() {
+        checkState(_refCount.get() > 0, "Slice is released");
+        ByteBuffer[] buffers = new ByteBuffer[_buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = _buffers[i].duplicate();
+        }
+        return buffers;
+    }
+
+    /**
+     * Copy the data into a new byte array.
+     *
+     * @return the data.
+     * @throws IllegalStateException if slice is already released.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[_length];
+        int offset = 0;
+        for (ByteBuffer b : buffers()) {
+            int n = b.remaining();
+            b.get(bytes, offset, n);
+            offset += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Increment the reference count of this slice.
+     *
+     * @return this slice.
+     * @throws IllegalStateException if slice is already released.
+     */
+    public OpaqueSlice retain() {
+        int count;
+        do {
+            count = _refCount.get();
+            checkState(count > 0, "Slice is released");
+        } while (!_refCount.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * Decrement the reference count of this slice. When it reaches zero, the
+     * receive buffer is released.
+     *
+     * @return true, if the receive buffer is released.
+     * @throws IllegalStateException if slice is already released.
+     */
+    public boolean release() {
+        int count;
+        do {
+            count = _refCount.get();
+            checkState(count > 0, "Slice is released");
+        } while (!_refCount.compareAndSet(count, count - 1));
+
+        if (count == 1 && _buffer != null) {
+            _buffer.tryDispose();
+        }
+        return count == 1;
+    }
+
+    /**
+     * Same as {@link #release()}.
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
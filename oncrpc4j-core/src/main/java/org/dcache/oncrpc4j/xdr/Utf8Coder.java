@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+/**
+ * Helpers used by {@link Xdr} and {@link XdrEncoder} to encode short strings
+ * in UTF-8 straight into the backing array of a heap buffer.
+ *
+ * <p>Most strings on the wire, like file names, host and principal names, are
+ * short. Such strings are transcoded char by char without any intermediate
+ * array. Longer strings, as well as strings written into direct or composite
+ * buffers, are better served by {@code String.getBytes}, which checks and
+ * copies the string's internal array with vectorized loops, followed by a
+ * bulk put, even though it allocates a new array.
+ *
+ * <p>The output is identical to {@code String.getBytes(StandardCharsets.UTF_8)},
+ * including {@code '?'} for unpaired surrogates.
+ */
+final class Utf8Coder {
+
+    /**
+     * Maximal length of a string, which is transcoded char by char. Above
+     * that, {@code String.getBytes} is faster.
+     */
+    static final int MAX_TRANSCODED_LENGTH = 16;
+
+    /**
+     * Maximal number of bytes needed to encode a single char. A surrogate pair
+     * takes four bytes, thus two per char.
+     */
+    static final int MAX_BYTES_PER_CHAR = 3;
+
+    private Utf8Coder() {}
+
+    /**
+     * Encode the given string into the array. The array must have space for
+     * {@link #MAX_BYTES_PER_CHAR} bytes per char.
+     *
+     * @param s the string to encode.
+     * @param dst the destination array.
+     * @param offset offset of the first byte to write.
+     * @return number of bytes written.
+     */
+    static int encode(String s, byte[] dst, int offset) {
+        int n = s.length();
+        int dp = offset;
+        int i = 0;
+        // a tight loop over the leading ASCII chars is unrolled by the JIT
+        for (char c; i < n && (c = s.charAt(i)) < 0x80; i++) {
+            dst[dp++] = (byte) c;
+        }
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dst[dp++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[dp++] = (byte) (0xc0 | (c >> 6));
+                dst[dp++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                int uc = codePoint(s, i, c);
+                if (uc < 0) {
+                    dst[dp++] = '?';
+                } else {
+                    dst[dp++] = (byte) (0xf0 | (uc >> 18));
+                    dst[dp++] = (byte) (0x80 | ((uc >> 12) & 0x3f));
+                    dst[dp++] = (byte) (0x80 | ((uc >> 6) & 0x3f));
+                    dst[dp++] = (byte) (0x80 | (uc & 0x3f));
+                    i++;
+                }
+            } else {
+                dst[dp++] = (byte) (0xe0 | (c >> 12));
+                dst[dp++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dst[dp++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return dp - offset;
+    }
+
+    /**
+     * Get the code point of a surrogate pair, which starts at the given index,
+     * or -1, if the surrogate is unpaired.
+     */
+    private static int codePoint(String s, int i, char c) {
+        if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+            char c2 = s.charAt(i + 1);
+            if (Character.isLowSurrogate(c2)) {
+                return Character.toCodePoint(c, c2);
+            }
+        }
+        return -1;
+    }
+}
@@ -21,20 +21,34 @@ package org.dcache.oncrpc4j.xdr;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
 import org.dcache.oncrpc4j.util.Channels;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.FileChunk;
 import org.glassfish.grizzly.asyncqueue.WritableMessage;
-import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.BufferArray;
 import org.glassfish.grizzly.memory.BuffersBuffer;
+import org.glassfish.grizzly.memory.ByteBufferArray;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.memory.PooledMemoryManager;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
 
 public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable {
 
@@ -51,29 +65,54 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
     /**
-     * Byte buffer used by XDR record.
+     * Big-endian views of byte arrays used by bulk codecs of heap buffers.
      */
-    protected volatile Buffer _buffer;
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
 
     /**
-     * File chunk to be written after the buffer.
+     * Byte buffer used by XDR record.
      */
-    private volatile FileChunk _fileChunk;
+    protected volatile Buffer _buffer;
 
     /**
-     * Padding needed after the file chunk.
+     * File chunks to be written in between of buffer's data, ordered by
+     * position, or {@code null}, if there are none.
      */
-    private int _padding;
+    private List<FileRegion> _fileChunks;
 
     /**
      * Indicates that encoding/decoding is in progress.
      */
     private boolean _inUse;
 
+    /**
+     * Indicates that the buffer is shared with {@link OpaqueSlice}s, which may
+     * outlive this Xdr. Such a buffer is not reused for encoding.
+     */
+    private boolean _shared;
+
     /**
      * Memory manager used to allocate, resize buffers.
      */
     private final MemoryManager _memoryManager;
+
+    /**
+     * Size of segments appended to the buffer when it runs out of space,
+     * or zero if buffer is reallocated.
+     */
+    private int _segmentSize;
+
+    /**
+     * Number of bytes reserved in front of the message by {@link #beginEncoding()}.
+     */
+    private int _reservedHeaderSize;
+
+    /**
+     * Position of the first byte of the message in the buffer.
+     */
+    private int _start;
+
     /**
      * Create a new Xdr object with a buffer of given size.
      *
@@ -83,6 +122,19 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         this(GrizzlyMemoryManager.allocate(size), GrizzlyMemoryManager.getDefaultMemoryManager());
     }
 
+    /**
+     * Create a new Xdr object with a buffer of given size allocated by provided
+     * {@link MemoryManager}. If the memory manager is a pooling one, then the buffer
+     * is returned into the pool when the message is written by {@link org.dcache.oncrpc4j.rpc.RpcTransport}.
+     * If the message is never sent, then {@link #close()} must be called instead.
+     *
+     * @param size of the buffer in bytes
+     * @param memoryManager memory manager used to allocate, resize and release buffers.
+     * @since 3.5
+     */
+    public Xdr(int size, MemoryManager memoryManager) {
+        this(memoryManager.allocate(size), memoryManager);
+    }
 
     /**
      * Wraps a byte array into a Xdr stream
@@ -124,24 +176,40 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
          * Set position to the beginning of this XDR in back end buffer.
          */
         _buffer.rewind();
+        _buffer.position(_start);
         _inUse = true;
     }
 
     @Override
     public void endDecoding() {
         _buffer.rewind();
+        _buffer.position(_start);
         _inUse = false;
     }
 
     @Override
     public void beginEncoding() {
+        if (_shared) {
+            // encode into a new buffer, as slices still reference the decoded data
+            Buffer shared = _buffer;
+            _buffer = _memoryManager.allocate(shared.capacity());
+            _buffer.order(ByteOrder.BIG_ENDIAN);
+            disposeShared(shared);
+            _shared = false;
+        }
         _buffer.clear();
+        if (_reservedHeaderSize > 0) {
+            ensureCapacity(_reservedHeaderSize);
+            _buffer.position(_reservedHeaderSize);
+        }
+        _start = _reservedHeaderSize;
         _inUse = true;
     }
 
     @Override
     public void endEncoding() {
         _buffer.flip();
+        _buffer.position(_start);
         _inUse = false;
     }
 
@@ -154,7 +222,31 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     }
 
     public boolean hasFileChunk() {
-        return _fileChunk != null;
+        return _fileChunks != null;
+    }
+
+    /**
+     * Get a specialized decoder of this xdr's data starting at the current
+     * position. This xdr's position is updated when
+     * {@link XdrDecoder#endDecoding()} is called.
+     *
+     * @return a new decoder.
+     * @since 3.5
+     */
+    public XdrDecoder decoder() {
+        return new XdrDecoder(_buffer);
+    }
+
+    /**
+     * Get a specialized encoder, which writes into this xdr starting at the
+     * current position. This xdr must not be used directly until
+     * {@link XdrEncoder#flush()} or {@link XdrEncoder#endEncoding()} is called.
+     *
+     * @return a new encoder.
+     * @since 3.5
+     */
+    public XdrEncoder encoder() {
+        return new XdrEncoder(this);
     }
 
     /**
@@ -184,12 +276,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     public int[] xdrDecodeIntVector() throws BadXdrOncRpcException {
 
         int len = xdrDecodeInt();
-        checkArraySize(len);
-        int[] ints = new int[len];
-        for (int i = 0; i < len; i++) {
-            ints[i] = xdrDecodeInt();
-        }
-        return ints;
+        return xdrDecodeIntFixedVector(len);
     }
 
     /**
@@ -202,10 +289,26 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public int[] xdrDecodeIntFixedVector(int length) throws BadXdrOncRpcException {
+        checkArraySize(length, Integer.BYTES);
         int[] value = new int[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeInt();
+
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = length * Integer.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = (int) INT_VIEW.get(array, offset + i * Integer.BYTES);
+            }
+        } else if (hasDirectView(buffer)) {
+            directView(buffer, size).asIntBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = buffer.getInt(position + i * Integer.BYTES);
+            }
         }
+        buffer.position(position + size);
         return value;
     }
 
@@ -219,12 +322,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     public long[] xdrDecodeLongVector() throws BadXdrOncRpcException {
 
         int len = xdrDecodeInt();
-        checkArraySize(len);
-        long[] longs = new long[len];
-        for (int i = 0; i < len; i++) {
-            longs[i] = xdrDecodeLong();
-        }
-        return longs;
+        return xdrDecodeLongFixedVector(len);
     }
 
     /**
@@ -237,10 +335,26 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public long[] xdrDecodeLongFixedVector(int length) throws BadXdrOncRpcException {
+        checkArraySize(length, Long.BYTES);
         long[] value = new long[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeLong();
+
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = length * Long.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = (long) LONG_VIEW.get(array, offset + i * Long.BYTES);
+            }
+        } else if (hasDirectView(buffer)) {
+            directView(buffer, size).asLongBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = buffer.getLong(position + i * Long.BYTES);
+            }
         }
+        buffer.position(position + size);
         return value;
     }
 
@@ -277,7 +391,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     @Override
     public double[] xdrDecodeDoubleVector() throws BadXdrOncRpcException {
         int length = xdrDecodeInt();
-        checkArraySize(length);
+        checkArraySize(length, Double.BYTES);
         return xdrDecodeDoubleFixedVector(length);
     }
 
@@ -291,10 +405,26 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public double[] xdrDecodeDoubleFixedVector(int length) throws BadXdrOncRpcException {
+        checkArraySize(length, Double.BYTES);
         double[] value = new double[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeDouble();
+
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = length * Double.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = Double.longBitsToDouble((long) LONG_VIEW.get(array, offset + i * Double.BYTES));
+            }
+        } else if (hasDirectView(buffer)) {
+            directView(buffer, size).asDoubleBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = Double.longBitsToDouble(buffer.getLong(position + i * Double.BYTES));
+            }
         }
+        buffer.position(position + size);
         return value;
     }
 
@@ -307,7 +437,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     @Override
     public float[] xdrDecodeFloatVector() throws BadXdrOncRpcException {
         int length = xdrDecodeInt();
-        checkArraySize(length);
+        checkArraySize(length, Float.BYTES);
         return xdrDecodeFloatFixedVector(length);
     }
 
@@ -321,10 +451,26 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public float[] xdrDecodeFloatFixedVector(int length) throws BadXdrOncRpcException {
+        checkArraySize(length, Float.BYTES);
         float[] value = new float[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeFloat();
+
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = length * Float.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = Float.intBitsToFloat((int) INT_VIEW.get(array, offset + i * Float.BYTES));
+            }
+        } else if (hasDirectView(buffer)) {
+            directView(buffer, size).asFloatBuffer().get(value);
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = Float.intBitsToFloat(buffer.getInt(position + i * Float.BYTES));
+            }
         }
+        buffer.position(position + size);
         return value;
     }
 
@@ -376,7 +522,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (length == 0) {
             return EMPTY_BYTE_ARRAY;
         }
-        checkArraySize(length);
+        checkArraySize(length, 1);
         byte [] opaque = new byte[length];
         xdrDecodeOpaque(opaque, 0, length);
         return opaque;
@@ -394,10 +540,22 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (len == 0) {
           return "";
         }
-        checkArraySize(len);
-        byte[] bytes = new byte[len];
-        xdrDecodeOpaque(bytes, 0, len);
-        return new String(bytes, StandardCharsets.UTF_8);
+        checkArraySize(len, 1);
+        int padding = (4 - (len & 3)) & 3;
+        ensureBytes(len + padding);
+
+        String s;
+        int position = _buffer.position();
+        if (_buffer.hasArray()) {
+            // decode directly from the backing array
+            s = new String(_buffer.array(), _buffer.arrayOffset() + position, len, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[len];
+            _buffer.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        _buffer.position(position + len + padding);
+        return s;
     }
 
     @Override
@@ -422,7 +580,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     @Override
     public ByteBuffer xdrDecodeByteBuffer() throws BadXdrOncRpcException {
         int len = this.xdrDecodeInt();
-        checkArraySize(len);
+        checkArraySize(len, 1);
         int padding = (4 - (len & 3)) & 3;
 
         ensureBytes(len + padding);
@@ -438,6 +596,137 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         return slice;
     }
 
+    /**
+     * Decodes a XDR opaque value with a preceding length without copying
+     * the data. The returned slice shares the memory of this xdr's buffer,
+     * even if the data spans multiple buffers, and must be released by the
+     * caller.
+     *
+     * @return a slice of the opaque data.
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    public OpaqueSlice xdrDecodeOpaqueSlice() throws BadXdrOncRpcException {
+        int len = xdrDecodeInt();
+        checkArraySize(len, 1);
+        int padding = (4 - (len & 3)) & 3;
+        ensureBytes(len + padding);
+
+        int position = _buffer.position();
+        OpaqueSlice slice = OpaqueSlice.of(_buffer, position, len);
+        _buffer.position(position + len + padding);
+        _shared = true;
+        return slice;
+    }
+
+    /**
+     * Decodes a XDR opaque value with a preceding length by writing the
+     * data directly from the underlying buffers into the given channel.
+     * If the message spans multiple buffers, they are written one after
+     * another, or with a single gathering write if the channel supports it.
+     * This is the counterpart of {@link #xdrEncodeFileChunk(FileChunk)}.
+     *
+     * <p>The channel must be in blocking mode, e.g. write all data it's given.
+     * If writing into the channel fails, the position of this xdr is left at
+     * the beginning of the opaque data.
+     *
+     * @param channel the blocking channel to write the data to.
+     * @return the number of bytes written to the channel.
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded or the
+     *     padding bytes are not zero.
+     * @throws IOException if writing into the channel fails or the channel
+     *     doesn't accept any data.
+     * @since 3.5
+     */
+    public int xdrDecodeOpaque(WritableByteChannel channel) throws IOException {
+        int len = xdrDecodeInt();
+        checkArraySize(len, 1);
+        int padding = (4 - (len & 3)) & 3;
+        ensureBytes(len + padding);
+
+        int position = _buffer.position();
+        checkPadding(position + len, padding);
+        if (len > 0) {
+            ByteBufferArray array = _buffer.toByteBufferArray(position, position + len);
+            try {
+                ByteBuffer[] buffers = array.getArray();
+                int count = array.size();
+                if (channel instanceof GatheringByteChannel gatheringChannel) {
+                    long remaining = len;
+                    while (remaining > 0) {
+                        long n = gatheringChannel.write(buffers, 0, count);
+                        checkWritten(n);
+                        remaining -= n;
+                    }
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        ByteBuffer b = buffers[i];
+                        while (b.hasRemaining()) {
+                            checkWritten(channel.write(b));
+                        }
+                    }
+                }
+            } finally {
+                array.restore();
+                array.recycle();
+            }
+        }
+        _buffer.position(position + len + padding);
+        return len;
+    }
+
+    /**
+     * Fail, if a channel has accepted no data, as a non-blocking channel would
+     * otherwise be retried forever.
+     */
+    private static void checkWritten(long n) throws IOException {
+        if (n == 0) {
+            throw new IOException("channel accepted no data, non-blocking channels are not supported");
+        }
+    }
+
+    /**
+     * Check that padding bytes at the given position are zero.
+     */
+    private void checkPadding(int position, int padding) throws BadXdrOncRpcException {
+        for (int i = 0; i < padding; i++) {
+            if (_buffer.get(position + i) != 0) {
+                throw new BadXdrOncRpcException("non-zero padding");
+            }
+        }
+    }
+
+    /**
+     * Skip {@code len} bytes of XDR opaque data without copying them. The
+     * padding bytes are required to be zero.
+     *
+     * @param len number of bytes to skip.
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    @Override
+    public void xdrSkipFixedOpaque(int len) throws BadXdrOncRpcException {
+        checkArraySize(len, 1);
+        int padding = (4 - (len & 3)) & 3;
+        ensureBytes(len + padding);
+
+        int position = _buffer.position() + len;
+        checkPadding(position, padding);
+        _buffer.position(position + padding);
+    }
+
+    @Override
+    public void xdrSkipIntFixedVector(int len) throws BadXdrOncRpcException {
+        checkArraySize(len, Integer.BYTES);
+        _buffer.position(_buffer.position() + len * Integer.BYTES);
+    }
+
+    @Override
+    public void xdrSkipLongFixedVector(int len) throws BadXdrOncRpcException {
+        checkArraySize(len, Long.BYTES);
+        _buffer.position(_buffer.position() + len * Long.BYTES);
+    }
+
     /**
      * Decodes (aka "deserializes") a vector of bytes, which is nothing more
      * than a series of octets (or 8 bits wide bytes), each packed into its very
@@ -451,7 +740,6 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     @Override
     public byte[] xdrDecodeByteVector() throws BadXdrOncRpcException {
         int length = xdrDecodeInt();
-        checkArraySize(length);
         return xdrDecodeByteFixedVector(length);
     }
 
@@ -467,7 +755,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public byte[] xdrDecodeByteFixedVector(int length) throws BadXdrOncRpcException {
-
+        // each byte is packed into its own XDR int
+        checkArraySize(length, Integer.BYTES);
         byte[] bytes = new byte[length];
         for (int i = 0; i < length; ++i) {
             bytes[i] = xdrDecodeByte();
@@ -508,7 +797,6 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     @Override
     public short[] xdrDecodeShortVector() throws BadXdrOncRpcException {
         int length = xdrDecodeInt();
-        checkArraySize(length);
         return xdrDecodeShortFixedVector(length);
     }
 
@@ -523,10 +811,24 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public short[] xdrDecodeShortFixedVector(int length) throws BadXdrOncRpcException {
+        // each short is packed into XDR int
+        checkArraySize(length, Integer.BYTES);
         short[] value = new short[length];
-        for (int i = 0; i < length; ++i) {
-            value[i] = xdrDecodeShort();
+
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = (short) (int) INT_VIEW.get(array, offset + i * Integer.BYTES);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = (short) buffer.getInt(position + i * Integer.BYTES);
+            }
         }
+        buffer.position(position + length * Integer.BYTES);
         return value;
     }
     ////////////////////////////////////////////////////////////////////////////
@@ -556,44 +858,94 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      * @return The {@link Buffer} that backs this xdr
      */
     public Buffer asBuffer() {
-        if (_fileChunk != null) {
+        if (_fileChunks != null) {
+            WritableMessage[] messages = asBufferWritableMessages();
+            Buffer[] buffers = new Buffer[messages.length];
             try {
-                var tmp = _memoryManager.allocate(_fileChunk.remaining() + _padding);
-                _fileChunk.writeTo(Channels.asWritableChannel(tmp));
-                // mind the padding
-                tmp.position(tmp.position() + _padding);
-                tmp.flip();
-                _fileChunk = null;
-                _padding = 0;
-                _buffer = BuffersBuffer.create(_memoryManager, _buffer, tmp);
-
+                for (int i = 0; i < messages.length; i++) {
+                    if (messages[i] instanceof FileChunk chunk) {
+                        var tmp = _memoryManager.allocate(chunk.remaining());
+                        chunk.writeTo(Channels.asWritableChannel(tmp));
+                        chunk.release();
+                        tmp.flip();
+                        buffers[i] = tmp;
+                    } else {
+                        buffers[i] = (Buffer) messages[i];
+                    }
+                }
             } catch (IOException e) {
                 throw new UncheckedIOException("Failed to write file chunk to buffer", e);
             }
+            var composite = BuffersBuffer.create(_memoryManager, buffers);
+            composite.allowBufferDispose(true);
+            _buffer = composite;
+            _start = 0;
         }
         return _buffer;
     }
 
     /**
      * Returns an array of {@link WritableMessage} that represent this xdr.
+     * Encoded file chunks are interleaved with segments of the buffer in
+     * the encoding order. The messages must be written in order, as only the
+     * last buffer segment releases the buffer.
      *
      * @return array of {@link WritableMessage} that represent this xdr.
      */
     public WritableMessage[] asBufferWritableMessages() {
 
-        if (_fileChunk == null) {
+        if (_fileChunks == null) {
             return new WritableMessage[]{_buffer};
         }
 
-        WritableMessage[] asWritableMessages;
-        if (_padding == 0) {
-            asWritableMessages = new WritableMessage[]{_buffer, _fileChunk};
-        } else {
-            asWritableMessages = new WritableMessage[]{_buffer, _fileChunk, Buffers.wrap(_memoryManager, paddingZeros, 0, _padding)};
+        int position = _buffer.position();
+        int end = _buffer.limit();
+
+        // the start of the last non-empty buffer segment, which owns the buffer
+        int owner = -1;
+        int segment = position;
+        for (FileRegion region : _fileChunks) {
+            if (region.offset > segment) {
+                owner = segment;
+            }
+            segment = region.offset;
         }
-        _fileChunk = null;
-        _padding = 0;
-        return asWritableMessages;
+        if (end > segment) {
+            owner = segment;
+        }
+
+        List<WritableMessage> messages = new ArrayList<>(2 * _fileChunks.size() + 1);
+        for (FileRegion region : _fileChunks) {
+            if (region.offset > position) {
+                messages.add(segment(position, region.offset, position == owner));
+                position = region.offset;
+            }
+            messages.add(region.chunk);
+        }
+        if (end > position) {
+            messages.add(segment(position, end, position == owner));
+        }
+        if (owner < 0) {
+            // no data in the buffer
+            _buffer.tryDispose();
+        }
+        _fileChunks = null;
+        return messages.toArray(WritableMessage[]::new);
+    }
+
+    /**
+     * Get a segment of the buffer. The owner segment is the buffer itself,
+     * any other segment is a view which doesn't release the buffer.
+     */
+    private Buffer segment(int from, int to, boolean owner) {
+        if (owner) {
+            _buffer.position(from);
+            _buffer.limit(to);
+            return _buffer;
+        }
+        Buffer slice = _buffer.slice(from, to);
+        slice.allowBufferDispose(false);
+        return slice;
     }
 
     /**
@@ -607,9 +959,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     public void xdrEncodeIntVector(int[] values) {
         ensureCapacity(Integer.BYTES+Integer.BYTES*values.length);
         _buffer.putInt(values.length);
-        for (int value: values) {
-            _buffer.putInt( value );
-        }
+        putInts(values);
     }
 
     /**
@@ -625,9 +975,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeInt(value[i]);
-        }
+        ensureCapacity(Integer.BYTES*length);
+        putInts(value);
     }
 
     /**
@@ -641,9 +990,7 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     public void xdrEncodeLongVector(long[] values) {
         ensureCapacity(Integer.BYTES+Long.BYTES*values.length);
         _buffer.putInt(values.length);
-        for (long value : values) {
-            _buffer.putLong(value);
-        }
+        putLongs(values);
     }
 
     /**
@@ -659,9 +1006,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeLong(value[i]);
-        }
+        ensureCapacity(Long.BYTES*length);
+        putLongs(value);
     }
     
     /**
@@ -694,11 +1040,9 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public void xdrEncodeFloatVector(float[] value) {
-        int size = value.length;
-        xdrEncodeInt(size);
-        for (int i = 0; i < size; i++) {
-            xdrEncodeFloat(value[i]);
-        }
+        ensureCapacity(Integer.BYTES+Float.BYTES*value.length);
+        _buffer.putInt(value.length);
+        putFloats(value);
     }
 
     /**
@@ -714,9 +1058,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeFloat(value[i]);
-        }
+        ensureCapacity(Float.BYTES*length);
+        putFloats(value);
     }
 
     /**
@@ -727,11 +1070,9 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public void xdrEncodeDoubleVector(double[] value) {
-        int size = value.length;
-        xdrEncodeInt(size);
-        for (int i = 0; i < size; i++) {
-            xdrEncodeDouble(value[i]);
-        }
+        ensureCapacity(Integer.BYTES+Double.BYTES*value.length);
+        _buffer.putInt(value.length);
+        putDoubles(value);
     }
 
     /**
@@ -747,9 +1088,8 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeDouble(value[i]);
-        }
+        ensureCapacity(Double.BYTES*length);
+        putDoubles(value);
     }
 
     /**
@@ -759,7 +1099,23 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
     @Override
     public void xdrEncodeString(String string) {
         if( string == null ) string = "";
-        xdrEncodeDynamicOpaque(string.getBytes(StandardCharsets.UTF_8));
+
+        int len = string.length();
+        if (len <= Utf8Coder.MAX_TRANSCODED_LENGTH && _buffer.hasArray()) {
+            ensureCapacity(Integer.BYTES + Utf8Coder.MAX_BYTES_PER_CHAR * len + 3);
+        }
+        if (len > Utf8Coder.MAX_TRANSCODED_LENGTH || !_buffer.hasArray()) {
+            // direct and composite buffers take a bulk copy of the bytes
+            xdrEncodeDynamicOpaque(string.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        // transcode short strings straight into the backing array
+        int start = _buffer.position() + Integer.BYTES;
+        int size = Utf8Coder.encode(string, _buffer.array(), _buffer.arrayOffset() + start);
+        _buffer.putInt(size);
+        _buffer.position(start + size);
+        _buffer.put(paddingZeros, 0, (4 - (size & 3)) & 3);
     }
 
     private static final byte [] paddingZeros = { 0, 0, 0, 0 };
@@ -842,6 +1198,33 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         xdrEncodeShallowByteBuffer(wrap);
     }
 
+    /**
+     * A version of {@link #xdrEncodeShallowByteBuffer(ByteBuffer)} for memory with
+     * explicitly managed lifetime, like a {@link java.nio.MappedByteBuffer} or a
+     * view of an off-heap memory segment. The encoded message references the content
+     * of the buffer, which is sent without copying over any transport, including TLS
+     * and UDP.
+     * <p>
+     * The {@code release} action runs exactly once, when the message is written or
+     * this Xdr is closed, e.g. to close the arena of a memory segment:
+     * <pre>
+     *     xdr.xdrEncodeShallowByteBuffer(segment.asByteBuffer(), arena::close);
+     * </pre>
+     * The content of the buffer must not be modified or unmapped until then.
+     *
+     * @param buf The buffer from which bytes are to be retrieved.
+     * @param release the action to run, when the content of the buffer is not
+     * referenced anymore.
+     * @since 3.5
+     */
+    public void xdrEncodeShallowByteBuffer(ByteBuffer buf, Runnable release) {
+        requireNonNull(release, "release action can't be null");
+        // the slice ensures, that the padding is not taken from data beyond the limit
+        var wrap = new ReleasingByteBufferWrapper(buf.slice(), release);
+        wrap.allowBufferDispose(true);
+        xdrEncodeShallowByteBuffer(wrap);
+    }
+
     /**
      * A version of {@link #xdrEncodeShallowByteBuffer(ByteBuffer)} which uses Grizzly {@code buffer}.
      * Note: any change to the {@code buf} will cause unpredicted behavior.
@@ -854,15 +1237,48 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         xdrEncodeInt(len);
         int ep = _buffer.position() + buf.remaining();
 
-        var composite = BuffersBuffer.create(_memoryManager);
-        composite.allowBufferDispose(true);
-        composite.append(_buffer.slice(0, _buffer.position())).append(buf);
+        var composite = encodedData();
+        composite.append(buf);
         composite.position(ep);
         composite.limit(ep);
 
         _buffer = composite;
         ensureCapacity(padding);
-        _buffer.position(_buffer.position() + padding);
+        _buffer.put(paddingZeros, 0, padding);
+    }
+
+    /**
+     * Get a composite buffer with the data encoded so far, where more buffers can
+     * be appended right after the current position. The unused space of the
+     * backing buffer is dropped.
+     */
+    private CompositeBuffer encodedData() {
+        int position = _buffer.position();
+        var composite = BuffersBuffer.create(_memoryManager);
+        composite.allowBufferDispose(true);
+
+        if (!_buffer.isComposite()) {
+            return composite.append(_buffer.slice(0, position));
+        }
+
+        // re-use the parts, instead of a slice, as they must be released with the message
+        CompositeBuffer encoded = (CompositeBuffer) _buffer;
+        BufferArray parts = encoded.toBufferArray(0, encoded.capacity());
+        Buffer[] array = parts.getArray();
+        int offset = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            Buffer part = array[i];
+            int size = part.remaining();
+            if (offset < position) {
+                part.limit(part.position() + Math.min(size, position - offset));
+                composite.append(part);
+            } else {
+                part.tryDispose();
+            }
+            offset += size;
+        }
+        parts.recycle();
+        return composite;
     }
 
     /**
@@ -943,11 +1359,9 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      */
     @Override
     public void xdrEncodeShortVector(short[] value) {
-        int size = value.length;
-        xdrEncodeInt(size);
-        for (int i = 0; i < size; i++) {
-            xdrEncodeShort(value[i]);
-        }
+        ensureCapacity(Integer.BYTES+Integer.BYTES*value.length);
+        _buffer.putInt(value.length);
+        putShorts(value);
     }
 
     /**
@@ -963,28 +1377,157 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
         if (value.length != length) {
             throw new IllegalArgumentException("array size does not match protocol specification");
         }
-        for (int i = 0; i < length; i++) {
-            xdrEncodeShort(value[i]);
+        ensureCapacity(Integer.BYTES*length);
+        putShorts(value);
+    }
+
+    /*
+     * Bulk encoders. The caller must ensure the capacity. Heap buffers are
+     * accessed via byte array views, direct buffers via typed buffer views,
+     * while composite buffers, which have no single backing memory, are
+     * accessed per element.
+     */
+
+    private void putInts(int[] value) {
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = value.length * Integer.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < value.length; i++) {
+                INT_VIEW.set(array, offset + i * Integer.BYTES, value[i]);
+            }
+        } else if (hasDirectView(buffer)) {
+            directView(buffer, size).asIntBuffer().put(value);
+        } else {
+            for (int i = 0; i < value.length; i++) {
+                buffer.putInt(position + i * Integer.BYTES, value[i]);
+            }
+        }
+        buffer.position(position + size);
+    }
+
+    private void putLongs(long[] value) {
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = value.length * Long.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < value.length; i++) {
+                LONG_VIEW.set(array, offset + i * Long.BYTES, value[i]);
+            }
+        } else if (hasDirectView(buffer)) {
+            directView(buffer, size).asLongBuffer().put(value);
+        } else {
+            for (int i = 0; i < value.length; i++) {
+                buffer.putLong(position + i * Long.BYTES, value[i]);
+            }
+        }
+        buffer.position(position + size);
+    }
+
+    private void putFloats(float[] value) {
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = value.length * Float.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < value.length; i++) {
+                INT_VIEW.set(array, offset + i * Float.BYTES, Float.floatToIntBits(value[i]));
+            }
+        } else if (hasDirectView(buffer)) {
+            // FloatBuffer would not canonicalize NaN values
+            IntBuffer view = directView(buffer, size).asIntBuffer();
+            for (int i = 0; i < value.length; i++) {
+                view.put(i, Float.floatToIntBits(value[i]));
+            }
+        } else {
+            for (int i = 0; i < value.length; i++) {
+                buffer.putInt(position + i * Float.BYTES, Float.floatToIntBits(value[i]));
+            }
+        }
+        buffer.position(position + size);
+    }
+
+    private void putDoubles(double[] value) {
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        int size = value.length * Double.BYTES;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < value.length; i++) {
+                LONG_VIEW.set(array, offset + i * Double.BYTES, Double.doubleToLongBits(value[i]));
+            }
+        } else if (hasDirectView(buffer)) {
+            // DoubleBuffer would not canonicalize NaN values
+            LongBuffer view = directView(buffer, size).asLongBuffer();
+            for (int i = 0; i < value.length; i++) {
+                view.put(i, Double.doubleToLongBits(value[i]));
+            }
+        } else {
+            for (int i = 0; i < value.length; i++) {
+                buffer.putLong(position + i * Double.BYTES, Double.doubleToLongBits(value[i]));
+            }
         }
+        buffer.position(position + size);
+    }
+
+    private void putShorts(short[] value) {
+        Buffer buffer = _buffer;
+        int position = buffer.position();
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + position;
+            for (int i = 0; i < value.length; i++) {
+                INT_VIEW.set(array, offset + i * Integer.BYTES, (int) value[i]);
+            }
+        } else {
+            for (int i = 0; i < value.length; i++) {
+                buffer.putInt(position + i * Integer.BYTES, value[i]);
+            }
+        }
+        buffer.position(position + value.length * Integer.BYTES);
+    }
+
+    /**
+     * Check whether the buffer is backed by a single direct {@link ByteBuffer}.
+     */
+    private static boolean hasDirectView(Buffer buffer) {
+        return buffer.isDirect() && !buffer.isComposite();
+    }
+
+    /**
+     * Get a big-endian view of {@code size} bytes starting at the current
+     * position of a buffer backed by a single {@link ByteBuffer}.
+     */
+    private static ByteBuffer directView(Buffer buffer, int size) {
+        int position = buffer.position();
+        return buffer.toByteBuffer(position, position + size).order(ByteOrder.BIG_ENDIAN);
     }
 
     /**
      * Encodes (aka "serializes") a file chunk by writing it directly to the
      * underlying buffer. This method avoids an internal copy of the file chunk
-     * data.
+     * data. Any number of file chunks can be interleaved with other data.
      *
      * @param chunk The file chunk to be encoded.
      */
     public void xdrEncodeFileChunk(FileChunk chunk) {
-
-        // REVISIT: support multiple file chunks in the future
-        if (_fileChunk != null) {
-            throw new IllegalArgumentException("Multiple file chunks are not supported");
-        }
         var len = chunk.remaining();
         xdrEncodeInt(len);
-        _padding = (4 - (len & 3)) & 3;
-        _fileChunk = chunk;
+        if (_fileChunks == null) {
+            _fileChunks = new ArrayList<>(1);
+        }
+        _fileChunks.add(new FileRegion(_buffer.position(), chunk));
+
+        // the padding is sent as the beginning of the next buffer segment
+        int padding = (4 - (len & 3)) & 3;
+        ensureCapacity(padding);
+        _buffer.put(paddingZeros, 0, padding);
     }
 
     /**
@@ -1009,31 +1552,202 @@ public class Xdr implements XdrDecodingStream, XdrEncodingStream, AutoCloseable
      * Closes this stream, relinquishing any underlying resources.
      */
     public void close() {
-        _buffer.tryDispose();
-        if (_fileChunk != null) {
-            _fileChunk.release();
-            _fileChunk = null;
-            _padding = 0;
+        if (_shared) {
+            disposeShared(_buffer);
+        } else {
+            _buffer.tryDispose();
+        }
+        if (_fileChunks != null) {
+            _fileChunks.forEach(r -> r.chunk.release());
+            _fileChunks = null;
         }
     }
 
-    private void ensureCapacity(int size) {
+    /**
+     * Ensure that at least {@code size} bytes can be encoded without growing
+     * the underlying buffer.
+     *
+     * @param size number of bytes to be encoded.
+     * @since 3.5
+     */
+    public void ensureCapacity(int size) {
         if(_buffer.remaining() < size) {
+            if (_segmentSize > 0) {
+                appendSegment(size - _buffer.remaining());
+                return;
+            }
             int oldCapacity = _buffer.capacity();
             int newCapacity = Math.max((oldCapacity * 3) / 2 + 1, oldCapacity + size);
             _buffer = GrizzlyMemoryManager.reallocate(_memoryManager, _buffer, newCapacity);
         }
     }
 
+    /**
+     * Append a new segment, big enough to hold {@code size} bytes, to the
+     * backing buffer. The already encoded data is not copied.
+     */
+    private void appendSegment(int size) {
+        CompositeBuffer composite;
+        if (_buffer.isComposite()) {
+            composite = (CompositeBuffer) _buffer;
+        } else {
+            int position = _buffer.position();
+            _buffer.position(0);
+            composite = BuffersBuffer.create(_memoryManager, _buffer);
+            composite.allowBufferDispose(true);
+            composite.position(position);
+        }
+
+        int segmentSize = ((size + _segmentSize - 1) / _segmentSize) * _segmentSize;
+        composite.append(_memoryManager.allocate(segmentSize));
+        composite.limit(composite.capacity());
+        _buffer = composite;
+    }
+
+    /**
+     * Switch this Xdr into segmented growth mode. In this mode, when
+     * encoding runs out of space, instead of reallocating the backing buffer
+     * and copying already encoded data, a new segment of {@code segmentSize}
+     * bytes (or a multiple of it) is appended. The resulting composite buffer
+     * is sent by a single gathering write.
+     *
+     * <p>This mode is suitable for large messages, where reallocate-and-copy
+     * makes the encoding cost grow faster than message size and temporary
+     * doubles the required memory.
+     *
+     * @param segmentSize size of appended segments in bytes, or zero to
+     * reallocate the buffer.
+     * @since 3.5
+     */
+    public void setSegmentSize(int segmentSize) {
+        checkArgument(segmentSize >= 0, "Negative segment size");
+        _segmentSize = segmentSize;
+    }
+
+    /**
+     * Get size of segments appended to the buffer in segmented growth mode.
+     *
+     * @return segment size in bytes or zero, if segmented growth mode is not used.
+     * @since 3.5
+     */
+    public int getSegmentSize() {
+        return _segmentSize;
+    }
+
+    /**
+     * Reserve space for a header in front of messages encoded after this call.
+     * The header space is not part of the message, unless it's filled with
+     * {@link #prependInt(int)}. This allows a transport to add framing, like
+     * the record marker, without allocating and sending a separate buffer.
+     *
+     * @param size number of bytes to reserve, or zero.
+     * @since 3.5
+     */
+    public void setReservedHeaderSize(int size) {
+        checkArgument(size >= 0, "Negative header size");
+        _reservedHeaderSize = size;
+    }
+
+    /**
+     * Get number of bytes reserved in front of encoded messages.
+     *
+     * @return header size in bytes.
+     * @since 3.5
+     */
+    public int getReservedHeaderSize() {
+        return _reservedHeaderSize;
+    }
+
+    /**
+     * Write an int into the reserved header space right in front of the encoded
+     * message and make it the first element of the message. Must be called
+     * after {@link #endEncoding()}.
+     *
+     * @param value the value to write.
+     * @return {@code true}, if the value is written, or {@code false}, if
+     * there is no unused header space in front of the message.
+     * @since 3.5
+     */
+    public boolean prependInt(int value) {
+        int position = _buffer.position();
+        if (_inUse || position != _start || position < Integer.BYTES) {
+            return false;
+        }
+        position -= Integer.BYTES;
+        _buffer.putInt(position, value);
+        _buffer.position(position);
+        _start = position;
+        return true;
+    }
+
     private void ensureBytes(int size) throws BadXdrOncRpcException {
         if (_buffer.remaining() < size) {
             throw new BadXdrOncRpcException("xdr stream too short");
         }
     }
 
-    private void checkArraySize(int len) throws BadXdrOncRpcException {
+    /**
+     * Check that decoded array length is sane, e.g. not negative and the stream
+     * contains enough data for all elements. This protects from allocating huge
+     * arrays on corrupted or malicious input.
+     *
+     * @param len the number of elements.
+     * @param minElementSize the minimal encoded size of an element in bytes.
+     */
+    private void checkArraySize(int len, int minElementSize) throws BadXdrOncRpcException {
         if (len < 0) {
             throw new BadXdrOncRpcException("corrupted xdr");
         }
+        if ((long) len * minElementSize > _buffer.remaining()) {
+            throw new BadXdrOncRpcException("xdr stream too short");
+        }
+    }
+
+    /**
+     * Release a buffer shared with opaque slices. Pooled buffers count their
+     * shares and are returned into the pool only when the last slice is
+     * released. Other buffers, like received heap buffers, may be recycled
+     * on dispose, thus are left to the garbage collector.
+     */
+    private void disposeShared(Buffer buffer) {
+        if (_memoryManager instanceof PooledMemoryManager) {
+            buffer.tryDispose();
+        }
+    }
+
+    /**
+     * A file chunk and the position in the buffer where it's sent.
+     */
+    private static class FileRegion {
+
+        private final int offset;
+        private final FileChunk chunk;
+
+        FileRegion(int offset, FileChunk chunk) {
+            this.offset = offset;
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * A {@link ByteBufferWrapper}, which runs the release action when disposed.
+     */
+    private static class ReleasingByteBufferWrapper extends ByteBufferWrapper {
+
+        private final AtomicReference<Runnable> release;
+
+        ReleasingByteBufferWrapper(ByteBuffer buffer, Runnable release) {
+            super(buffer);
+            this.release = new AtomicReference<>(release);
+        }
+
+        @Override
+        public void dispose() {
+            super.dispose();
+            Runnable action = release.getAndSet(null);
+            if (action != null) {
+                action.run();
+            }
+        }
     }
 }
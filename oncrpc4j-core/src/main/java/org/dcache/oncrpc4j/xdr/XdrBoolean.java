@@ -22,7 +22,7 @@ package org.dcache.oncrpc4j.xdr;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
 import java.io.IOException;
 
-public class XdrBoolean implements XdrAble {
+public class XdrBoolean implements XdrAble, XdrSizeable {
 
     public static final XdrBoolean True = new XdrBoolean(true);
     public static final XdrBoolean False = new XdrBoolean(false);
@@ -51,4 +51,9 @@ public class XdrBoolean implements XdrAble {
         xdr.xdrEncodeBoolean(_value);
     }
 
+    @Override
+    public int xdrEncodedSize() {
+        return Integer.BYTES;
+    }
+
 }
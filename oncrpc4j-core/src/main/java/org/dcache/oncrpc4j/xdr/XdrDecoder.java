@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * A single-purpose {@link XdrDecodingStream} over a {@link Buffer}.
+ *
+ * <p>Unlike {@link Xdr}, the decoder keeps the read position in plain
+ * fields and, if the buffer is backed by a byte array, reads the array
+ * directly. This lets the JIT keep the state in registers and eliminate
+ * redundant bounds checks when decoding primitive-heavy structures.
+ * Other buffers are accessed with absolute get operations.
+ *
+ * <p>The decoder starts at the current position of the buffer and must
+ * not be used concurrently with other users of the same buffer. The buffer's
+ * position is updated by {@link #endDecoding()}.
+ *
+ * @see Xdr#decoder()
+ * @since 3.5
+ */
+public final class XdrDecoder implements XdrDecodingStream {
+
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * The buffer to decode.
+     */
+    private final Buffer _buffer;
+
+    /**
+     * The backing array of the buffer or {@code null}.
+     */
+    private final byte[] _array;
+
+    /**
+     * Offset of buffer's first byte in the backing array.
+     */
+    private final int _arrayOffset;
+
+    /**
+     * Position of the next byte to decode.
+     */
+    private int _position;
+
+    /**
+     * Position of the first byte which can't be decoded.
+     */
+    private final int _limit;
+
+    /**
+     * Create a new decoder of the remaining bytes of the given buffer.
+     *
+     * @param buffer the buffer to decode.
+     */
+    public XdrDecoder(Buffer buffer) {
+        _buffer = buffer;
+        _buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.hasArray()) {
+            _array = buffer.array();
+            _arrayOffset = buffer.arrayOffset();
+        } else {
+            _array = null;
+            _arrayOffset = 0;
+        }
+        _position = buffer.position();
+        _limit = buffer.limit();
+    }
+
+    /**
+     * Does nothing, as decoding starts at the buffer's position when the
+     * decoder is created.
+     */
+    @Override
+    public void beginDecoding() {
+        // NOP
+    }
+
+    /**
+     * Set position of the underlying buffer to the first byte not decoded yet.
+     */
+    @Override
+    public void endDecoding() {
+        _buffer.position(_position);
+    }
+
+    /**
+     * Tells whether there are any data available in the stream.
+     * @return true if, and only if, there is data available in the stream
+     */
+    public boolean hasMoreData() {
+        return _position < _limit;
+    }
+
+    @Override
+    public int xdrDecodeInt() throws BadXdrOncRpcException {
+        int position = advance(Integer.BYTES);
+        return _array != null
+                ? (int) INT_VIEW.get(_array, _arrayOffset + position)
+                : _buffer.getInt(position);
+    }
+
+    @Override
+    public long xdrDecodeLong() throws BadXdrOncRpcException {
+        int position = advance(Long.BYTES);
+        return _array != null
+                ? (long) LONG_VIEW.get(_array, _arrayOffset + position)
+                : _buffer.getLong(position);
+    }
+
+    @Override
+    public boolean xdrDecodeBoolean() throws BadXdrOncRpcException {
+        return xdrDecodeInt() != 0;
+    }
+
+    @Override
+    public float xdrDecodeFloat() throws BadXdrOncRpcException {
+        return Float.intBitsToFloat(xdrDecodeInt());
+    }
+
+    @Override
+    public double xdrDecodeDouble() throws BadXdrOncRpcException {
+        return Double.longBitsToDouble(xdrDecodeLong());
+    }
+
+    @Override
+    public byte xdrDecodeByte() throws BadXdrOncRpcException {
+        return (byte) xdrDecodeInt();
+    }
+
+    @Override
+    public short xdrDecodeShort() throws BadXdrOncRpcException {
+        return (short) xdrDecodeInt();
+    }
+
+    @Override
+    public int[] xdrDecodeIntVector() throws BadXdrOncRpcException {
+        return xdrDecodeIntFixedVector(xdrDecodeInt());
+    }
+
+    @Override
+    public int[] xdrDecodeIntFixedVector(int length) throws BadXdrOncRpcException {
+        int position = advanceArray(length, Integer.BYTES);
+        int[] value = new int[length];
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = (int) INT_VIEW.get(_array, offset + i * Integer.BYTES);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = _buffer.getInt(position + i * Integer.BYTES);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public long[] xdrDecodeLongVector() throws BadXdrOncRpcException {
+        return xdrDecodeLongFixedVector(xdrDecodeInt());
+    }
+
+    @Override
+    public long[] xdrDecodeLongFixedVector(int length) throws BadXdrOncRpcException {
+        int position = advanceArray(length, Long.BYTES);
+        long[] value = new long[length];
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = (long) LONG_VIEW.get(_array, offset + i * Long.BYTES);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = _buffer.getLong(position + i * Long.BYTES);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public float[] xdrDecodeFloatVector() throws BadXdrOncRpcException {
+        return xdrDecodeFloatFixedVector(xdrDecodeInt());
+    }
+
+    @Override
+    public float[] xdrDecodeFloatFixedVector(int length) throws BadXdrOncRpcException {
+        int position = advanceArray(length, Float.BYTES);
+        float[] value = new float[length];
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = Float.intBitsToFloat((int) INT_VIEW.get(_array, offset + i * Float.BYTES));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = Float.intBitsToFloat(_buffer.getInt(position + i * Float.BYTES));
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public double[] xdrDecodeDoubleVector() throws BadXdrOncRpcException {
+        return xdrDecodeDoubleFixedVector(xdrDecodeInt());
+    }
+
+    @Override
+    public double[] xdrDecodeDoubleFixedVector(int length) throws BadXdrOncRpcException {
+        int position = advanceArray(length, Double.BYTES);
+        double[] value = new double[length];
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                value[i] = Double.longBitsToDouble((long) LONG_VIEW.get(_array, offset + i * Double.BYTES));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                value[i] = Double.longBitsToDouble(_buffer.getLong(position + i * Double.BYTES));
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] xdrDecodeByteVector() throws BadXdrOncRpcException {
+        return xdrDecodeByteFixedVector(xdrDecodeInt());
+    }
+
+    @Override
+    public byte[] xdrDecodeByteFixedVector(int length) throws BadXdrOncRpcException {
+        // each byte is packed into XDR int
+        int[] ints = xdrDecodeIntFixedVector(length);
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = (byte) ints[i];
+        }
+        return value;
+    }
+
+    @Override
+    public short[] xdrDecodeShortVector() throws BadXdrOncRpcException {
+        return xdrDecodeShortFixedVector(xdrDecodeInt());
+    }
+
+    @Override
+    public short[] xdrDecodeShortFixedVector(int length) throws BadXdrOncRpcException {
+        // each short is packed into XDR int
+        int[] ints = xdrDecodeIntFixedVector(length);
+        short[] value = new short[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = (short) ints[i];
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] xdrDecodeDynamicOpaque() throws BadXdrOncRpcException {
+        return xdrDecodeOpaque(xdrDecodeInt());
+    }
+
+    @Override
+    public byte[] xdrDecodeOpaque(int len) throws BadXdrOncRpcException {
+        if (len == 0) {
+            return EMPTY_BYTE_ARRAY;
+        }
+        checkArraySize(len, 1);
+        byte[] opaque = new byte[len];
+        xdrDecodeOpaque(opaque, 0, len);
+        return opaque;
+    }
+
+    @Override
+    public void xdrDecodeOpaque(byte[] data, int offset, int len) throws BadXdrOncRpcException {
+        if (len == 0) {
+            return;
+        }
+        int position = advanceOpaque(len);
+        if (_array != null) {
+            System.arraycopy(_array, _arrayOffset + position, data, offset, len);
+        } else {
+            _buffer.position(position);
+            _buffer.get(data, offset, len);
+        }
+    }
+
+    @Override
+    public String xdrDecodeString() throws BadXdrOncRpcException {
+        int len = xdrDecodeInt();
+        if (len == 0) {
+            return "";
+        }
+        int position = advanceOpaque(len);
+        if (_array != null) {
+            return new String(_array, _arrayOffset + position, len, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[len];
+        _buffer.position(position);
+        _buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public ByteBuffer xdrDecodeByteBuffer() throws BadXdrOncRpcException {
+        int len = xdrDecodeInt();
+        int position = advanceOpaque(len);
+        if (_array != null) {
+            return ByteBuffer.wrap(_array, _arrayOffset + position, len).slice();
+        }
+        return _buffer.toByteBuffer(position, position + len).slice();
+    }
+
+    @Override
+    public void xdrSkipFixedOpaque(int len) throws BadXdrOncRpcException {
+        int position = advanceOpaque(len) + len;
+        for (; position < _position; position++) {
+            byte b = _array != null ? _array[_arrayOffset + position] : _buffer.get(position);
+            if (b != 0) {
+                throw new BadXdrOncRpcException("non-zero padding");
+            }
+        }
+    }
+
+    @Override
+    public void xdrSkipIntFixedVector(int len) throws BadXdrOncRpcException {
+        advanceArray(len, Integer.BYTES);
+    }
+
+    @Override
+    public void xdrSkipLongFixedVector(int len) throws BadXdrOncRpcException {
+        advanceArray(len, Long.BYTES);
+    }
+
+    /**
+     * Move the position by {@code size} bytes.
+     *
+     * @return the position before the move.
+     */
+    private int advance(int size) throws BadXdrOncRpcException {
+        int position = _position;
+        if (_limit - position < size) {
+            throw new BadXdrOncRpcException("xdr stream too short");
+        }
+        _position = position + size;
+        return position;
+    }
+
+    /**
+     * Move the position over {@code len} bytes of opaque data and its padding.
+     *
+     * @return the position before the move.
+     */
+    private int advanceOpaque(int len) throws BadXdrOncRpcException {
+        checkArraySize(len, 1);
+        int padding = (4 - (len & 3)) & 3;
+        return advance(len + padding);
+    }
+
+    /**
+     * Move the position over an array of {@code len} elements.
+     *
+     * @return the position before the move.
+     */
+    private int advanceArray(int len, int elementSize) throws BadXdrOncRpcException {
+        checkArraySize(len, elementSize);
+        return advance(len * elementSize);
+    }
+
+    /**
+     * Check that decoded array length is not negative and the stream
+     * contains enough data for all elements.
+     */
+    private void checkArraySize(int len, int elementSize) throws BadXdrOncRpcException {
+        if (len < 0) {
+            throw new BadXdrOncRpcException("corrupted xdr");
+        }
+        if ((long) len * elementSize > _limit - _position) {
+            throw new BadXdrOncRpcException("xdr stream too short");
+        }
+    }
+}
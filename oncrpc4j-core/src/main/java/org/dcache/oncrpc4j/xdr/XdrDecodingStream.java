@@ -57,6 +57,81 @@ public interface XdrDecodingStream {
     short[] xdrDecodeShortVector() throws BadXdrOncRpcException;
     short[] xdrDecodeShortFixedVector(int length) throws BadXdrOncRpcException;
 
+    /**
+     * Skip a XDR opaque value with a preceding length, including its padding.
+     *
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    default void xdrSkipOpaque() throws BadXdrOncRpcException {
+        xdrSkipFixedOpaque(xdrDecodeInt());
+    }
+
+    /**
+     * Skip {@code len} bytes of XDR opaque data and its padding.
+     *
+     * @param len number of bytes to skip.
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    default void xdrSkipFixedOpaque(int len) throws BadXdrOncRpcException {
+        xdrDecodeOpaque(len);
+    }
+
+    /**
+     * Skip a XDR string.
+     *
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    default void xdrSkipString() throws BadXdrOncRpcException {
+        xdrSkipOpaque();
+    }
+
+    /**
+     * Skip a vector of 4 byte wide elements with a preceding length, e.g. a
+     * vector of ints, floats, shorts, bytes, booleans or enums.
+     *
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    default void xdrSkipIntVector() throws BadXdrOncRpcException {
+        xdrSkipIntFixedVector(xdrDecodeInt());
+    }
+
+    /**
+     * Skip a vector of {@code len} 4 byte wide elements.
+     *
+     * @param len number of elements to skip.
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    default void xdrSkipIntFixedVector(int len) throws BadXdrOncRpcException {
+        xdrDecodeIntFixedVector(len);
+    }
+
+    /**
+     * Skip a vector of 8 byte wide elements with a preceding length, e.g. a
+     * vector of longs or doubles.
+     *
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    default void xdrSkipLongVector() throws BadXdrOncRpcException {
+        xdrSkipLongFixedVector(xdrDecodeInt());
+    }
+
+    /**
+     * Skip a vector of {@code len} 8 byte wide elements.
+     *
+     * @param len number of elements to skip.
+     * @throws BadXdrOncRpcException if xdr stream can't be decoded.
+     * @since 3.5
+     */
+    default void xdrSkipLongFixedVector(int len) throws BadXdrOncRpcException {
+        xdrDecodeLongFixedVector(len);
+    }
+
     /*
      * Fake interface for compatibility with Remote Tea RPC library
      *
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * A single-purpose {@link XdrEncodingStream} which writes into the buffer
+ * of an {@link Xdr}.
+ *
+ * <p>Unlike {@link Xdr}, the encoder keeps the write position in plain
+ * fields and, if the buffer is backed by a byte array, writes the array
+ * directly. This lets the JIT keep the state in registers and eliminate
+ * redundant bounds checks when encoding primitive-heavy structures.
+ * Other buffers are accessed with absolute put operations. When the buffer
+ * runs out of space, it is grown by the owning {@link Xdr}.
+ *
+ * <p>The encoder starts at the current position of the Xdr. The Xdr must not
+ * be used directly until {@link #flush()} or {@link #endEncoding()} is called.
+ *
+ * @see Xdr#encoder()
+ * @since 3.5
+ */
+public final class XdrEncoder implements XdrEncodingStream {
+
+    private static final byte[] PADDING_ZEROS = {0, 0, 0, 0};
+
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * The Xdr which owns the buffer.
+     */
+    private final Xdr _xdr;
+
+    /**
+     * Current buffer of the Xdr.
+     */
+    private Buffer _buffer;
+
+    /**
+     * The backing array of the buffer or {@code null}.
+     */
+    private byte[] _array;
+
+    /**
+     * Offset of buffer's first byte in the backing array.
+     */
+    private int _arrayOffset;
+
+    /**
+     * Position of the next byte to encode.
+     */
+    private int _position;
+
+    /**
+     * Position of the first byte which can't be written without growing the buffer.
+     */
+    private int _limit;
+
+    XdrEncoder(Xdr xdr) {
+        _xdr = xdr;
+        load();
+    }
+
+    /**
+     * Start encoding of the owning Xdr from scratch.
+     */
+    @Override
+    public void beginEncoding() {
+        _xdr.beginEncoding();
+        load();
+    }
+
+    /**
+     * Finish encoding of the owning Xdr, which becomes ready to be sent.
+     */
+    @Override
+    public void endEncoding() {
+        flush();
+        _xdr.endEncoding();
+    }
+
+    /**
+     * Propagate the position of this encoder to the owning Xdr, which
+     * can be used directly afterwards. Encoding may be continued with this
+     * encoder as long as the Xdr is not modified in between.
+     */
+    public void flush() {
+        _buffer.position(_position);
+    }
+
+    @Override
+    public void xdrEncodeInt(int value) {
+        int position = advance(Integer.BYTES);
+        if (_array != null) {
+            INT_VIEW.set(_array, _arrayOffset + position, value);
+        } else {
+            _buffer.putInt(position, value);
+        }
+    }
+
+    @Override
+    public void xdrEncodeLong(long value) {
+        int position = advance(Long.BYTES);
+        if (_array != null) {
+            LONG_VIEW.set(_array, _arrayOffset + position, value);
+        } else {
+            _buffer.putLong(position, value);
+        }
+    }
+
+    @Override
+    public void xdrEncodeBoolean(boolean bool) {
+        xdrEncodeInt(bool ? 1 : 0);
+    }
+
+    @Override
+    public void xdrEncodeFloat(float value) {
+        xdrEncodeInt(Float.floatToIntBits(value));
+    }
+
+    @Override
+    public void xdrEncodeDouble(double value) {
+        xdrEncodeLong(Double.doubleToLongBits(value));
+    }
+
+    @Override
+    public void xdrEncodeByte(byte value) {
+        xdrEncodeInt(value);
+    }
+
+    @Override
+    public void xdrEncodeShort(short value) {
+        xdrEncodeInt(value);
+    }
+
+    @Override
+    public void xdrEncodeIntVector(int[] ints) {
+        xdrEncodeInt(ints.length);
+        xdrEncodeIntFixedVector(ints, ints.length);
+    }
+
+    @Override
+    public void xdrEncodeIntFixedVector(int[] ints, int length) {
+        checkArraySize(ints.length, length);
+        int position = advance(Integer.BYTES * length);
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                INT_VIEW.set(_array, offset + i * Integer.BYTES, ints[i]);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                _buffer.putInt(position + i * Integer.BYTES, ints[i]);
+            }
+        }
+    }
+
+    @Override
+    public void xdrEncodeLongVector(long[] longs) {
+        xdrEncodeInt(longs.length);
+        xdrEncodeLongFixedVector(longs, longs.length);
+    }
+
+    @Override
+    public void xdrEncodeLongFixedVector(long[] longs, int length) {
+        checkArraySize(longs.length, length);
+        int position = advance(Long.BYTES * length);
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                LONG_VIEW.set(_array, offset + i * Long.BYTES, longs[i]);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                _buffer.putLong(position + i * Long.BYTES, longs[i]);
+            }
+        }
+    }
+
+    @Override
+    public void xdrEncodeFloatVector(float[] value) {
+        xdrEncodeInt(value.length);
+        xdrEncodeFloatFixedVector(value, value.length);
+    }
+
+    @Override
+    public void xdrEncodeFloatFixedVector(float[] value, int length) {
+        checkArraySize(value.length, length);
+        int position = advance(Float.BYTES * length);
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                INT_VIEW.set(_array, offset + i * Float.BYTES, Float.floatToIntBits(value[i]));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                _buffer.putInt(position + i * Float.BYTES, Float.floatToIntBits(value[i]));
+            }
+        }
+    }
+
+    @Override
+    public void xdrEncodeDoubleVector(double[] value) {
+        xdrEncodeInt(value.length);
+        xdrEncodeDoubleFixedVector(value, value.length);
+    }
+
+    @Override
+    public void xdrEncodeDoubleFixedVector(double[] value, int length) {
+        checkArraySize(value.length, length);
+        int position = advance(Double.BYTES * length);
+        if (_array != null) {
+            int offset = _arrayOffset + position;
+            for (int i = 0; i < length; i++) {
+                LONG_VIEW.set(_array, offset + i * Double.BYTES, Double.doubleToLongBits(value[i]));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                _buffer.putLong(position + i * Double.BYTES, Double.doubleToLongBits(value[i]));
+            }
+        }
+    }
+
+    @Override
+    public void xdrEncodeByteVector(byte[] value) {
+        xdrEncodeInt(value.length);
+        xdrEncodeByteFixedVector(value, value.length);
+    }
+
+    @Override
+    public void xdrEncodeByteFixedVector(byte[] value, int length) {
+        checkArraySize(value.length, length);
+        // each byte is packed into XDR int
+        int position = advance(Integer.BYTES * length);
+        for (int i = 0; i < length; i++) {
+            putInt(position + i * Integer.BYTES, value[i]);
+        }
+    }
+
+    @Override
+    public void xdrEncodeShortVector(short[] value) {
+        xdrEncodeInt(value.length);
+        xdrEncodeShortFixedVector(value, value.length);
+    }
+
+    @Override
+    public void xdrEncodeShortFixedVector(short[] value, int length) {
+        checkArraySize(value.length, length);
+        // each short is packed into XDR int
+        int position = advance(Integer.BYTES * length);
+        for (int i = 0; i < length; i++) {
+            putInt(position + i * Integer.BYTES, value[i]);
+        }
+    }
+
+    @Override
+    public void xdrEncodeDynamicOpaque(byte[] opaque) {
+        xdrEncodeInt(opaque.length);
+        xdrEncodeOpaque(opaque, 0, opaque.length);
+    }
+
+    @Override
+    public void xdrEncodeOpaque(byte[] opaque, int len) {
+        xdrEncodeOpaque(opaque, 0, len);
+    }
+
+    @Override
+    public void xdrEncodeOpaque(byte[] opaque, int offset, int len) {
+        int padding = (4 - (len & 3)) & 3;
+        int position = advance(len + padding);
+        if (_array != null) {
+            int start = _arrayOffset + position;
+            System.arraycopy(opaque, offset, _array, start, len);
+            Arrays.fill(_array, start + len, start + len + padding, (byte) 0);
+        } else {
+            _buffer.position(position);
+            _buffer.put(opaque, offset, len);
+            _buffer.put(PADDING_ZEROS, 0, padding);
+        }
+    }
+
+    @Override
+    public void xdrEncodeString(String str) {
+        if (str == null) {
+            str = "";
+        }
+
+        int len = str.length();
+        int maxSize = Integer.BYTES + Utf8Coder.MAX_BYTES_PER_CHAR * len + 3;
+        if (len <= Utf8Coder.MAX_TRANSCODED_LENGTH && _array != null && _limit - _position < maxSize) {
+            grow(maxSize);
+        }
+        if (len > Utf8Coder.MAX_TRANSCODED_LENGTH || _array == null) {
+            // direct and composite buffers take a bulk copy of the bytes
+            xdrEncodeDynamicOpaque(str.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        // transcode short strings straight into the backing array
+        int start = _position + Integer.BYTES;
+        int size = Utf8Coder.encode(str, _array, _arrayOffset + start);
+        int padding = (4 - (size & 3)) & 3;
+        xdrEncodeInt(size);
+        int position = _arrayOffset + advance(size + padding) + size;
+        Arrays.fill(_array, position, position + padding, (byte) 0);
+    }
+
+    @Override
+    public void xdrEncodeByteBuffer(ByteBuffer buf) {
+        int len = buf.remaining();
+        int padding = (4 - (len & 3)) & 3;
+        xdrEncodeInt(len);
+        int position = advance(len + padding);
+        if (_array != null) {
+            int start = _arrayOffset + position;
+            buf.get(_array, start, len);
+            Arrays.fill(_array, start + len, start + len + padding, (byte) 0);
+        } else {
+            _buffer.position(position);
+            _buffer.put(buf);
+            _buffer.put(PADDING_ZEROS, 0, padding);
+        }
+    }
+
+    private void putInt(int position, int value) {
+        if (_array != null) {
+            INT_VIEW.set(_array, _arrayOffset + position, value);
+        } else {
+            _buffer.putInt(position, value);
+        }
+    }
+
+    /**
+     * Move the position by {@code size} bytes, growing the buffer if needed.
+     *
+     * @return the position before the move.
+     */
+    private int advance(int size) {
+        if (_limit - _position < size) {
+            grow(size);
+        }
+        int position = _position;
+        _position = position + size;
+        return position;
+    }
+
+    private void grow(int size) {
+        flush();
+        _xdr.ensureCapacity(size);
+        load();
+    }
+
+    /**
+     * Load the state of the Xdr's current buffer.
+     */
+    private void load() {
+        Buffer buffer = _xdr._buffer;
+        _buffer = buffer;
+        if (buffer.hasArray()) {
+            _array = buffer.array();
+            _arrayOffset = buffer.arrayOffset();
+        } else {
+            _array = null;
+            _arrayOffset = 0;
+        }
+        _position = buffer.position();
+        _limit = buffer.limit();
+    }
+
+    private static void checkArraySize(int actual, int expected) {
+        if (actual != expected) {
+            throw new IllegalArgumentException("array size does not match protocol specification");
+        }
+    }
+}
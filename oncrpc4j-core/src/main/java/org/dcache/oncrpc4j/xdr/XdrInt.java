@@ -22,7 +22,7 @@ package org.dcache.oncrpc4j.xdr;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
 import java.io.IOException;
 
-public class XdrInt implements XdrAble {
+public class XdrInt implements XdrAble, XdrSizeable {
 
     private int _value;
 
@@ -48,4 +48,9 @@ public class XdrInt implements XdrAble {
     public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
         xdr.xdrEncodeInt(_value);
     }
+
+    @Override
+    public int xdrEncodedSize() {
+        return Integer.BYTES;
+    }
 }
\ No newline at end of file
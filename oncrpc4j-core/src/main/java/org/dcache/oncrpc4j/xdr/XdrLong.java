@@ -3,7 +3,7 @@ package org.dcache.oncrpc4j.xdr;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
 import java.io.IOException;
 
-public class XdrLong implements XdrAble {
+public class XdrLong implements XdrAble, XdrSizeable {
 
     private long _value;
 
@@ -25,4 +25,9 @@ public class XdrLong implements XdrAble {
     public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
         xdr.xdrEncodeLong(_value);
     }
+
+    @Override
+    public int xdrEncodedSize() {
+        return Long.BYTES;
+    }
 }
@@ -29,7 +29,7 @@ import java.util.Arrays;
  * The wrapper provides equals and hashCode methods to make use in collections
  * more effective.
  */
-public class XdrOpaque implements XdrAble {
+public class XdrOpaque implements XdrAble, XdrSizeable {
 
     private byte[] _opaque;
 
@@ -83,4 +83,9 @@ public class XdrOpaque implements XdrAble {
     public void xdrEncode(XdrEncodingStream xdr) throws OncRpcException, IOException {
         xdr.xdrEncodeDynamicOpaque(_opaque);
     }
+
+    @Override
+    public int xdrEncodedSize() {
+        return XdrSizeable.dynamicOpaqueSize(_opaque.length);
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2026 Deutsches Elektronen-Synchroton,
+ * Member of the Helmholtz Association, (DESY), HAMBURG, GERMANY
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.oncrpc4j.xdr;
+
+/**
+ * An optional contract for {@link XdrAble} objects which are able to tell
+ * the size of their encoded form in advance. This allows encoders to allocate
+ * the buffer once, instead of growing it during encoding.
+ *
+ * @since 3.5
+ */
+public interface XdrSizeable {
+
+    /**
+     * Get the number of bytes required to encode this object. The returned
+     * value must be the exact encoded size or its upper bound.
+     *
+     * @return size of encoded object in bytes.
+     */
+    int xdrEncodedSize();
+
+    /**
+     * Get the encoded size of a variable-length opaque, including length and
+     * padding.
+     *
+     * @param len the length of the opaque data.
+     * @return size of encoded opaque in bytes.
+     */
+    static int dynamicOpaqueSize(int len) {
+        return Integer.BYTES + ((len + 3) & ~3);
+    }
+}
@@ -20,10 +20,11 @@
 package org.dcache.oncrpc4j.xdr;
 
 import org.dcache.oncrpc4j.rpc.OncRpcException;
+import com.google.common.base.Utf8;
 import java.io.IOException;
 import java.util.Objects;
 
-public class XdrString implements XdrAble {
+public class XdrString implements XdrAble, XdrSizeable {
 
     private String _value;
 
@@ -50,6 +51,22 @@ public class XdrString implements XdrAble {
         xdr.xdrEncodeString(_value);
     }
 
+    @Override
+    public int xdrEncodedSize() {
+        if (_value == null) {
+            return XdrSizeable.dynamicOpaqueSize(0);
+        }
+
+        int len;
+        try {
+            len = Utf8.encodedLength(_value);
+        } catch (IllegalArgumentException e) {
+            // unpaired surrogates, use the upper bound
+            len = _value.length() * 3;
+        }
+        return XdrSizeable.dynamicOpaqueSize(len);
+    }
+
     @Override
     public String toString() {
         return _value;
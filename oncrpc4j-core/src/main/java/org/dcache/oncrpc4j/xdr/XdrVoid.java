@@ -22,7 +22,7 @@ package org.dcache.oncrpc4j.xdr;
 import org.dcache.oncrpc4j.rpc.OncRpcException;
 import java.io.IOException;
 
-public class XdrVoid implements XdrAble {
+public class XdrVoid implements XdrAble, XdrSizeable {
 
     /**
      * Encodes -- that is: serializes -- a void into a XDR stream in
@@ -48,6 +48,11 @@ public class XdrVoid implements XdrAble {
     {
     }
 
+    @Override
+    public int xdrEncodedSize() {
+        return 0;
+    }
+
     /**
      * Static <code>XdrVoid</code> instance, which can be used in cases
      * where no data is to be serialized or deserialized but some ONC/RPC
@@ -0,0 +1,202 @@
+package org.dcache.oncrpc4j.grizzly;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.FileTransfer;
+import org.glassfish.grizzly.WriteResult;
+import org.glassfish.grizzly.asyncqueue.WritableMessage;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamingMessageWriterTest {
+
+    private Connection<InetSocketAddress> connection;
+    private MessageSequencer sequencer;
+
+    /**
+     * Writes, which are not completed yet.
+     */
+    private Deque<Write> pending;
+    private ByteArrayOutputStream written;
+    private boolean completeImmediately;
+
+    private Integer result;
+    private Throwable failure;
+
+    private final CompletionHandler<Integer, Object> handler = new CompletionHandler<>() {
+        @Override
+        public void completed(Integer n, Object attachment) {
+            result = n;
+        }
+
+        @Override
+        public void failed(Throwable t, Object attachment) {
+            failure = t;
+        }
+    };
+
+    private record Write(Buffer buffer, org.glassfish.grizzly.CompletionHandler<WriteResult<WritableMessage, InetSocketAddress>> handler) {
+
+        void complete() {
+            handler.completed(WriteResult.create(null, buffer, null, buffer.remaining()));
+        }
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        connection = mock(Connection.class);
+        when(connection.getMemoryManager()).thenReturn(MemoryManager.DEFAULT_MEMORY_MANAGER);
+        sequencer = new MessageSequencer();
+        pending = new ArrayDeque<>();
+        written = new ByteArrayOutputStream();
+
+        doAnswer(i -> {
+            Buffer buffer = i.getArgument(1);
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.mark();
+            buffer.get(bytes);
+            buffer.reset();
+            written.write(bytes);
+            Write w = new Write(buffer, i.getArgument(2));
+            if (completeImmediately) {
+                w.complete();
+            } else {
+                pending.add(w);
+            }
+            return null;
+        }).when(connection).write(nullable(InetSocketAddress.class), any(WritableMessage.class),
+                any(org.glassfish.grizzly.CompletionHandler.class));
+    }
+
+    @Test
+    public void shouldWriteFileInBoundedPieces() throws IOException {
+
+        byte[] data = randomData(3 * StreamingMessageWriter.PIECE_SIZE + 17);
+        File file = tempFile(data);
+
+        send(buffer("head"), new FileTransfer(file, 1, data.length - 1), buffer("tail"));
+
+        int writes = 0;
+        while (!pending.isEmpty()) {
+            assertEquals("more than one piece in flight", 1, pending.size());
+            Write w = pending.poll();
+            assertTrue(w.buffer().remaining() <= StreamingMessageWriter.PIECE_SIZE);
+            w.complete();
+            writes++;
+        }
+
+        // head, four pieces of the file and tail
+        assertEquals(6, writes);
+        assertArrayEquals(concat("head".getBytes(), Arrays.copyOfRange(data, 1, data.length), "tail".getBytes()),
+                written.toByteArray());
+        assertEquals(Integer.valueOf(written.size()), result);
+        assertNull(failure);
+    }
+
+    @Test
+    public void shouldDeferOtherMessages() throws IOException {
+
+        byte[] data = randomData(2 * StreamingMessageWriter.PIECE_SIZE);
+        File file = tempFile(data);
+        List<String> sent = new ArrayList<>();
+
+        send(new FileTransfer(file));
+        sequencer.send(() -> sent.add("other"));
+
+        while (!pending.isEmpty()) {
+            assertTrue("message sent before streamed one finished", sent.isEmpty());
+            pending.poll().complete();
+        }
+
+        assertEquals(List.of("other"), sent);
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    public void shouldLoopOnSynchronousCompletion() throws IOException {
+
+        // enough pieces to overflow the stack, if written recursively
+        byte[] data = randomData(10_000 * 1024);
+        File file = tempFile(data);
+
+        completeImmediately = true;
+        send(new FileTransfer(file));
+
+        assertArrayEquals(data, written.toByteArray());
+        assertEquals(Integer.valueOf(data.length), result);
+    }
+
+    @Test
+    public void shouldFailOnTruncatedFile() throws IOException {
+
+        byte[] data = randomData(2048);
+        File file = tempFile(data);
+        List<String> sent = new ArrayList<>();
+
+        FileTransfer chunk = new FileTransfer(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(1024);
+        }
+        send(chunk);
+        sequencer.send(() -> sent.add("other"));
+
+        assertTrue(failure instanceof EOFException);
+        assertNull(result);
+        assertEquals(List.of("other"), sent);
+    }
+
+    private void send(WritableMessage... parts) {
+        sequencer.send(new StreamingMessageWriter<>(connection, null, sequencer, parts, null, handler));
+    }
+
+    private static Buffer buffer(String s) {
+        Buffer buffer = MemoryManager.DEFAULT_MEMORY_MANAGER.allocate(s.length());
+        buffer.put(s.getBytes());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] randomData(int size) {
+        byte[] data = new byte[size];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+
+    private static File tempFile(byte[] data) throws IOException {
+        File file = File.createTempFile("oncrpc4j", "data");
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] a : arrays) {
+            out.writeBytes(a);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,11 +1,17 @@
 package org.dcache.oncrpc4j.rpc;
 
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
 import org.dcache.oncrpc4j.xdr.XdrString;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
@@ -14,7 +20,14 @@ import java.security.PrivateKey;
 import java.security.SecureRandom;
 import java.security.Security;
 import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -31,6 +44,7 @@ import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.dcache.oncrpc4j.xdr.XdrVoid;
+import org.glassfish.grizzly.FileTransfer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -525,6 +539,109 @@ public class ClientServerTLSTest {
         clntCall.call(NULL, XdrVoid.XDR_VOID, new XdrVoid());
     }
 
+    @Test
+    public void shouldStreamFileChunks() throws Exception {
+
+        // larger than a TLS record and not aligned to it
+        byte[] data = new byte[1024 * 1024 + 3];
+        ThreadLocalRandom.current().nextBytes(data);
+        Path file = Files.createTempFile("oncrpc4j", "data");
+        file.toFile().deleteOnExit();
+        Files.write(file, data);
+
+        XdrAble readv = new XdrAble() {
+            @Override
+            public void xdrEncode(XdrEncodingStream xdr) throws IOException {
+                xdr.xdrEncodeInt(42);
+                ((Xdr) xdr).xdrEncodeFileChunk(new FileTransfer(file.toFile(), 1, data.length - 1));
+                ((Xdr) xdr).xdrEncodeFileChunk(new FileTransfer(file.toFile(), 7, 5));
+                xdr.xdrEncodeString("tail");
+            }
+
+            @Override
+            public void xdrDecode(XdrDecodingStream xdr) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        svc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withWorkerThreadIoStrategy()
+                .withBindAddress("127.0.0.1")
+                .withSelectorThreadPoolSize(1)
+                .withWorkerThreadPoolSize(4)
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), call -> {
+                    if (call.getProcedure() == UPPER) {
+                        call.reply(readv);
+                    } else {
+                        echo.dispatchOncRpcCall(call);
+                    }
+                })
+                .withSSLContext(sslServerContext)
+                .withServiceName("svc")
+                .build();
+        svc.start();
+
+        clnt = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withClientMode()
+                .withWorkerThreadIoStrategy()
+                .withSelectorThreadPoolSize(1)
+                .withWorkerThreadPoolSize(1)
+                .withSSLContext(sslClientContext)
+                .withServiceName("clnt")
+                .build();
+        clnt.start();
+
+        RpcTransport t = clnt.connect(svc.getInetSocketAddress(IpProtocolType.TCP));
+
+        // file replies must not interleave with concurrent replies
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> {
+                    RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), t);
+                    for (int j = 0; j < 2; j++) {
+                        List<Object> decoded = new ArrayList<>();
+                        call.call(UPPER, XdrVoid.XDR_VOID, new XdrAble() {
+                            @Override
+                            public void xdrDecode(XdrDecodingStream xdr) throws IOException {
+                                decoded.add(xdr.xdrDecodeInt());
+                                decoded.add(xdr.xdrDecodeDynamicOpaque());
+                                decoded.add(xdr.xdrDecodeDynamicOpaque());
+                                decoded.add(xdr.xdrDecodeString());
+                            }
+
+                            @Override
+                            public void xdrEncode(XdrEncodingStream xdr) {
+                                throw new UnsupportedOperationException();
+                            }
+                        });
+
+                        assertEquals(42, decoded.get(0));
+                        assertArrayEquals(Arrays.copyOfRange(data, 1, data.length), (byte[]) decoded.get(1));
+                        assertArrayEquals(Arrays.copyOfRange(data, 7, 12), (byte[]) decoded.get(2));
+                        assertEquals("tail", decoded.get(3));
+
+                        XdrString s = new XdrString("hello" + j);
+                        XdrString reply = new XdrString();
+                        call.call(ECHO, s, reply);
+                        assertEquals("reply mismatch", s, reply);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public static SSLContext createClientSslContext(Certificate certificate) throws Exception {
 
         char[] password = "password".toCharArray();
@@ -1,16 +1,41 @@
 package org.dcache.oncrpc4j.rpc;
 
+import com.google.common.base.Strings;
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrAble;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
 import org.dcache.oncrpc4j.xdr.XdrVoid;
 import org.dcache.oncrpc4j.xdr.XdrString;
 import java.io.EOFException;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.dcache.oncrpc4j.rpc.metrics.RpcMetrics;
+import org.dcache.oncrpc4j.rpc.metrics.StageMetrics;
+import org.glassfish.grizzly.FileTransfer;
+import org.glassfish.grizzly.memory.MemoryProbe;
+import org.glassfish.grizzly.memory.PooledMemoryManager;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -196,4 +221,431 @@ public class ClientServerTest {
                 clntCall.getTransport().getReplyQueue().getPendingRequests().isEmpty());
     }
 
+
+    @Test
+    public void shouldRecyclePooledCallBuffers() throws IOException {
+
+        OncRpcClient pooledClnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withMemoryAllocator(MemoryAllocator.POOLED_HEAP)
+                .withServiceName("pooled-clnt")
+                .build(svc.getInetSocketAddress(IpProtocolType.TCP));
+
+        try {
+            RpcTransport transport = pooledClnt.connect();
+            Thread caller = Thread.currentThread();
+            AtomicInteger allocated = new AtomicInteger();
+            AtomicInteger released = new AtomicInteger();
+            ((PooledMemoryManager) transport.getMemoryManager()).getMonitoringConfig().addProbes(new MemoryProbe.Adapter() {
+                @Override
+                public void onBufferAllocateFromPoolEvent(int size) {
+                    // reply buffers are allocated by the selector thread
+                    if (Thread.currentThread() == caller) {
+                        allocated.incrementAndGet();
+                    }
+                }
+
+                @Override
+                public void onBufferReleaseToPoolEvent(int size) {
+                    released.incrementAndGet();
+                }
+            });
+
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), transport);
+            // big enough to grow beyond the initial buffer
+            String payload = Strings.repeat("x", 64 * 1024);
+            int calls = 100;
+            for (int i = 0; i < calls; i++) {
+                XdrString s = new XdrString(payload + i);
+                XdrString reply = new XdrString();
+                call.call(ECHO, s, reply);
+                assertEquals("reply mismatch", s, reply);
+            }
+
+            // every call message is taken from the pool and returned after the write
+            assertTrue("call buffers not allocated from the pool", allocated.get() >= calls);
+            assertTrue("call buffers not returned into the pool: " + released.get() + " of " + allocated.get(),
+                    released.get() >= allocated.get());
+        } finally {
+            pooledClnt.close();
+        }
+    }
+
+    @Test
+    public void shouldUseSegmentedEncoding() throws IOException {
+
+        OncRpcClient segmentedClnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withSegmentedEncoding(4096)
+                .withServiceName("segmented-clnt")
+                .build(svc.getInetSocketAddress(IpProtocolType.TCP));
+
+        try {
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), segmentedClnt.connect());
+            XdrString s = new XdrString(Strings.repeat("x", 1024 * 1024));
+            XdrString reply = new XdrString();
+            call.call(ECHO, s, reply);
+            assertEquals("reply mismatch", s, reply);
+        } finally {
+            segmentedClnt.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldLimitInFlightCallsPerConnection() throws Exception {
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        RpcDispatchable slow = (RpcCall call) -> {
+            int n = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(n, Math::max);
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            XdrString s = new XdrString();
+            call.retrieveCall(s);
+            inFlight.decrementAndGet();
+            call.reply(s);
+        };
+
+        OncRpcSvc limitedSvc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withWorkerThreadIoStrategy()
+                .withBindAddress("127.0.0.1")
+                .withSelectorThreadPoolSize(1)
+                .withWorkerThreadPoolSize(8)
+                .withMaxInFlightCalls(2)
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), slow)
+                .withServiceName("limited-svc")
+                .build();
+        limitedSvc.start();
+
+        OncRpcClient limitedClnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withServiceName("limited-clnt")
+                .build(limitedSvc.getInetSocketAddress(IpProtocolType.TCP));
+        try {
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), limitedClnt.connect());
+            List<CompletableFuture<XdrString>> replies = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                replies.add(call.call(ECHO, new XdrString("hello" + i), XdrString.class));
+            }
+
+            for (int i = 0; i < replies.size(); i++) {
+                assertEquals("hello" + i, replies.get(i).get().stringValue());
+            }
+            assertTrue("too many in-flight calls: " + maxInFlight.get(), maxInFlight.get() <= 2);
+
+            // reading must be resumed after all calls are replied
+            XdrString reply = new XdrString();
+            call.call(ECHO, new XdrString("bye"), reply);
+            assertEquals("bye", reply.stringValue());
+        } finally {
+            limitedClnt.close();
+            limitedSvc.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldCloseConnectionOnOversizedRecord() throws Exception {
+
+        OncRpcSvc limitedSvc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withBindAddress("127.0.0.1")
+                .withMaxRecordSize(1024)
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), c -> c.reply(XdrVoid.XDR_VOID))
+                .withServiceName("limited-svc")
+                .build();
+        limitedSvc.start();
+
+        OncRpcClient limitedClnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withServiceName("limited-clnt")
+                .build(limitedSvc.getInetSocketAddress(IpProtocolType.TCP));
+        try {
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), limitedClnt.connect());
+            try {
+                call.call(ECHO, new XdrString(Strings.repeat("x", 4096)), XdrVoid.XDR_VOID);
+                fail("oversized call unexpectedly succeeded");
+            } catch (EOFException expected) {
+            }
+        } finally {
+            limitedClnt.close();
+            limitedSvc.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldExportCallMetrics() throws Exception {
+
+        OncRpcSvc metricsSvc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withBindAddress("127.0.0.1")
+                .withMetrics()
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), c -> c.reply(XdrVoid.XDR_VOID))
+                .withServiceName("metrics-svc")
+                .build();
+        metricsSvc.start();
+
+        OncRpcClient metricsClnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withServiceName("metrics-clnt")
+                .build(metricsSvc.getInetSocketAddress(IpProtocolType.TCP));
+        ObjectName name = metricsSvc.getMetrics().getObjectName();
+        try {
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), metricsClnt.connect());
+            for (int i = 0; i < 3; i++) {
+                call.call(ECHO, XdrVoid.XDR_VOID, XdrVoid.XDR_VOID);
+            }
+
+            // metrics are updated after the reply is sent
+            RpcMetrics metrics = metricsSvc.getMetrics();
+            while (metrics.getCalls() < 3) {
+                Thread.sleep(10);
+            }
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(3L, server.getAttribute(name, "Calls"));
+            assertEquals(0L, server.getAttribute(name, "InFlight"));
+            assertTrue((Double) server.getAttribute(name, "LatencyP99") > 0);
+
+            CompositeData[] procedures = (CompositeData[]) server.getAttribute(name, "Procedures");
+            assertEquals(1, procedures.length);
+            assertEquals(PROGNUM, procedures[0].get("program"));
+            assertEquals(ECHO, procedures[0].get("procedure"));
+            assertEquals(3L, procedures[0].get("calls"));
+        } finally {
+            metricsClnt.close();
+            metricsSvc.stop();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test(timeout = 10000)
+    public void shouldProcessCallsInPipeline() throws Exception {
+
+        AtomicReference<String> handlerThread = new AtomicReference<>();
+        Set<String> encoderThreads = ConcurrentHashMap.newKeySet();
+        RpcDispatchable echo = (RpcCall call) -> {
+            handlerThread.set(Thread.currentThread().getName());
+            XdrString s = new XdrString();
+            call.retrieveCall(s);
+            call.reply(new XdrAble() {
+                @Override
+                public void xdrDecode(XdrDecodingStream xdr) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void xdrEncode(XdrEncodingStream xdr) {
+                    encoderThreads.add(Thread.currentThread().getName());
+                    xdr.xdrEncodeString(s.stringValue());
+                }
+            });
+        };
+
+        OncRpcSvc pipelineSvc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withUDP()
+                .withBindAddress("127.0.0.1")
+                .withMetrics()
+                .withPipelineStage(PipelineStage.AUTH, 1, 2)
+                .withPipelineStage(PipelineStage.DISPATCH, 2, 4)
+                .withPipelineStage(PipelineStage.REPLY, 1, 4)
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), echo)
+                .withServiceName("pipeline-svc")
+                .build();
+        pipelineSvc.start();
+
+        OncRpcClient pipelineClnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withServiceName("pipeline-clnt")
+                .build(pipelineSvc.getInetSocketAddress(IpProtocolType.TCP));
+        OncRpcClient udpClnt = new OncRpcClient(pipelineSvc.getInetSocketAddress(IpProtocolType.UDP), IpProtocolType.UDP);
+        ObjectName name = pipelineSvc.getMetrics().getObjectName();
+        try {
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), pipelineClnt.connect());
+            List<CompletableFuture<XdrString>> replies = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                replies.add(call.call(ECHO, new XdrString("hello" + i), XdrString.class));
+            }
+
+            for (int i = 0; i < replies.size(); i++) {
+                assertEquals("hello" + i, replies.get(i).get().stringValue());
+            }
+            assertTrue("not executed by dispatch stage: " + handlerThread.get(),
+                    handlerThread.get().startsWith("pipeline-svc dispatch"));
+            // the dispatch stage encodes the reply itself, when the reply stage is full
+            assertTrue("not encoded by reply stage: " + encoderThreads,
+                    encoderThreads.stream().anyMatch(t -> t.startsWith("pipeline-svc reply")));
+
+            XdrString reply = new XdrString();
+            new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), udpClnt.connect())
+                    .call(ECHO, new XdrString("udp"), reply);
+            assertEquals("udp", reply.stringValue());
+
+            try {
+                new RpcCall(PROGNUM, PROGVER + 1, new RpcAuthTypeNone(), pipelineClnt.connect())
+                        .call(ECHO, new XdrString("unavailable"), reply);
+                fail("program unavailable not reported");
+            } catch (OncRpcAcceptedException e) {
+                // expected
+            }
+
+            List<StageMetrics> stages = pipelineSvc.getStageMetrics();
+            assertEquals(3, stages.size());
+            assertTrue("auth stage not used", stages.get(0).getTasks() > 0);
+            // all replies, including errors, are encoded and sent by the reply stage; metrics are updated after the reply is sent
+            while (stages.get(2).getTasks() < 202) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, stages.get(2).getQueueDepth());
+
+            CompositeData[] statistics = (CompositeData[]) ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "Stages");
+            assertEquals(3, statistics.length);
+            assertEquals("auth", statistics[0].get("name"));
+            assertEquals(1, statistics[0].get("threads"));
+            assertEquals(2, statistics[0].get("queueSize"));
+        } finally {
+            udpClnt.close();
+            pipelineClnt.close();
+            pipelineSvc.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldSendMultipleFileChunks() throws Exception {
+
+        byte[] data = new byte[256 * 1024];
+        ThreadLocalRandom.current().nextBytes(data);
+        Path file = Files.createTempFile("oncrpc4j", "data");
+        file.toFile().deleteOnExit();
+        Files.write(file, data);
+
+        // readv-style reply: misaligned regions interleaved with other fields
+        XdrAble readv = new XdrAble() {
+            @Override
+            public void xdrEncode(XdrEncodingStream xdr) throws IOException {
+                xdr.xdrEncodeInt(42);
+                ((Xdr) xdr).xdrEncodeFileChunk(new FileTransfer(file.toFile(), 1, 100_001));
+                xdr.xdrEncodeBoolean(true);
+                ((Xdr) xdr).xdrEncodeFileChunk(new FileTransfer(file.toFile(), 200_000, 7));
+                xdr.xdrEncodeString("tail");
+            }
+
+            @Override
+            public void xdrDecode(XdrDecodingStream xdr) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        OncRpcSvc fileSvc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withBindAddress("127.0.0.1")
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), c -> c.reply(readv))
+                .withServiceName("file-svc")
+                .build();
+        fileSvc.start();
+
+        OncRpcClient fileClnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withServiceName("file-clnt")
+                .build(fileSvc.getInetSocketAddress(IpProtocolType.TCP));
+        try {
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), fileClnt.connect());
+            for (int i = 0; i < 2; i++) {
+                List<Object> decoded = new ArrayList<>();
+                call.call(ECHO, XdrVoid.XDR_VOID, new XdrAble() {
+                    @Override
+                    public void xdrDecode(XdrDecodingStream xdr) throws IOException {
+                        decoded.add(xdr.xdrDecodeInt());
+                        decoded.add(xdr.xdrDecodeDynamicOpaque());
+                        decoded.add(xdr.xdrDecodeBoolean());
+                        decoded.add(xdr.xdrDecodeDynamicOpaque());
+                        decoded.add(xdr.xdrDecodeString());
+                    }
+
+                    @Override
+                    public void xdrEncode(XdrEncodingStream xdr) {
+                        throw new UnsupportedOperationException();
+                    }
+                });
+
+                assertEquals(42, decoded.get(0));
+                assertArrayEquals(Arrays.copyOfRange(data, 1, 100_002), (byte[]) decoded.get(1));
+                assertEquals(true, decoded.get(2));
+                assertArrayEquals(Arrays.copyOfRange(data, 200_000, 200_007), (byte[]) decoded.get(3));
+                assertEquals("tail", decoded.get(4));
+            }
+        } finally {
+            fileClnt.close();
+            fileSvc.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldReleaseShallowBufferAfterSend() throws Exception {
+
+        byte[] data = new byte[1000];
+        ThreadLocalRandom.current().nextBytes(data);
+        CountDownLatch released = new CountDownLatch(2);
+
+        XdrAble reply = new XdrAble() {
+            @Override
+            public void xdrEncode(XdrEncodingStream xdr) throws IOException {
+                ByteBuffer direct = ByteBuffer.allocateDirect(data.length).put(data).flip();
+                ((Xdr) xdr).xdrEncodeShallowByteBuffer(direct, released::countDown);
+            }
+
+            @Override
+            public void xdrDecode(XdrDecodingStream xdr) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        // UDP replies can't use sendfile, the buffer must still be released after the write
+        OncRpcSvc udpSvc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withUDP()
+                .withBindAddress("127.0.0.1")
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), c -> c.reply(reply))
+                .withServiceName("udp-svc")
+                .build();
+        udpSvc.start();
+
+        OncRpcClient udpClnt = OncRpcClient.newBuilder()
+                .withUDP()
+                .withServiceName("udp-clnt")
+                .build(udpSvc.getInetSocketAddress(IpProtocolType.UDP));
+        try {
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), udpClnt.connect());
+            for (int i = 0; i < 2; i++) {
+                AtomicReference<byte[]> decoded = new AtomicReference<>();
+                call.call(ECHO, XdrVoid.XDR_VOID, new XdrAble() {
+                    @Override
+                    public void xdrDecode(XdrDecodingStream xdr) throws IOException {
+                        decoded.set(xdr.xdrDecodeDynamicOpaque());
+                    }
+
+                    @Override
+                    public void xdrEncode(XdrEncodingStream xdr) {
+                        throw new UnsupportedOperationException();
+                    }
+                });
+                assertArrayEquals(data, decoded.get());
+            }
+            assertTrue(released.await(5, TimeUnit.SECONDS));
+        } finally {
+            udpClnt.close();
+            udpSvc.stop();
+        }
+    }
 }
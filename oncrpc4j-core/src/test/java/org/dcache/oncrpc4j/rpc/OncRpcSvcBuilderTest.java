@@ -23,6 +23,8 @@ import org.dcache.oncrpc4j.rpc.OncRpcSvc;
 import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
 
 import java.security.NoSuchAlgorithmException;
+import org.dcache.oncrpc4j.util.ShardedExecutorService;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import org.junit.Test;
@@ -68,6 +70,33 @@ public class OncRpcSvcBuilderTest {
         assertNotSame("Executoed in the same thread", thisThread, holder[0]);
     }
 
+    @Test
+    public void shouldReturnVirtualThreadExecutorForVirtualThreadStrategy() throws Exception {
+
+        OncRpcSvcBuilder builder = new OncRpcSvcBuilder()
+                .withVirtualThreadIoStrategy();
+
+        ExecutorService executorService = builder.getWorkerThreadExecutorService();
+        Thread thread = executorService.submit(Thread::currentThread).get();
+        executorService.shutdown();
+
+        assertTrue("Not executed in a virtual thread", thread.isVirtual());
+    }
+
+    @Test
+    public void shouldReturnShardedExecutorForShardedWorkerThreadStrategy() {
+
+        OncRpcSvcBuilder builder = new OncRpcSvcBuilder()
+                .withShardedWorkerThreadIoStrategy()
+                .withSelectorThreadPoolSize(3);
+
+        ExecutorService executorService = builder.getWorkerThreadExecutorService();
+        executorService.shutdown();
+
+        assertTrue("Not a sharded executor", executorService instanceof ShardedExecutorService);
+        assertEquals("One shard per selector expected", 3, ((ShardedExecutorService) executorService).getShardCount());
+    }
+
     @Test
     public void shouldReturnGivenExecutorForWorkerThreadStrategy() {
 
@@ -117,4 +146,22 @@ public class OncRpcSvcBuilderTest {
                 .withSSLContextProvider(() -> SSLContext.getDefault())
                 .build();
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionOnUnknownExecutor() {
+        new OncRpcSvcBuilder()
+                .withTCP()
+                .withRpcService(new OncRpcProgram(100017, 1), call -> {},
+                        ExecutionHint.WORKER, Map.of(1, ExecutionHint.executor("bulk")))
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionOnPipelineWithExternalExecutor() {
+        new OncRpcSvcBuilder()
+                .withTCP()
+                .withPipeline()
+                .withWorkerThreadExecutionService(Executors.newCachedThreadPool())
+                .build();
+    }
 }
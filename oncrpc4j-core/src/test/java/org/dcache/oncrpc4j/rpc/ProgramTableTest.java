@@ -0,0 +1,85 @@
+package org.dcache.oncrpc4j.rpc;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class ProgramTableTest {
+
+    private ProgramTable table;
+
+    @Before
+    public void setUp() {
+        table = new ProgramTable();
+    }
+
+    @Test
+    public void shouldReturnNullForMissingProgram() {
+        assertNull(table.get(100003, 3));
+        assertNull(table.get(new OncRpcProgram(100003, 3)));
+        assertNull(table.remove(new OncRpcProgram(100003, 3)));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void shouldLookupByProgramAndVersion() {
+        RpcDispatchable v3 = mock(RpcDispatchable.class);
+        RpcDispatchable v4 = mock(RpcDispatchable.class);
+        table.put(new OncRpcProgram(100003, 3), v3);
+        table.put(new OncRpcProgram(100003, 4), v4);
+
+        assertSame(v3, table.get(100003, 3));
+        assertSame(v4, table.get(100003, 4));
+        assertSame(v4, table.get(new OncRpcProgram(100003, 4)));
+        assertNull(table.get(100003, 2));
+        assertNull(table.get(3, 100003));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void shouldReplaceAndRemove() {
+        RpcDispatchable first = mock(RpcDispatchable.class);
+        RpcDispatchable second = mock(RpcDispatchable.class);
+        OncRpcProgram program = new OncRpcProgram(100005, 1);
+
+        assertNull(table.put(program, first));
+        assertSame(first, table.put(program, second));
+        assertSame(second, table.get(100005, 1));
+        assertSame(second, table.remove(program));
+        assertNull(table.get(100005, 1));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void shouldHandleManyPrograms() {
+        Map<OncRpcProgram, RpcDispatchable> expected = new HashMap<>();
+        for (int prog = 0; prog < 100; prog++) {
+            for (int vers = -1; vers < 3; vers++) {
+                expected.put(new OncRpcProgram(prog, vers), mock(RpcDispatchable.class));
+            }
+        }
+        table.putAll(expected);
+
+        assertEquals(expected, table);
+        expected.forEach((program, handler) ->
+                assertSame(handler, table.get(program.getNumber(), program.getVersion())));
+
+        table.clear();
+        assertTrue(table.isEmpty());
+        assertNull(table.get(1, 1));
+    }
+
+    @Test
+    public void shouldIterateOverSnapshot() {
+        table.put(new OncRpcProgram(1, 1), mock(RpcDispatchable.class));
+        var programs = table.entrySet();
+        table.put(new OncRpcProgram(2, 1), mock(RpcDispatchable.class));
+
+        assertEquals(1, programs.size());
+        assertEquals(2, table.keySet().size());
+    }
+}
@@ -5,13 +5,17 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.channels.CompletionHandler;
 import java.util.concurrent.TimeUnit;
+import org.dcache.oncrpc4j.util.HashedWheelTimer;
 import org.junit.Test;
 import org.junit.Before;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 public class ReplyQueueTest {
@@ -32,11 +36,11 @@ public class ReplyQueueTest {
 
         replyQueue.registerKey(1, addr, handler, 1, TimeUnit.MINUTES);
 
-        assertFalse(replyQueue.getTimeoutQueue().isEmpty());
+        assertEquals(1, replyQueue.getPendingTimeouts());
 
         replyQueue.get(1);
 
-        assertTrue(replyQueue.getTimeoutQueue().isEmpty());
+        assertEquals(0, replyQueue.getPendingTimeouts());
     }
 
     @Test
@@ -46,7 +50,7 @@ public class ReplyQueueTest {
 
         TimeUnit.SECONDS.sleep(1);
         assertTrue(replyQueue.getPendingRequests().isEmpty());
-        assertTrue(replyQueue.getTimeoutQueue().isEmpty());
+        assertEquals(0, replyQueue.getPendingTimeouts());
         verify(handler).failed(any(), any());
     }
 
@@ -55,7 +59,69 @@ public class ReplyQueueTest {
 
         replyQueue.registerKey(1, addr, handler);
         assertFalse(replyQueue.getPendingRequests().isEmpty());
-        assertTrue(replyQueue.getTimeoutQueue().isEmpty());
+        assertEquals(0, replyQueue.getPendingTimeouts());
     }
 
+    @Test
+    public void testInvokeHandlerOnTimeoutWithWheelTimer() throws EOFException, InterruptedException {
+
+        replyQueue = new ReplyQueue(new HashedWheelTimer("test"));
+        replyQueue.registerKey(1, addr, handler, 1, TimeUnit.NANOSECONDS);
+
+        TimeUnit.SECONDS.sleep(1);
+        assertTrue(replyQueue.getPendingRequests().isEmpty());
+        assertEquals(0, replyQueue.getPendingTimeouts());
+        verify(handler).failed(any(), any());
+        replyQueue.shutdown();
+    }
+
+    @Test
+    public void testRemoveCancelWithWheelTimer() throws EOFException {
+
+        replyQueue = new ReplyQueue(new HashedWheelTimer("test"));
+        replyQueue.registerKey(1, addr, handler, 1, TimeUnit.MINUTES);
+        assertEquals(1, replyQueue.getPendingTimeouts());
+
+        replyQueue.get(1);
+        assertEquals(0, replyQueue.getPendingTimeouts());
+        replyQueue.shutdown();
+    }
+
+    @Test
+    public void testDisconnectAffectsOnlyOwnPartition() throws EOFException {
+
+        ReplyQueue connection1 = replyQueue.newConnectionQueue();
+        ReplyQueue connection2 = replyQueue.newConnectionQueue();
+        CompletionHandler<RpcReply, RpcTransport> otherHandler = mock(CompletionHandler.class);
+
+        // both connections share the same local address
+        SocketAddress addr = new InetSocketAddress(111);
+        connection1.registerKey(1, addr, handler);
+        connection2.registerKey(1, addr, otherHandler);
+
+        connection1.handleDisconnect(addr);
+
+        verify(handler).failed(any(), any());
+        verify(otherHandler, never()).failed(any(), any());
+        assertTrue(connection1.getPendingRequests().isEmpty());
+        assertEquals(otherHandler, connection2.get(1));
+    }
+
+    @Test
+    public void testConnectionQueueSharesTimer() throws EOFException {
+
+        ReplyQueue connectionQueue = replyQueue.newConnectionQueue();
+        connectionQueue.registerKey(1, addr, handler, 1, TimeUnit.MINUTES);
+        assertEquals(1, replyQueue.getPendingTimeouts());
+
+        // must not stop the shared timer
+        connectionQueue.shutdown();
+        connectionQueue.registerKey(2, addr, handler, 1, TimeUnit.MINUTES);
+        assertEquals(2, replyQueue.getPendingTimeouts());
+    }
+
+    @Test
+    public void testNextXidUnique() {
+        assertNotEquals(replyQueue.nextXid(), replyQueue.nextXid());
+    }
 }
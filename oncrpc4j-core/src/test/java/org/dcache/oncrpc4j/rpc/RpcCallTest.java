@@ -19,9 +19,17 @@
  */
 package org.dcache.oncrpc4j.rpc;
 
+import java.net.InetSocketAddress;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.RejectedExecutionException;
 import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrVoid;
 import org.junit.Test;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.*;
+
 public class RpcCallTest {
 
     private Xdr _xdr = new Xdr(1024);
@@ -55,4 +63,20 @@ public class RpcCallTest {
         _call.accept();
     }
 
+    @Test
+    public void testReplyRejectedByReplyStage() {
+        RpcTransport transport = mock(RpcTransport.class);
+        when(transport.getRemoteSocketAddress()).thenReturn(new InetSocketAddress(0));
+        CompletionHandler<Integer, InetSocketAddress> listener = mock(CompletionHandler.class);
+
+        RpcCall call = new RpcCall(0, _xdr, transport);
+        call.registerSendOnceListener(listener);
+        call.setReplyExecutor(task -> {
+            throw new RejectedExecutionException();
+        });
+        call.reply(XdrVoid.XDR_VOID);
+
+        verify(listener).failed(isA(RejectedExecutionException.class), any());
+        verify(transport, never()).send(any(), any(), any());
+    }
 }
\ No newline at end of file
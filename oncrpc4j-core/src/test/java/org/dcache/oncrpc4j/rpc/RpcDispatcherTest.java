@@ -4,9 +4,15 @@ import com.google.common.util.concurrent.MoreExecutors;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import javax.security.auth.Subject;
+import org.dcache.oncrpc4j.util.VirtualThreadExecutorService;
 import org.dcache.oncrpc4j.xdr.XdrVoid;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.junit.Test;
@@ -63,6 +69,44 @@ public class RpcDispatcherTest {
         assertSame("subject not propagated", call.getCredential().getSubject(), callSubject.get());
     }
 
+    @Test
+    public void testSubjectPropagationOnVirtualThread() throws Exception {
+
+        CompletableFuture<Subject> callSubject = new CompletableFuture<>();
+        CompletableFuture<Boolean> isVirtual = new CompletableFuture<>();
+
+        programs.put(PROG_ONE, (call) -> {
+            isVirtual.complete(Thread.currentThread().isVirtual());
+            callSubject.complete(Subject.current());
+        });
+
+        VirtualThreadExecutorService executor = new VirtualThreadExecutorService("test", 1);
+        try {
+            new RpcDispatcher(executor, programs, true, callInterceptor).handleRead(context);
+
+            assertTrue("not executed on virtual thread", isVirtual.get(1, TimeUnit.SECONDS));
+            assertSame("subject not propagated", call.getCredential().getSubject(), callSubject.get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDispatchWithProgramTable() throws IOException {
+        RpcDispatchable program = mock(RpcDispatchable.class);
+        ProgramTable table = new ProgramTable();
+        dispatcher = new RpcDispatcher(MoreExecutors.newDirectExecutorService(), table, false,
+              callInterceptor);
+
+        dispatcher.handleRead(context);
+        verify(call).failProgramUnavailable();
+
+        // registered after dispatcher is created
+        table.put(PROG_ONE, program);
+        dispatcher.handleRead(context);
+        verify(program).dispatchOncRpcCall(call);
+    }
+
     @Test
     public void testProgramUnavailable() throws IOException {
 
@@ -122,6 +166,149 @@ public class RpcDispatcherTest {
         verify(call).failRpcSystem();
     }
 
+    @Test
+    public void testAsyncReplyAfterCompletion() throws IOException {
+
+        CompletableFuture<XdrVoid> result = new CompletableFuture<>();
+        programs.put(PROG_ONE, (AsyncRpcDispatchable) (call) -> result);
+
+        dispatcher.handleRead(context);
+        verify(call, never()).reply(any());
+
+        result.complete(XdrVoid.XDR_VOID);
+        verify(call).reply(XdrVoid.XDR_VOID);
+    }
+
+    @Test
+    public void testAsyncRejected() throws IOException {
+
+        programs.put(PROG_ONE, (AsyncRpcDispatchable) (call) ->
+                CompletableFuture.failedFuture(new RpcException(RpcRejectStatus.RPC_MISMATCH, "", XdrVoid.XDR_VOID)));
+
+        dispatcher.handleRead(context);
+        verify(call).reject(eq(RpcRejectStatus.RPC_MISMATCH), any());
+    }
+
+    @Test
+    public void testAsyncRpcGarbageOnDependentStage() throws IOException {
+
+        programs.put(PROG_ONE, (AsyncRpcDispatchable) (call) ->
+                CompletableFuture.completedFuture(1).thenApply(i -> {
+                    throw new CompletionException(new IOException());
+                }));
+
+        dispatcher.handleRead(context);
+        verify(call).failRpcGarbage();
+    }
+
+    @Test
+    public void testAsyncSystemError() throws IOException {
+
+        programs.put(PROG_ONE, (AsyncRpcDispatchable) (call) ->
+                CompletableFuture.failedFuture(new IllegalStateException()));
+
+        dispatcher.handleRead(context);
+        verify(call).failRpcSystem();
+    }
+
+    @Test
+    public void testAsyncSystemErrorOnNullResult() throws IOException {
+
+        programs.put(PROG_ONE, (AsyncRpcDispatchable) (call) -> CompletableFuture.completedFuture(null));
+
+        dispatcher.handleRead(context);
+        verify(call, never()).reply(any());
+        verify(call).failRpcSystem();
+    }
+
+    @Test
+    public void testAsyncReleasesWorker() throws Exception {
+
+        Map<Integer, CompletableFuture<XdrVoid>> pending = new HashMap<>();
+        programs.put(PROG_ONE, (AsyncRpcDispatchable) (call) ->
+                pending.computeIfAbsent(call.getXid(), x -> new CompletableFuture<>()));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            dispatcher = new RpcDispatcher(executor, programs, false, callInterceptor);
+            RpcCall[] calls = new RpcCall[100];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = mock(RpcCall.class);
+                when(calls[i].getProgramVersion()).thenReturn(1);
+                when(calls[i].getProgram()).thenReturn(1);
+                when(calls[i].getXid()).thenReturn(i);
+                when(context.getMessage()).thenReturn(calls[i]);
+                dispatcher.handleRead(context);
+            }
+
+            // all calls are in-flight on a single worker thread
+            executor.submit(() -> {}).get(1, TimeUnit.SECONDS);
+            assertEquals(calls.length, pending.size());
+
+            pending.values().forEach(f -> f.complete(XdrVoid.XDR_VOID));
+            for (RpcCall c : calls) {
+                verify(c).reply(XdrVoid.XDR_VOID);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInlineExecutionHint() throws IOException {
+
+        ExecutorService worker = mock(ExecutorService.class);
+        AtomicReference<Thread> callThread = new AtomicReference<>();
+        programs.put(PROG_ONE, (call) -> callThread.set(Thread.currentThread()));
+
+        ExecutionTable table = new ExecutionTable(Map.of(PROG_ONE, ExecutionHint.INLINE), Map.of(), Map.of());
+        new RpcDispatcher(worker, programs, false, callInterceptor, null, table, null).handleRead(context);
+
+        assertSame("not executed inline", Thread.currentThread(), callThread.get());
+        verifyNoInteractions(worker);
+    }
+
+    @Test
+    public void testProcedureExecutionHint() throws Exception {
+
+        ExecutorService worker = mock(ExecutorService.class);
+        ExecutorService bulk = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Thread> callThread = new CompletableFuture<>();
+            programs.put(PROG_ONE, (call) -> callThread.complete(Thread.currentThread()));
+            when(call.getProcedure()).thenReturn(7);
+
+            ExecutionTable table = new ExecutionTable(Map.of(PROG_ONE, ExecutionHint.INLINE),
+                    Map.of(PROG_ONE, Map.of(7, ExecutionHint.executor("bulk"))),
+                    Map.of("bulk", bulk));
+            new RpcDispatcher(worker, programs, false, callInterceptor, null, table, null).handleRead(context);
+
+            assertNotSame("executed inline", Thread.currentThread(), callThread.get(1, TimeUnit.SECONDS));
+            verifyNoInteractions(worker);
+        } finally {
+            bulk.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkerExecutionHint() throws IOException {
+
+        ExecutorService worker = mock(ExecutorService.class);
+        programs.put(PROG_ONE, (call) -> {});
+        when(call.getProcedure()).thenReturn(1);
+
+        ExecutionTable table = new ExecutionTable(Map.of(PROG_ONE, ExecutionHint.INLINE),
+                Map.of(PROG_ONE, Map.of(1, ExecutionHint.WORKER)), Map.of());
+        new RpcDispatcher(worker, programs, false, callInterceptor, null, table, null).handleRead(context);
+
+        verify(worker).execute(any());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownExecutor() {
+        new ExecutionTable(Map.of(PROG_ONE, ExecutionHint.executor("bulk")), Map.of(), Map.of());
+    }
+
     @Test
     public void testCallInterceptor() throws IOException {
 
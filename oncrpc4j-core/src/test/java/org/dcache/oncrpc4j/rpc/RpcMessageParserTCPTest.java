@@ -28,6 +28,7 @@ import java.nio.ByteOrder;
 import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.junit.*;
 import static org.mockito.Mockito.*;
@@ -43,7 +44,9 @@ public class RpcMessageParserTCPTest {
 
     @Before
     public void setUp() {
-        mockedContext = FilterChainContext.create(mock(Connection.class));
+        Connection connection = mock(Connection.class);
+        when(connection.getAttributes()).thenReturn(Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createSafeAttributeHolder());
+        mockedContext = FilterChainContext.create(connection);
         tcpParser = new RpcMessageParserTCP();
         rpc = new RpcProtocolFilter(new ReplyQueue());
     }
@@ -91,6 +94,55 @@ public class RpcMessageParserTCPTest {
         assertEquals(INVOKE, rpc.handleRead(mockedContext).type());
     }
 
+    @Test
+    public void testFragmentedMessageInSlices() throws IOException, OncRpcException {
+        Xdr xdr = new XdrStreamBuilder().withArgs(new XdrString(new String(new byte[8192]))).build();
+        Buffer b = toFragmentedBuffer(xdr, 1024);
+        int size = b.remaining();
+
+        // simulate data arriving in small chunks appended to the same buffer
+        for (int limit = 100; limit < size; limit += 100) {
+            b.limit(limit);
+            mockedContext.setMessage(b);
+            assertEquals(STOP, tcpParser.handleRead(mockedContext).type());
+            assertEquals(0, b.position());
+        }
+
+        b.limit(size);
+        mockedContext.setMessage(b);
+        assertEquals(INVOKE, tcpParser.handleRead(mockedContext).type());
+        assertEquals(INVOKE, rpc.handleRead(mockedContext).type());
+    }
+
+    @Test
+    public void testMessagesInSlicesOneAfterAnother() throws IOException, OncRpcException {
+        for (int i = 0; i < 2; i++) {
+            Xdr xdr = new XdrStreamBuilder().withArgs(new XdrString(new String(new byte[4096]))).build();
+            Buffer b = toFragmentedBuffer(xdr, 1024);
+            int size = b.remaining();
+            b.limit(size - 1);
+            mockedContext.setMessage(b);
+            assertEquals(STOP, tcpParser.handleRead(mockedContext).type());
+
+            b.limit(size);
+            mockedContext.setMessage(b);
+            assertEquals(INVOKE, tcpParser.handleRead(mockedContext).type());
+        }
+    }
+
+    @Test
+    public void testOversizedRecord() throws IOException, OncRpcException {
+        tcpParser = new RpcMessageParserTCP(1024, null);
+        Xdr xdr = new XdrStreamBuilder().withArgs(new XdrString(new String(new byte[4096]))).build();
+        Buffer b = toFragmentedBuffer(xdr, 8192);
+        // only the fragment header has arrived
+        b.limit(4);
+        mockedContext.setMessage(b);
+
+        assertEquals(STOP, tcpParser.handleRead(mockedContext).type());
+        verify(mockedContext.getConnection()).closeSilently();
+    }
+
     private class XdrStreamBuilder {
 
         int xid = 0;
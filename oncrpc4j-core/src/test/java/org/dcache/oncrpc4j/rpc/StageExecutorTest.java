@@ -0,0 +1,89 @@
+package org.dcache.oncrpc4j.rpc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.dcache.oncrpc4j.rpc.metrics.StageMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StageExecutorTest {
+
+    private StageExecutor stage;
+
+    @Before
+    public void setUp() {
+        stage = new StageExecutor("test", PipelineStage.DISPATCH, 1, 1);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        stage.shutdownNow();
+        assertTrue(stage.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldRunInCallerThreadWhenQueueIsFull() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        stage.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+
+        // occupies the only queue slot
+        stage.execute(() -> {});
+
+        Thread[] executedBy = new Thread[1];
+        stage.execute(() -> executedBy[0] = Thread.currentThread());
+        release.countDown();
+
+        StageMetrics metrics = stage.getMetrics();
+        assertSame("overflow not executed by caller", Thread.currentThread(), executedBy[0]);
+        assertEquals(1, metrics.getOverflows());
+        assertEquals("dispatch", metrics.getName());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldTrackQueueDepth() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        stage.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+
+        assertTrue(stage.tryReserve());
+        assertFalse("reserved more slots than queue size", stage.tryReserve());
+
+        CountDownLatch done = new CountDownLatch(1);
+        stage.executeReserved(done::countDown);
+        assertEquals(1, stage.getMetrics().getQueueDepth());
+
+        release.countDown();
+        done.await();
+        assertEquals(0, stage.getMetrics().getQueueDepth());
+        assertTrue(stage.tryReserve());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldRejectAfterShutdown() {
+        stage.shutdown();
+        stage.execute(() -> {});
+    }
+}
@@ -0,0 +1,173 @@
+package org.dcache.oncrpc4j.rpc.gss;
+
+import java.io.IOException;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.security.auth.Subject;
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuth;
+import org.dcache.oncrpc4j.rpc.RpcAuthType;
+import org.dcache.oncrpc4j.rpc.RpcAuthVerifier;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.RpcDispatchable;
+import org.dcache.oncrpc4j.rpc.RpcReply;
+import org.dcache.oncrpc4j.rpc.RpcTransport;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrDecodingStream;
+import org.dcache.oncrpc4j.xdr.XdrEncodingStream;
+import org.dcache.oncrpc4j.xdr.XdrString;
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSName;
+import org.ietf.jgss.MessageProp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class GssProtocolFilterTest {
+
+    private static final int PROGNUM = 100017;
+    private static final int PROGVER = 1;
+    private static final int ECHO = 1;
+
+    private static final int MAX_IN_FLIGHT = 2;
+
+    private OncRpcSvc svc;
+    private OncRpcClient clnt;
+
+    @Before
+    public void setUp() throws Exception {
+
+        GSSContext context = mock(GSSContext.class);
+        when(context.getMIC(any(byte[].class), anyInt(), anyInt(), any(MessageProp.class))).thenReturn(new byte[4]);
+        when(context.getSrcName()).thenReturn(mock(GSSName.class));
+
+        GssSessionManager sessionManager = mock(GssSessionManager.class);
+        when(sessionManager.getEstablishedContext(any())).thenReturn(context);
+        when(sessionManager.destroyContext(any())).thenReturn(context);
+        when(sessionManager.subjectOf(any(), any())).thenReturn(new Subject());
+
+        RpcDispatchable echo = (RpcCall call) -> {
+            XdrString s = new XdrString();
+            call.retrieveCall(s);
+            call.reply(s);
+        };
+
+        svc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withBindAddress("127.0.0.1")
+                .withMaxInFlightCalls(MAX_IN_FLIGHT)
+                .withGssSessionManager(sessionManager)
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), echo)
+                .withServiceName("gss-svc")
+                .build();
+        svc.start();
+
+        clnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withServiceName("gss-clnt")
+                .build(svc.getInetSocketAddress(IpProtocolType.TCP));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        clnt.close();
+        svc.stop();
+    }
+
+    @Test(timeout = 10000)
+    public void shouldReleaseInFlightBudgetOfGssCalls() throws Exception {
+
+        RpcCall call = new RpcCall(PROGNUM, PROGVER, new GssCredential(GssProc.RPCSEC_GSS_DATA), clnt.connect());
+        for (int i = 0; i < 4 * MAX_IN_FLIGHT; i++) {
+            XdrString reply = new XdrString();
+            call.call(ECHO, new XdrString("hello" + i), reply, 2, TimeUnit.SECONDS);
+            assertEquals("hello" + i, reply.stringValue());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldReleaseInFlightBudgetOfDestroyedContext() throws Exception {
+
+        RpcTransport transport = clnt.connect();
+        // no reply is sent to destroy requests
+        RpcCall destroy = new RpcCall(PROGNUM, PROGVER, new GssCredential(GssProc.RPCSEC_GSS_DESTROY), transport);
+        CountDownLatch unanswered = new CountDownLatch(2 * MAX_IN_FLIGHT);
+        for (int i = 0; i < 2 * MAX_IN_FLIGHT; i++) {
+            destroy.call(0, new XdrString("bye"), new CompletionHandler<RpcReply, RpcTransport>() {
+                @Override
+                public void completed(RpcReply result, RpcTransport attachment) {
+                }
+
+                @Override
+                public void failed(Throwable t, RpcTransport attachment) {
+                    unanswered.countDown();
+                }
+            }, 100, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(unanswered.await(5, TimeUnit.SECONDS));
+
+        // reading must not be suspended
+        RpcCall call = new RpcCall(PROGNUM, PROGVER, new GssCredential(GssProc.RPCSEC_GSS_DATA), transport);
+        XdrString reply = new XdrString();
+        call.call(ECHO, new XdrString("hello"), reply, 2, TimeUnit.SECONDS);
+        assertEquals("hello", reply.stringValue());
+    }
+
+    /**
+     * Client side RPCSEC_GSS credential of an established context, with
+     * service {@code none}.
+     */
+    private static class GssCredential implements RpcAuth {
+
+        private static final byte[] HANDLE = new byte[16];
+
+        private final int _proc;
+        private int _sequence;
+
+        GssCredential(int proc) {
+            _proc = proc;
+        }
+
+        @Override
+        public int type() {
+            return RpcAuthType.RPCGSS_SEC;
+        }
+
+        @Override
+        public RpcAuthVerifier getVerifier() {
+            return new RpcAuthVerifier(RpcAuthType.RPCGSS_SEC, new byte[0]);
+        }
+
+        @Override
+        public Subject getSubject() {
+            return new Subject();
+        }
+
+        @Override
+        public void xdrEncode(XdrEncodingStream xdr) throws IOException {
+            xdr.xdrEncodeInt(RpcAuthType.RPCGSS_SEC);
+            // version, procedure, sequence, service and handle
+            xdr.xdrEncodeInt(5 * Integer.BYTES + HANDLE.length);
+            xdr.xdrEncodeInt(1);
+            xdr.xdrEncodeInt(_proc);
+            xdr.xdrEncodeInt(++_sequence);
+            xdr.xdrEncodeInt(RpcGssService.RPC_GSS_SVC_NONE);
+            xdr.xdrEncodeDynamicOpaque(HANDLE);
+            getVerifier().xdrEncode(xdr);
+        }
+
+        @Override
+        public void xdrDecode(XdrDecodingStream xdr) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
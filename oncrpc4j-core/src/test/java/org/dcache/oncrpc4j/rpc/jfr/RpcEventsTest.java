@@ -0,0 +1,110 @@
+package org.dcache.oncrpc4j.rpc.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.dcache.oncrpc4j.rpc.OncRpcClient;
+import org.dcache.oncrpc4j.rpc.OncRpcProgram;
+import org.dcache.oncrpc4j.rpc.OncRpcSvc;
+import org.dcache.oncrpc4j.rpc.OncRpcSvcBuilder;
+import org.dcache.oncrpc4j.rpc.RpcAuthTypeNone;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
+import org.dcache.oncrpc4j.xdr.XdrString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RpcEventsTest {
+
+    private static final int PROGNUM = 100017;
+    private static final int PROGVER = 1;
+    private static final int ECHO = 1;
+
+    private OncRpcSvc svc;
+    private OncRpcClient clnt;
+
+    @Before
+    public void setUp() throws IOException {
+        svc = new OncRpcSvcBuilder()
+                .withoutAutoPublish()
+                .withTCP()
+                .withWorkerThreadIoStrategy()
+                .withBindAddress("127.0.0.1")
+                .withRpcService(new OncRpcProgram(PROGNUM, PROGVER), call -> {
+                    XdrString s = new XdrString();
+                    call.retrieveCall(s);
+                    call.reply(s);
+                })
+                .withServiceName("svc")
+                .build();
+        svc.start();
+
+        clnt = OncRpcClient.newBuilder()
+                .withTCP()
+                .withServiceName("clnt")
+                .build(svc.getInetSocketAddress(IpProtocolType.TCP));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        clnt.close();
+        svc.stop();
+    }
+
+    @Test
+    public void shouldRecordCallLifecycle() throws Exception {
+
+        Path file = Files.createTempFile("oncrpc4j", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RecordAssemblyEvent.class).withoutThreshold();
+            recording.enable(CallDecodeEvent.class).withoutThreshold();
+            recording.enable(CallQueuedEvent.class).withoutThreshold();
+            recording.enable(CallExecutionEvent.class).withoutThreshold();
+            recording.enable(ReplyEncodeEvent.class).withoutThreshold();
+            recording.enable(SendEvent.class).withoutThreshold();
+            recording.start();
+
+            RpcCall call = new RpcCall(PROGNUM, PROGVER, new RpcAuthTypeNone(), clnt.connect());
+            XdrString reply = new XdrString();
+            call.call(ECHO, new XdrString("hello"), reply);
+            assertEquals("hello", reply.stringValue());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            Set<String> names = events.stream()
+                    .map(e -> e.getEventType().getName())
+                    .collect(Collectors.toSet());
+
+            assertTrue(names.contains("org.dcache.oncrpc4j.RecordAssembly"));
+            assertTrue(names.contains("org.dcache.oncrpc4j.CallDecode"));
+            assertTrue(names.contains("org.dcache.oncrpc4j.CallQueued"));
+            assertTrue(names.contains("org.dcache.oncrpc4j.CallExecution"));
+            assertTrue(names.contains("org.dcache.oncrpc4j.ReplyEncode"));
+            assertTrue(names.contains("org.dcache.oncrpc4j.Send"));
+
+            RecordedEvent execution = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("org.dcache.oncrpc4j.CallExecution"))
+                    .findAny()
+                    .get();
+            assertEquals(PROGNUM, execution.getInt("program"));
+            assertEquals(PROGVER, execution.getInt("version"));
+            assertEquals(ECHO, execution.getInt("procedure"));
+            assertFalse(execution.getBoolean("failed"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.dcache.oncrpc4j.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer("test", 1, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdown();
+    }
+
+    @Test
+    public void shouldExpireTimeout() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void shouldExpireTimeoutLongerThanWheel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void shouldNotRunCancelledTimeout() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        Timer.Timeout timeout = timer.schedule(counter::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.pendingTimeouts());
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.pendingTimeouts());
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void shouldNotCancelExpiredTimeout() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Timer.Timeout timeout = timer.schedule(latch::countDown, 1, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void shouldExpireManyTimeouts() throws InterruptedException {
+        int n = 10_000;
+        AtomicInteger expired = new AtomicInteger();
+        int expected = n;
+        for (int i = 0; i < n; i++) {
+            Timer.Timeout timeout = timer.schedule(expired::incrementAndGet, i % 20, TimeUnit.MILLISECONDS);
+            // short timeouts may expire before cancel
+            if (i % 2 == 1 && timeout.cancel()) {
+                expected--;
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (expired.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, expired.get());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void shouldNotExpireVeryLongTimeout() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        timer.schedule(counter::incrementAndGet, Long.MAX_VALUE, TimeUnit.DAYS);
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(0, counter.get());
+        assertEquals(1, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void shouldMeasureDelayFromFirstSchedule() throws InterruptedException {
+        // the timer is idle for a number of ticks longer than the wheel
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void shouldExpirePendingTimeoutAfterShutdown() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        timer.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+        timer.schedule(counter::incrementAndGet, 20, TimeUnit.MILLISECONDS).cancel();
+        timer.shutdown();
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(0, counter.get());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldRejectAfterShutdown() {
+        timer.shutdown();
+        timer.schedule(() -> {}, 1, TimeUnit.MILLISECONDS);
+    }
+}
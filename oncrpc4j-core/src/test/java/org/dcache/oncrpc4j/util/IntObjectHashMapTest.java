@@ -0,0 +1,75 @@
+package org.dcache.oncrpc4j.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IntObjectHashMapTest {
+
+    private IntObjectHashMap<String> map;
+
+    @Before
+    public void setUp() {
+        map = new IntObjectHashMap<>();
+    }
+
+    @Test
+    public void shouldReturnNullForMissingKey() {
+        assertNull(map.get(1));
+        assertNull(map.remove(1));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void shouldPutAndGet() {
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.get(1));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void shouldRemove() {
+        map.put(1, "one");
+        map.put(-1, "minus one");
+        assertEquals("one", map.remove(1));
+        assertNull(map.get(1));
+        assertEquals("minus one", map.get(-1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void shouldClear() {
+        map.put(1, "one");
+        map.put(2, "two");
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        assertEquals(0, map.keys().length);
+    }
+
+    @Test
+    public void shouldMatchHashMap() {
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(1024);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.values().size());
+        for (int key : map.keys()) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
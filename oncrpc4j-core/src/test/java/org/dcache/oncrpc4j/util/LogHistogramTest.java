@@ -0,0 +1,68 @@
+package org.dcache.oncrpc4j.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogHistogramTest {
+
+    private LogHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LogHistogram();
+    }
+
+    @Test
+    public void shouldReturnZeroWhenEmpty() {
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(99), 0);
+        assertEquals(0.0, histogram.mean(), 0);
+    }
+
+    @Test
+    public void shouldMapValuesToContiguousBuckets() {
+        for (int bucket = 0; bucket < 400; bucket++) {
+            long low = LogHistogram.lowerBoundOf(bucket);
+            long high = LogHistogram.upperBoundOf(bucket);
+            assertEquals(bucket, LogHistogram.bucketOf(low));
+            assertEquals(bucket, LogHistogram.bucketOf(high));
+            assertEquals(high + 1, LogHistogram.lowerBoundOf(bucket + 1));
+        }
+        assertEquals(Long.MAX_VALUE, LogHistogram.upperBoundOf(LogHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void shouldReportPercentilesWithinRelativeError() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_500, histogram.mean(), 0.1);
+        assertWithinError(500_000, histogram.percentile(50));
+        assertWithinError(990_000, histogram.percentile(99));
+        assertWithinError(999_000, histogram.percentile(99.9));
+        assertEquals(1_000_000, histogram.percentile(100));
+    }
+
+    @Test
+    public void shouldRecordNegativeAsZero() {
+        histogram.record(-1);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentile(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidPercentile() {
+        histogram.percentile(0);
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue("expected " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.125);
+    }
+}
@@ -0,0 +1,99 @@
+package org.dcache.oncrpc4j.util;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.nio.SelectorRunner;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShardedExecutorServiceTest {
+
+    private ShardedExecutorService executor;
+
+    private TCPNIOTransport transport;
+
+    @Before
+    public void setUp() {
+        transport = TCPNIOTransportBuilder.newInstance().build();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldExecuteTasksOfSelectorInSameShard() throws Exception {
+        executor = new ShardedExecutorService("test", 4, 1);
+        SelectorRunner selector = SelectorRunner.create(transport);
+
+        Set<Thread> threads = new HashSet<>();
+        for (int i = 0; i < 16; i++) {
+            threads.add(workerOf(selector));
+        }
+
+        assertEquals("tasks executed by different shards", 1, threads.size());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldAssignSelectorsToDistinctShards() throws Exception {
+        executor = new ShardedExecutorService("test", 2, 1);
+        SelectorRunner first = SelectorRunner.create(transport);
+        SelectorRunner second = SelectorRunner.create(transport);
+
+        // tasks of other threads must not take a shard of a selector
+        executor.submit(() -> {}).get();
+        Thread firstWorker = workerOf(first);
+        executor.submit(() -> {}).get();
+        Thread secondWorker = workerOf(second);
+
+        assertNotSame("selectors share a shard", firstWorker, secondWorker);
+        assertSame(firstWorker, workerOf(first));
+        assertSame(secondWorker, workerOf(second));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldAssignSubmittersToDifferentShards() throws Exception {
+        executor = new ShardedExecutorService("test", 2, 1);
+
+        Thread[] workers = new Thread[2];
+        Thread[] submitters = new Thread[workers.length];
+        for (int i = 0; i < submitters.length; i++) {
+            int n = i;
+            submitters[i] = new Thread(() -> {
+                try {
+                    workers[n] = executor.submit(Thread::currentThread).get();
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            submitters[i].start();
+            submitters[i].join();
+        }
+
+        assertNotSame("submitters share a shard", workers[0], workers[1]);
+    }
+
+    private Thread workerOf(SelectorRunner selector) throws Exception {
+        CompletableFuture<Thread> worker = new CompletableFuture<>();
+        executor.execute(() -> worker.complete(Thread.currentThread()), selector);
+        return worker.get();
+    }
+
+    @Test(timeout = 5000)
+    public void shouldRejectAfterShutdown() {
+        executor = new ShardedExecutorService("test", 2, 1);
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+    }
+}
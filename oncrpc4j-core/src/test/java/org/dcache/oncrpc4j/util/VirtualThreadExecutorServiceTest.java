@@ -0,0 +1,70 @@
+package org.dcache.oncrpc4j.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadExecutorServiceTest {
+
+    private VirtualThreadExecutorService executor;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldLimitConcurrency() throws InterruptedException {
+        executor = new VirtualThreadExecutorService("test", 2);
+
+        int tasks = 16;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(tasks);
+
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        done.await();
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldNotLimitByDefault() throws InterruptedException {
+        executor = new VirtualThreadExecutorService("test", 0);
+
+        int tasks = 64;
+        CountDownLatch started = new CountDownLatch(tasks);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // all tasks run concurrently
+        started.await();
+        release.countDown();
+    }
+}
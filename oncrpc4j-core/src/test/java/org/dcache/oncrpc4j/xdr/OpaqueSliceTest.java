@@ -0,0 +1,179 @@
+package org.dcache.oncrpc4j.xdr;
+
+import java.nio.ByteBuffer;
+import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.BuffersBuffer;
+import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.memory.PooledMemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OpaqueSliceTest {
+
+    @Test
+    public void shouldShareMemoryOfHeapBuffer() throws BadXdrOncRpcException {
+        byte[] message = new byte[]{0, 0, 0, 3, 1, 2, 3, 0, 0, 0, 0, 17};
+        Xdr xdr = new Xdr(message);
+        xdr.beginDecoding();
+
+        try (OpaqueSlice slice = xdr.xdrDecodeOpaqueSlice()) {
+            assertEquals(3, slice.length());
+            assertArrayEquals(new byte[]{1, 2, 3}, slice.toByteArray());
+
+            message[5] = 42;
+            assertArrayEquals(new byte[]{1, 42, 3}, slice.toByteArray());
+        }
+        assertEquals(17, xdr.xdrDecodeInt());
+    }
+
+    @Test
+    public void shouldReturnBufferPerFragment() throws BadXdrOncRpcException {
+        CompositeBuffer composite = BuffersBuffer.create();
+        composite.append(wrap(0, 0, 0, 6, 1, 2));
+        composite.append(wrap(3, 4));
+        composite.append(wrap(5, 6, 0, 0, 0, 0, 0, 17));
+
+        Xdr xdr = new Xdr(composite);
+        xdr.beginDecoding();
+
+        OpaqueSlice slice = xdr.xdrDecodeOpaqueSlice();
+        ByteBuffer[] buffers = slice.buffers();
+        assertEquals(3, buffers.length);
+        assertEquals(2, buffers[0].remaining());
+        assertEquals(2, buffers[1].remaining());
+        assertEquals(2, buffers[2].remaining());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, slice.toByteArray());
+        assertEquals(17, xdr.xdrDecodeInt());
+        slice.release();
+    }
+
+    @Test
+    public void shouldHoldPooledBufferUntilReleased() throws BadXdrOncRpcException {
+        MemoryManager mm = new PooledMemoryManager(64, 1, 0, 1, 0.001f, 0.0f, false);
+        byte[] data = new byte[]{1, 2, 3, 4, 5, 6, 7, 8};
+
+        Xdr xdr = new Xdr(mm.allocate(32), mm);
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(data);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        OpaqueSlice slice = xdr.xdrDecodeOpaqueSlice();
+        xdr.close();
+
+        // must not reuse the memory held by the slice
+        Buffer other = mm.allocate(32);
+        while (other.hasRemaining()) {
+            other.put((byte) -1);
+        }
+
+        assertArrayEquals(data, slice.toByteArray());
+        slice.release();
+    }
+
+    @Test
+    public void shouldNotEncodeReplyIntoSlicedBuffer() throws BadXdrOncRpcException {
+        byte[] data = new byte[]{1, 2, 3, 4, 5, 6, 7, 8};
+        // the reply is encoded by the same Xdr as the call
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(data);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        OpaqueSlice slice = xdr.xdrDecodeOpaqueSlice();
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(new byte[]{-1, -1, -1, -1, -1, -1, -1, -1});
+        xdr.endEncoding();
+        xdr.close();
+
+        assertArrayEquals(data, slice.toByteArray());
+        slice.release();
+    }
+
+    @Test
+    public void shouldHoldPooledBufferAfterReplyEncoded() throws BadXdrOncRpcException {
+        MemoryManager mm = new PooledMemoryManager(64, 1, 0, 1, 0.001f, 0.0f, false);
+        byte[] data = new byte[]{1, 2, 3, 4, 5, 6, 7, 8};
+
+        Xdr xdr = new Xdr(mm.allocate(32), mm);
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(data);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        OpaqueSlice slice = xdr.xdrDecodeOpaqueSlice();
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(new byte[]{-1, -1, -1, -1, -1, -1, -1, -1});
+        xdr.endEncoding();
+        xdr.close();
+
+        // must not reuse the memory held by the slice
+        Buffer other = mm.allocate(32);
+        while (other.hasRemaining()) {
+            other.put((byte) -1);
+        }
+
+        assertArrayEquals(data, slice.toByteArray());
+        slice.release();
+    }
+
+    @Test
+    public void shouldReturnReadOnlyViews() throws BadXdrOncRpcException {
+        OpaqueSlice slice = encodeAndSlice(new byte[]{1, 2, 3, 4, 5});
+        for (ByteBuffer b : slice.buffers()) {
+            assertTrue(b.isReadOnly());
+        }
+        slice.release();
+    }
+
+    @Test
+    public void shouldDecodeEmptySlice() throws BadXdrOncRpcException {
+        OpaqueSlice slice = encodeAndSlice(new byte[0]);
+        assertEquals(0, slice.length());
+        assertEquals(0, slice.buffers().length);
+        assertTrue(slice.release());
+    }
+
+    @Test
+    public void shouldReleaseWithLastReference() throws BadXdrOncRpcException {
+        OpaqueSlice slice = encodeAndSlice(new byte[]{1, 2, 3});
+        slice.retain();
+        assertFalse(slice.release());
+        assertTrue(slice.release());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectAccessAfterRelease() throws BadXdrOncRpcException {
+        OpaqueSlice slice = encodeAndSlice(new byte[]{1, 2, 3});
+        slice.release();
+        slice.buffers();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectDoubleRelease() throws BadXdrOncRpcException {
+        OpaqueSlice slice = encodeAndSlice(new byte[]{1, 2, 3});
+        slice.release();
+        slice.release();
+    }
+
+    private static OpaqueSlice encodeAndSlice(byte[] data) throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(data);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        return xdr.xdrDecodeOpaqueSlice();
+    }
+
+    private static Buffer wrap(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return GrizzlyMemoryManager.wrap(bytes);
+    }
+}
@@ -0,0 +1,215 @@
+package org.dcache.oncrpc4j.xdr;
+
+import java.nio.ByteBuffer;
+import org.glassfish.grizzly.memory.ByteBufferManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class XdrDecoderTest {
+
+    @Test
+    public void shouldDecodeHeapBuffer() throws BadXdrOncRpcException {
+        assertDecodes(new Xdr(8));
+    }
+
+    @Test
+    public void shouldDecodeDirectBuffer() throws BadXdrOncRpcException {
+        MemoryManager mm = new ByteBufferManager(true, 512, 0);
+        assertDecodes(new Xdr(mm.allocate(8), mm));
+    }
+
+    @Test
+    public void shouldDecodeSegmentedBuffer() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(20);
+        assertDecodes(xdr);
+    }
+
+    @Test
+    public void shouldUpdateXdrPosition() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.xdrEncodeLong(2);
+        xdr.xdrEncodeInt(3);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        assertEquals(1, xdr.xdrDecodeInt());
+        XdrDecoder decoder = xdr.decoder();
+        assertEquals(2L, decoder.xdrDecodeLong());
+        decoder.endDecoding();
+        assertEquals(3, xdr.xdrDecodeInt());
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void shouldFailOnShortStream() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        xdr.decoder().xdrDecodeLong();
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void shouldFailOnNegativeArraySize() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(-2);
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        xdr.decoder().xdrDecodeIntVector();
+    }
+
+    @Test
+    public void shouldSkipHeapBuffer() throws BadXdrOncRpcException {
+        assertSkips(new Xdr(8));
+    }
+
+    @Test
+    public void shouldSkipDirectBuffer() throws BadXdrOncRpcException {
+        MemoryManager mm = new ByteBufferManager(true, 512, 0);
+        assertSkips(new Xdr(mm.allocate(8), mm));
+    }
+
+    @Test
+    public void shouldSkipSegmentedBuffer() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(20);
+        assertSkips(xdr);
+    }
+
+    @Test
+    public void shouldFailOnNonZeroPadding() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(3);
+        xdr.xdrEncodeInt(0x01020304);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        try {
+            xdr.decoder().xdrSkipOpaque();
+            fail("non-zero padding not detected by decoder");
+        } catch (BadXdrOncRpcException e) {
+        }
+        xdr.beginDecoding();
+        try {
+            xdr.xdrSkipOpaque();
+            fail("non-zero padding not detected by xdr");
+        } catch (BadXdrOncRpcException e) {
+        }
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void shouldFailToSkipBeyondTheEnd() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(2);
+        xdr.xdrEncodeLong(1);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        xdr.xdrSkipLongVector();
+    }
+
+    private static void assertSkips(Xdr xdr) throws BadXdrOncRpcException {
+        xdr.beginEncoding();
+        xdr.xdrEncodeString("über");
+        xdr.xdrEncodeString("");
+        xdr.xdrEncodeDynamicOpaque(new byte[]{1, 2, 3});
+        xdr.xdrEncodeOpaque(new byte[]{4, 5, 6, 7, 8}, 5);
+        xdr.xdrEncodeIntVector(new int[]{1, 2, 3});
+        xdr.xdrEncodeFloatVector(new float[]{6.5f});
+        xdr.xdrEncodeByteVector(new byte[]{-1, 0, 1});
+        xdr.xdrEncodeShortFixedVector(new short[]{-2, 2}, 2);
+        xdr.xdrEncodeLongVector(new long[]{4, 5});
+        xdr.xdrEncodeDoubleFixedVector(new double[]{7.5, 8.5}, 2);
+        xdr.xdrEncodeInt(17);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        XdrDecoder decoder = xdr.decoder();
+        skipAll(decoder);
+        assertEquals(17, decoder.xdrDecodeInt());
+        assertFalse(decoder.hasMoreData());
+
+        xdr.beginDecoding();
+        skipAll(xdr);
+        assertEquals(17, xdr.xdrDecodeInt());
+        assertFalse(xdr.hasMoreData());
+    }
+
+    private static void skipAll(XdrDecodingStream xdr) throws BadXdrOncRpcException {
+        xdr.xdrSkipString();
+        xdr.xdrSkipString();
+        xdr.xdrSkipOpaque();
+        xdr.xdrSkipFixedOpaque(5);
+        xdr.xdrSkipIntVector();
+        xdr.xdrSkipIntVector();
+        xdr.xdrSkipIntVector();
+        xdr.xdrSkipIntFixedVector(2);
+        xdr.xdrSkipLongVector();
+        xdr.xdrSkipLongFixedVector(2);
+    }
+
+    private static void assertDecodes(Xdr xdr) throws BadXdrOncRpcException {
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(-1);
+        xdr.xdrEncodeLong(Long.MIN_VALUE);
+        xdr.xdrEncodeBoolean(true);
+        xdr.xdrEncodeFloat(1.5f);
+        xdr.xdrEncodeDouble(0.1);
+        xdr.xdrEncodeByte((byte) -3);
+        xdr.xdrEncodeShort((short) -4);
+        xdr.xdrEncodeString("über");
+        xdr.xdrEncodeString("");
+        xdr.xdrEncodeDynamicOpaque(new byte[]{1, 2, 3});
+        xdr.xdrEncodeOpaque(new byte[]{4, 5, 6, 7, 8}, 5);
+        xdr.xdrEncodeByteBuffer(ByteBuffer.wrap(new byte[]{9, 10}));
+        xdr.xdrEncodeIntVector(new int[]{1, 2, 3});
+        xdr.xdrEncodeLongVector(new long[]{4, 5});
+        xdr.xdrEncodeFloatVector(new float[]{6.5f});
+        xdr.xdrEncodeDoubleFixedVector(new double[]{7.5, 8.5}, 2);
+        xdr.xdrEncodeByteVector(new byte[]{-1, 0, 1});
+        xdr.xdrEncodeShortFixedVector(new short[]{-2, 2}, 2);
+        xdr.xdrEncodeInt(17);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        XdrDecoder decoder = xdr.decoder();
+        decoder.beginDecoding();
+        assertEquals(-1, decoder.xdrDecodeInt());
+        assertEquals(Long.MIN_VALUE, decoder.xdrDecodeLong());
+        assertTrue(decoder.xdrDecodeBoolean());
+        assertEquals(1.5f, decoder.xdrDecodeFloat(), 0f);
+        assertEquals(0.1, decoder.xdrDecodeDouble(), 0d);
+        assertEquals(-3, decoder.xdrDecodeByte());
+        assertEquals(-4, decoder.xdrDecodeShort());
+        assertEquals("über", decoder.xdrDecodeString());
+        assertEquals("", decoder.xdrDecodeString());
+        assertArrayEquals(new byte[]{1, 2, 3}, decoder.xdrDecodeDynamicOpaque());
+        assertArrayEquals(new byte[]{4, 5, 6, 7, 8}, decoder.xdrDecodeOpaque(5));
+        assertEquals(ByteBuffer.wrap(new byte[]{9, 10}), decoder.xdrDecodeByteBuffer());
+        assertArrayEquals(new int[]{1, 2, 3}, decoder.xdrDecodeIntVector());
+        assertArrayEquals(new long[]{4, 5}, decoder.xdrDecodeLongVector());
+        assertArrayEquals(new float[]{6.5f}, decoder.xdrDecodeFloatVector(), 0f);
+        assertArrayEquals(new double[]{7.5, 8.5}, decoder.xdrDecodeDoubleFixedVector(2), 0d);
+        assertArrayEquals(new byte[]{-1, 0, 1}, decoder.xdrDecodeByteVector());
+        assertArrayEquals(new short[]{-2, 2}, decoder.xdrDecodeShortFixedVector(2));
+        assertEquals(17, decoder.xdrDecodeInt());
+        assertFalse(decoder.hasMoreData());
+        decoder.endDecoding();
+        assertFalse(xdr.hasMoreData());
+    }
+}
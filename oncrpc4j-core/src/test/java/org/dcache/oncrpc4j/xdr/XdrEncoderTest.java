@@ -0,0 +1,97 @@
+package org.dcache.oncrpc4j.xdr;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.glassfish.grizzly.memory.ByteBufferManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class XdrEncoderTest {
+
+    @Test
+    public void shouldEncodeAsXdrOnHeapBuffer() {
+        assertEncodesAsXdr(new Xdr(8), new Xdr(8));
+    }
+
+    @Test
+    public void shouldEncodeAsXdrOnDirectBuffer() {
+        MemoryManager mm = new ByteBufferManager(true, 512, 0);
+        assertEncodesAsXdr(new Xdr(mm.allocate(8), mm), new Xdr(8));
+    }
+
+    @Test
+    public void shouldEncodeAsXdrOnSegmentedBuffer() {
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(20);
+        assertEncodesAsXdr(xdr, new Xdr(8));
+    }
+
+    @Test
+    public void shouldContinueEncodingOfXdr() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(8);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+
+        XdrEncoder encoder = xdr.encoder();
+        encoder.xdrEncodeLong(2);
+        encoder.xdrEncodeString("three");
+        encoder.flush();
+
+        xdr.xdrEncodeInt(4);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        assertEquals(1, xdr.xdrDecodeInt());
+        assertEquals(2L, xdr.xdrDecodeLong());
+        assertEquals("three", xdr.xdrDecodeString());
+        assertEquals(4, xdr.xdrDecodeInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIllegalFixedVector() {
+        Xdr xdr = new Xdr(8);
+        XdrEncoder encoder = xdr.encoder();
+        encoder.beginEncoding();
+        encoder.xdrEncodeIntFixedVector(new int[2], 3);
+    }
+
+    private static void assertEncodesAsXdr(Xdr xdr, Xdr expected) {
+        XdrEncoder encoder = xdr.encoder();
+        encoder.beginEncoding();
+        encode(encoder);
+        encoder.endEncoding();
+
+        expected.beginEncoding();
+        encode(expected);
+        expected.endEncoding();
+
+        assertArrayEquals(expected.getBytes(), xdr.getBytes());
+    }
+
+    private static void encode(XdrEncodingStream xdr) {
+        xdr.xdrEncodeInt(-1);
+        xdr.xdrEncodeLong(Long.MIN_VALUE);
+        xdr.xdrEncodeBoolean(true);
+        xdr.xdrEncodeFloat(Float.NaN);
+        xdr.xdrEncodeDouble(0.1);
+        xdr.xdrEncodeByte((byte) -3);
+        xdr.xdrEncodeShort((short) -4);
+        xdr.xdrEncodeString("über");
+        xdr.xdrEncodeString("odd");
+        xdr.xdrEncodeString("ascii-then-\u00fc");
+        xdr.xdrEncodeString(null);
+        xdr.xdrEncodeDynamicOpaque("odd".getBytes(StandardCharsets.US_ASCII));
+        xdr.xdrEncodeOpaque(new byte[]{1, 2, 3, 4, 5, 6}, 1, 5);
+        xdr.xdrEncodeByteBuffer(ByteBuffer.wrap(new byte[]{7, 8}));
+        xdr.xdrEncodeIntVector(new int[]{1, 2, 3});
+        xdr.xdrEncodeLongVector(new long[]{4, 5});
+        xdr.xdrEncodeFloatVector(new float[]{6.5f});
+        xdr.xdrEncodeDoubleFixedVector(new double[]{7.5, 8.5}, 2);
+        xdr.xdrEncodeByteVector(new byte[]{-1, 0, 1});
+        xdr.xdrEncodeShortFixedVector(new short[]{-2, 2}, 2);
+        xdr.xdrEncodeInt(17);
+    }
+}
@@ -79,4 +79,16 @@ public class XdrIntTest {
         }
     }
 
+    @Test
+    public void testEncodedSize() throws IOException {
+
+        XdrInt xInt = new XdrInt(17);
+        try (Xdr xdr = new Xdr(8)) {
+            xdr.beginEncoding();
+            xInt.xdrEncode(xdr);
+            xdr.endEncoding();
+
+            assertEquals(xdr.getBytes().length, xInt.xdrEncodedSize());
+        }
+    }
 }
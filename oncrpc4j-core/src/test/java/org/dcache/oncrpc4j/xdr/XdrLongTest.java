@@ -75,4 +75,17 @@ public class XdrLongTest {
             assertEquals(297519060383110161L, xLong.longValue());
         }
     }
+
+    @Test
+    public void testEncodedSize() throws IOException {
+
+        XdrLong xLong = new XdrLong(17);
+        try (Xdr xdr = new Xdr(8)) {
+            xdr.beginEncoding();
+            xLong.xdrEncode(xdr);
+            xdr.endEncoding();
+
+            assertEquals(xdr.getBytes().length, xLong.xdrEncodedSize());
+        }
+    }
 }
@@ -143,4 +143,18 @@ public class XdrOpaqueTest {
         }
     }
 
+    @Test
+    public void testEncodedSize() throws IOException {
+
+        for (int len = 0; len < 9; len++) {
+            XdrOpaque opaque = new XdrOpaque(new byte[len]);
+            try (Xdr xdr = new Xdr(8)) {
+                xdr.beginEncoding();
+                opaque.xdrEncode(xdr);
+                xdr.endEncoding();
+
+                assertEquals(xdr.getBytes().length, opaque.xdrEncodedSize());
+            }
+        }
+    }
 }
@@ -19,15 +19,23 @@
  */
 package org.dcache.oncrpc4j.xdr;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import org.dcache.oncrpc4j.util.Bytes;
 
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dcache.oncrpc4j.grizzly.GrizzlyMemoryManager;
 import org.glassfish.grizzly.Buffer;
@@ -43,6 +51,7 @@ import org.junit.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -209,6 +218,95 @@ public class XdrTest {
         assertEquals("encoded/decoded string do not match", "", decoded);
     }
 
+    private static final String[] UNICODE_STRINGS = {
+        "plain-ascii.txt",
+        "gr\u00fc\u00dfe",
+        "\u65e5\u672c\u8a9e\u30d5\u30a1\u30a4\u30eb",
+        "emoji-\ud83d\ude00-end",
+        "unpaired-\ud83d-high",
+        "unpaired-\ude00-low",
+        "trailing-high-\ud83d",
+        "\u00fc".repeat(300),
+        "\u00fc".repeat(5000),
+        "a".repeat(5000),
+        "a".repeat(5000) + "\u00fc",
+        "\u007f\u0080",
+        "\u07ff\u0800\uffff",
+        "\ud83d\ude00",
+        "a\ud83d",
+        "\ude00\ud83d",
+        "\ud83d".repeat(16)
+    };
+
+    @Test
+    public void testEncodeStringAsUtf8() throws BadXdrOncRpcException {
+
+        for (String original : UNICODE_STRINGS) {
+            Xdr xdr = new Xdr(64);
+            xdr.beginEncoding();
+            xdr.xdrEncodeString(original);
+            xdr.endEncoding();
+
+            Xdr expected = new Xdr(64);
+            expected.beginEncoding();
+            expected.xdrEncodeDynamicOpaque(original.getBytes(StandardCharsets.UTF_8));
+            expected.endEncoding();
+
+            assertEquals("encoding mismatch: " + original, expected.asBuffer(), xdr.asBuffer());
+        }
+    }
+
+    @Test
+    public void testEncodeDecodeUnicodeStringDirectBuffer() throws BadXdrOncRpcException {
+
+        MemoryManager mm = new ByteBufferManager(true, 512, 0);
+        for (String original : UNICODE_STRINGS) {
+            Xdr xdr = new Xdr(mm.allocate(4), mm);
+            xdr.beginEncoding();
+            xdr.xdrEncodeString(original);
+            xdr.xdrEncodeInt(17);
+            xdr.endEncoding();
+
+            xdr.beginDecoding();
+            String expected = new String(original.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            assertEquals(expected, xdr.xdrDecodeString());
+            assertEquals(17, xdr.xdrDecodeInt());
+        }
+    }
+
+    @Test
+    public void testEncodeDecodeStringSegmented() throws BadXdrOncRpcException {
+
+        String original = "\u00fc".repeat(100);
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(16);
+        xdr.beginEncoding();
+        xdr.xdrEncodeString(original);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        assertEquals(original, xdr.xdrDecodeString());
+    }
+
+    @Test
+    public void testEncodeDecodeAsciiStringSegmented() throws BadXdrOncRpcException {
+
+        String original = "abc".repeat(33);
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(16);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.xdrEncodeString(original);
+        xdr.xdrEncodeInt(17);
+        xdr.endEncoding();
+        assertTrue(xdr.asBuffer().isComposite());
+
+        xdr.beginDecoding();
+        assertEquals(1, xdr.xdrDecodeInt());
+        assertEquals(original, xdr.xdrDecodeString());
+        assertEquals(17, xdr.xdrDecodeInt());
+    }
+
     @Test
     public void testEncodeDecodeLong() throws BadXdrOncRpcException {
 
@@ -325,6 +423,16 @@ public class XdrTest {
         xdr.xdrDecodeIntVector();
     }
 
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testBadXdrOnArraySizeBiggerThanStream() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(Integer.MAX_VALUE);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        xdr.xdrDecodeDynamicOpaque();
+    }
+
     @Test(expected = BadXdrOncRpcException.class)
     public void testBadXdrOnNegativeArraySize() throws BadXdrOncRpcException {
         CompositeBuffer buffer = BuffersBuffer.create();
@@ -340,6 +448,28 @@ public class XdrTest {
         xdr.xdrDecodeIntVector();
     }
 
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testBadXdrOnNegativeFixedByteVectorSize() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        xdr.xdrDecodeByteFixedVector(-1);
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testBadXdrOnByteVectorSizeBiggerThanStream() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(8);   // len, each byte takes an int
+        xdr.xdrEncodeInt(1);
+        xdr.xdrEncodeInt(2);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        xdr.xdrDecodeByteVector();
+    }
+
     @Test
     public void testAvailalbleData() throws BadXdrOncRpcException {
         CompositeBuffer buffer = BuffersBuffer.create();
@@ -385,6 +515,125 @@ public class XdrTest {
         xdr.getBytes();
     }
 
+    @Test
+    public void testEncodeDecodeVectorsHeapBuffer() throws BadXdrOncRpcException {
+        assertVectorsRoundTrip(new Xdr(8));
+    }
+
+    @Test
+    public void testEncodeDecodeVectorsDirectBuffer() throws BadXdrOncRpcException {
+        MemoryManager mm = new ByteBufferManager(true, 512, 0);
+        assertVectorsRoundTrip(new Xdr(mm.allocate(8), mm));
+    }
+
+    @Test
+    public void testEncodeDecodeVectorsSegmented() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(60);
+        assertVectorsRoundTrip(xdr);
+    }
+
+    @Test
+    public void testVectorWireFormat() {
+        int[] ints = {1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 0x01020304};
+        long[] longs = {1L, -1L, Long.MAX_VALUE, 0x0102030405060708L};
+        float[] floats = {1.5f, Float.NaN, Float.intBitsToFloat(0x7fc00001)};
+        double[] doubles = {-2.5, Double.NaN};
+        short[] shorts = {1, -1, Short.MIN_VALUE};
+
+        Xdr bulk = new Xdr(8);
+        bulk.beginEncoding();
+        bulk.xdrEncodeIntVector(ints);
+        bulk.xdrEncodeLongFixedVector(longs, longs.length);
+        bulk.xdrEncodeFloatVector(floats);
+        bulk.xdrEncodeDoubleFixedVector(doubles, doubles.length);
+        bulk.xdrEncodeShortVector(shorts);
+        bulk.endEncoding();
+
+        Xdr single = new Xdr(8);
+        single.beginEncoding();
+        single.xdrEncodeInt(ints.length);
+        for (int v : ints) {
+            single.xdrEncodeInt(v);
+        }
+        for (long v : longs) {
+            single.xdrEncodeLong(v);
+        }
+        single.xdrEncodeInt(floats.length);
+        for (float v : floats) {
+            single.xdrEncodeFloat(v);
+        }
+        for (double v : doubles) {
+            single.xdrEncodeDouble(v);
+        }
+        single.xdrEncodeInt(shorts.length);
+        for (short v : shorts) {
+            single.xdrEncodeShort(v);
+        }
+        single.endEncoding();
+
+        assertArrayEquals(single.getBytes(), bulk.getBytes());
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testBadXdrOnShortLongVector() throws BadXdrOncRpcException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(3);  // len
+        xdr.xdrEncodeLong(1);
+        xdr.xdrEncodeLong(2);
+        xdr.endEncoding();
+        xdr.beginDecoding();
+        xdr.xdrDecodeLongVector();
+    }
+
+    private void assertVectorsRoundTrip(Xdr xdr) throws BadXdrOncRpcException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] ints = random.ints(1001).toArray();
+        long[] longs = random.longs(513).toArray();
+        double[] doubles = random.doubles(257).toArray();
+        float[] floats = new float[129];
+        short[] shorts = new short[65];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = random.nextFloat();
+        }
+        for (int i = 0; i < shorts.length; i++) {
+            shorts[i] = (short) random.nextInt();
+        }
+
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(17);
+        xdr.xdrEncodeIntVector(ints);
+        xdr.xdrEncodeIntFixedVector(ints, ints.length);
+        xdr.xdrEncodeLongVector(longs);
+        xdr.xdrEncodeLongFixedVector(longs, longs.length);
+        xdr.xdrEncodeFloatVector(floats);
+        xdr.xdrEncodeFloatFixedVector(floats, floats.length);
+        xdr.xdrEncodeDoubleVector(doubles);
+        xdr.xdrEncodeDoubleFixedVector(doubles, doubles.length);
+        xdr.xdrEncodeShortVector(shorts);
+        xdr.xdrEncodeShortFixedVector(shorts, shorts.length);
+        xdr.xdrEncodeIntVector(new int[0]);
+        xdr.xdrEncodeInt(18);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        assertEquals(17, xdr.xdrDecodeInt());
+        assertArrayEquals(ints, xdr.xdrDecodeIntVector());
+        assertArrayEquals(ints, xdr.xdrDecodeIntFixedVector(ints.length));
+        assertArrayEquals(longs, xdr.xdrDecodeLongVector());
+        assertArrayEquals(longs, xdr.xdrDecodeLongFixedVector(longs.length));
+        assertArrayEquals(floats, xdr.xdrDecodeFloatVector(), 0f);
+        assertArrayEquals(floats, xdr.xdrDecodeFloatFixedVector(floats.length), 0f);
+        assertArrayEquals(doubles, xdr.xdrDecodeDoubleVector(), 0d);
+        assertArrayEquals(doubles, xdr.xdrDecodeDoubleFixedVector(doubles.length), 0d);
+        assertArrayEquals(shorts, xdr.xdrDecodeShortVector());
+        assertArrayEquals(shorts, xdr.xdrDecodeShortFixedVector(shorts.length));
+        assertEquals(0, xdr.xdrDecodeIntVector().length);
+        assertEquals(18, xdr.xdrDecodeInt());
+        assertFalse(xdr.hasMoreData());
+    }
+
     @Test
     public void testFixedFloatVector() throws BadXdrOncRpcException {
         float[] floats = new float[]{1.0f, 2.0f};
@@ -730,13 +979,53 @@ public class XdrTest {
         assertThat("Encoding misaligned file chunk", messages.length, is(3));
     }
 
-    @Test(expected = IllegalArgumentException.class)
-    public void testEncodingMultipleFileChunk() throws BadXdrOncRpcException {
+    @Test
+    public void testAsWritableMessageMultipleFileChunks() throws BadXdrOncRpcException {
         Xdr encoder = new Xdr(_buffer);
         encoder.beginEncoding();
         encoder.xdrEncodeInt(42);
-        encoder.xdrEncodeFileChunk(mockFileChunk(64 * 1024));
-        encoder.xdrEncodeFileChunk(mockFileChunk(64 * 1024));
+        FileChunk first = mockFileChunk(64 * 1024);
+        encoder.xdrEncodeFileChunk(first);
+        FileChunk second = mockFileChunk(64 * 1024);
+        encoder.xdrEncodeFileChunk(second);
+        encoder.xdrEncodeInt(43);
+        FileChunk third = mockFileChunk(64 * 1024 + 1);
+        encoder.xdrEncodeFileChunk(third);
+        encoder.endEncoding();
+
+        WritableMessage[] messages = encoder.asBufferWritableMessages();
+        assertThat(messages.length, is(7));
+        assertThat(((Buffer) messages[0]).remaining(), is(8));
+        assertThat(messages[1], is(first));
+        assertThat(((Buffer) messages[2]).remaining(), is(4));
+        assertThat(messages[3], is(second));
+        assertThat(((Buffer) messages[4]).remaining(), is(8));
+        assertThat(messages[5], is(third));
+        assertThat(((Buffer) messages[6]).remaining(), is(3));
+        assertFalse(encoder.hasFileChunk());
+    }
+
+    @Test
+    public void testMergeMultipleFileChunksOnAsBuffer() throws IOException {
+        var first = new byte[1021];
+        var second = new byte[4096];
+
+        Xdr encoder = new Xdr(8);
+        encoder.setSegmentSize(16);
+        encoder.beginEncoding();
+        encoder.xdrEncodeInt(42);
+        encoder.xdrEncodeFileChunk(randomFileChunk(first));
+        encoder.xdrEncodeFileChunk(randomFileChunk(second));
+        encoder.xdrEncodeString("tail");
+        encoder.endEncoding();
+
+        Xdr decoder = new Xdr(encoder.asBuffer());
+        decoder.beginDecoding();
+        assertEquals(42, decoder.xdrDecodeInt());
+        assertArrayEquals(first, decoder.xdrDecodeDynamicOpaque());
+        assertArrayEquals(second, decoder.xdrDecodeDynamicOpaque());
+        assertEquals("tail", decoder.xdrDecodeString());
+        assertFalse(decoder.hasMoreData());
     }
 
     @Test
@@ -826,4 +1115,250 @@ public class XdrTest {
 
         return new FileTransfer(f, 0, data.length);
     }
+
+    @Test
+    public void testStringEncodedSize() throws IOException {
+
+        for (String s : new String[]{null, "", "abc", "abcd", "\u00fcber", "\ud83d\ude00", "\ud83d"}) {
+            XdrString xdrString = new XdrString(s);
+            Xdr xdr = new Xdr(8);
+            xdr.beginEncoding();
+            xdrString.xdrEncode(xdr);
+            xdr.endEncoding();
+
+            assertThat(xdrString.xdrEncodedSize(), greaterThanOrEqualTo(xdr.getBytes().length));
+            if (s == null || !s.equals("\ud83d")) {
+                assertEquals(xdr.getBytes().length, xdrString.xdrEncodedSize());
+            }
+        }
+    }
+
+    @Test
+    public void testEnsureCapacityGrowsOnce() {
+
+        Xdr xdr = new Xdr(8);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.ensureCapacity(1024);
+        Buffer buffer = xdr.asBuffer();
+        for (int i = 0; i < 256; i++) {
+            xdr.xdrEncodeInt(i);
+        }
+        assertTrue(buffer == xdr.asBuffer());
+    }
+
+    @Test
+    public void testSegmentedGrowthDoesNotReallocate() throws IOException {
+
+        Xdr xdr = new Xdr(16);
+        xdr.setSegmentSize(64);
+        xdr.beginEncoding();
+
+        byte[] data = new byte[1000];
+        ThreadLocalRandom.current().nextBytes(data);
+        for (int i = 0; i < 100; i++) {
+            xdr.xdrEncodeInt(i);
+        }
+        xdr.xdrEncodeDynamicOpaque(data);
+        xdr.xdrEncodeLong(Long.MAX_VALUE);
+        xdr.endEncoding();
+
+        assertTrue(xdr.asBuffer().isComposite());
+
+        xdr.beginDecoding();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, xdr.xdrDecodeInt());
+        }
+        assertArrayEquals(data, xdr.xdrDecodeDynamicOpaque());
+        assertEquals(Long.MAX_VALUE, xdr.xdrDecodeLong());
+        assertFalse(xdr.hasMoreData());
+    }
+
+    @Test
+    public void testDecodeOpaqueIntoChannel() throws IOException {
+        byte[] data = new byte[1021];
+        ThreadLocalRandom.current().nextBytes(data);
+
+        Xdr xdr = new Xdr(8);
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(data);
+        xdr.xdrEncodeInt(17);
+        xdr.endEncoding();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        xdr.beginDecoding();
+        assertEquals(data.length, xdr.xdrDecodeOpaque(Channels.newChannel(out)));
+        assertEquals(17, xdr.xdrDecodeInt());
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testDecodeFragmentedOpaqueIntoFileChannel() throws IOException {
+        byte[] data = new byte[1021];
+        ThreadLocalRandom.current().nextBytes(data);
+
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(100);
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(data);
+        xdr.xdrEncodeInt(17);
+        xdr.endEncoding();
+        assertTrue(xdr.asBuffer().isComposite());
+
+        var tmp = Files.createTempFile("xdrtest", "data");
+        tmp.toFile().deleteOnExit();
+        xdr.beginDecoding();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            assertEquals(data.length, xdr.xdrDecodeOpaque(channel));
+        }
+        assertEquals(17, xdr.xdrDecodeInt());
+        assertArrayEquals(data, Files.readAllBytes(tmp));
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testDecodeTruncatedOpaqueIntoChannel() throws IOException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(5);
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        xdr.xdrDecodeOpaque(Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    @Test(expected = BadXdrOncRpcException.class)
+    public void testDecodeOpaqueWithNonZeroPaddingIntoChannel() throws IOException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(3);
+        xdr.xdrEncodeInt(0x01020304);
+        xdr.endEncoding();
+
+        xdr.beginDecoding();
+        xdr.xdrDecodeOpaque(Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeOpaqueIntoNonBlockingChannel() throws IOException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeDynamicOpaque(new byte[8]);
+        xdr.endEncoding();
+
+        WritableByteChannel channel = mock(WritableByteChannel.class);
+        when(channel.isOpen()).thenReturn(true);
+        when(channel.write(any())).thenReturn(0);
+
+        xdr.beginDecoding();
+        xdr.xdrDecodeOpaque(channel);
+    }
+
+    @Test
+    public void testEncodeMappedBufferWithoutCopy() throws IOException {
+        byte[] data = new byte[1023];
+        ThreadLocalRandom.current().nextBytes(data);
+        var tmp = Files.createTempFile("xdrtest", "data");
+        tmp.toFile().deleteOnExit();
+        Files.write(tmp, data);
+
+        AtomicInteger released = new AtomicInteger();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // encode less than mapped to check that padding is not taken from the mapping
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, data.length);
+            mapped.limit(data.length - 2);
+
+            Xdr xdr = new Xdr(8);
+            xdr.beginEncoding();
+            xdr.xdrEncodeInt(42);
+            xdr.xdrEncodeShallowByteBuffer(mapped, released::incrementAndGet);
+            xdr.xdrEncodeString("tail");
+            xdr.endEncoding();
+
+            // the message references the mapping
+            mapped.put(0, (byte) (data[0] + 1));
+            data[0]++;
+
+            Buffer buffer = xdr.asBuffer();
+            byte[] encoded = new byte[buffer.remaining()];
+            buffer.get(encoded);
+
+            Xdr decoder = new Xdr(encoded);
+            decoder.beginDecoding();
+            assertEquals(42, decoder.xdrDecodeInt());
+            assertArrayEquals(Arrays.copyOf(data, data.length - 2), decoder.xdrDecodeDynamicOpaque());
+            assertEquals("tail", decoder.xdrDecodeString());
+            assertFalse(decoder.hasMoreData());
+
+            // padding must be zeros
+            assertEquals(0, encoded[4 + 4 + data.length - 2]);
+            assertEquals(0, encoded[4 + 4 + data.length - 1]);
+
+            assertEquals(0, released.get());
+            xdr.close();
+            assertEquals(1, released.get());
+        }
+    }
+
+    @Test
+    public void testReleaseShallowBufferOnce() {
+        AtomicInteger released = new AtomicInteger();
+
+        Xdr xdr = new Xdr(8);
+        xdr.setSegmentSize(16);
+        xdr.beginEncoding();
+        xdr.xdrEncodeShallowByteBuffer(ByteBuffer.allocateDirect(100), released::incrementAndGet);
+        xdr.xdrEncodeShallowByteBuffer(ByteBuffer.allocateDirect(7), released::incrementAndGet);
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+
+        Buffer buffer = xdr.asBuffer();
+        assertEquals(4 + 100 + 4 + 8 + 4, buffer.remaining());
+        assertEquals(0, released.get());
+
+        // as done by the write queue after the message is sent
+        buffer.release();
+        assertEquals(2, released.get());
+        xdr.close();
+        assertEquals(2, released.get());
+    }
+
+    @Test
+    public void testPrependIntoReservedHeader() throws IOException {
+        Xdr xdr = new Xdr(2);
+        xdr.setSegmentSize(8);
+        xdr.setReservedHeaderSize(4);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.xdrEncodeString("abc");
+        xdr.endEncoding();
+
+        Buffer buffer = xdr.asBuffer();
+        assertEquals(4 + 8, buffer.remaining());
+
+        xdr.beginDecoding();
+        assertEquals(1, xdr.xdrDecodeInt());
+        xdr.endDecoding();
+
+        assertTrue(xdr.prependInt(42));
+        assertFalse("header space used twice", xdr.prependInt(43));
+        assertEquals(4 + 4 + 8, buffer.remaining());
+        assertEquals(42, buffer.getInt(buffer.position()));
+
+        xdr.beginDecoding();
+        assertEquals(42, xdr.xdrDecodeInt());
+        assertEquals(1, xdr.xdrDecodeInt());
+        assertEquals("abc", xdr.xdrDecodeString());
+    }
+
+    @Test
+    public void testPrependWithoutReservedHeader() throws IOException {
+        Xdr xdr = new Xdr(32);
+        xdr.beginEncoding();
+        xdr.xdrEncodeInt(1);
+        xdr.endEncoding();
+
+        assertFalse(xdr.prependInt(42));
+        assertEquals(4, xdr.asBuffer().remaining());
+    }
 }
@@ -48,6 +48,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 
 /**
@@ -912,6 +913,88 @@ public class jrpcgen {
         }
     }
 
+    /**
+     * Return code, which skips a struct or union member in the XDR stream
+     * without decoding it into Java objects.
+     *
+     * @param decl declaration for which the skipping Java source code be
+     *   returned.
+     */
+    public static String skipMethod(JrpcgenDeclaration decl) {
+        //
+        // Skip entries for void arms etc...
+        //
+        if (decl.identifier == null) {
+            return "";
+        }
+
+        StringBuilder code = new StringBuilder();
+        JrpcgenEnDecodingInfo data = baseEnDecodingSyllable(decl);
+
+        if (data != null) {
+            //
+            // It's a base data type (including vectors). Opaques, strings
+            // and vectors are skipped as a whole, scalars are decoded and
+            // dropped, as this does not allocate anything.
+            //   - xdr.xdrSkipXXX(size);
+            //   - xdr.xdrDecodeXXX();
+            //
+            String syllable = data.syllable;
+            String options = data.decodingOptions;
+            code.append("        xdr.");
+            if ("Opaque".equals(syllable)) {
+                code.append("xdrSkipFixedOpaque");
+            } else if ("DynamicOpaque".equals(syllable)) {
+                code.append("xdrSkipOpaque");
+            } else if ("String".equals(syllable)) {
+                code.append("xdrSkipString");
+            } else if (syllable.endsWith("Vector")) {
+                //
+                // All base types, except of hyper and double, are encoded
+                // as four bytes per element.
+                //
+                code.append(syllable.startsWith("Long") || syllable.startsWith("Double")
+                        ? "xdrSkipLong" : "xdrSkipInt");
+                code.append(syllable.endsWith("FixedVector") ? "FixedVector" : "Vector");
+            } else {
+                code.append("xdrDecode").append(syllable);
+            }
+            code.append("(");
+            if (options != null) {
+                code.append(options);
+            }
+            code.append(");\n");
+            return code.toString();
+        }
+
+        //
+        // It's not a built-in base data type but instead something that
+        // is represented by a class, which knows how to skip itself.
+        //
+        if (decl.kind == JrpcgenDeclaration.SCALAR) {
+            code.append("        ");
+            code.append(decl.type).append(".skip(xdr);\n");
+        } else if (decl.kind == JrpcgenDeclaration.INDIRECTION) {
+            code.append("        ");
+            code.append("if ( xdr.xdrDecodeBoolean() ) { ");
+            code.append(decl.type).append(".skip(xdr);");
+            code.append(" }\n");
+        } else {
+            code.append("        { ");
+            code.append("int $size = ");
+            if (decl.kind == JrpcgenDeclaration.DYNAMICVECTOR) {
+                code.append("xdr.xdrDecodeInt()");
+            } else {
+                code.append(checkForEnumValue(decl.size));
+            }
+            code.append("; ");
+            code.append("for ( int $idx = 0; $idx < $size; ++$idx ) { ");
+            code.append(decl.type).append(".skip(xdr); ");
+            code.append("} }\n");
+        }
+        return code.toString();
+    }
+
     /**
      * Checks whether a given data type identifier refers to an enumeration
      * type and then returns Java's int data type instead. In case of the
@@ -1154,6 +1237,23 @@ public class jrpcgen {
             }
         }
         out.println("    }");
+
+        out.println();
+        out.println("    public static void skip(XdrDecodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        decls = s.elements.elements();
+        if (useIteration) {
+            out.println("        do {");
+            for (int size = s.elements.size(); size > 1; --size) {
+                out.print("    " + skipMethod((JrpcgenDeclaration) decls.nextElement()));
+            }
+            out.println("        } while ( xdr.xdrDecodeBoolean() );");
+        } else {
+            while (decls.hasMoreElements()) {
+                out.print(skipMethod((JrpcgenDeclaration) decls.nextElement()));
+            }
+        }
+        out.println("    }");
         //
         // Close class...
         //
@@ -1187,8 +1287,6 @@ public class jrpcgen {
         out.println("    public " + checkForSpecials(u.descriminant.type) + " "
                 + u.descriminant.identifier + ";");
 
-        boolean boolDescriminant = u.descriminant.type.equals("boolean");
-
         JrpcgenSHA hash = createSHA(u.identifier);
         Enumeration arms = u.elements.elements();
         while (arms.hasMoreElements()) {
@@ -1247,92 +1345,43 @@ public class jrpcgen {
         out.println("    public void xdrEncode(XdrEncodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
         out.print(codingMethod(u.descriminant, true));
-        if (!boolDescriminant) {
-            //
-            // Produce code using an ordinary switch statement...
-            //
-            out.println("        switch ( " + u.descriminant.identifier + " ) {");
-            arms = u.elements.elements();
-            while (arms.hasMoreElements()) {
-                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
-                if (a.value != null) {
-                    out.println("        case " + checkForEnumValue(a.value) + ":");
-                } else {
-                    //
-                    // It's the default arm.
-                    //
-                    out.println("        default:");
-                }
-                //
-                // Only emit code if arm does not map to another arm.
-                //
-                if (a.element != null) {
-                    if (a.element.identifier != null) {
-                        //
-                        // Arm does not contain void, so we need to spit out
-                        // encoding instructions.
-                        //
-                        out.print("    ");
-                        out.print(codingMethod(a.element, true));
-                    }
-                    out.println("            break;");
-                }
-            }
-            out.println("        }");
-        } else {
-            //
-            // boolean descriminant: here we can have at most two arms, guess
-            // why.
-            //
-            boolean firstArm = true;
-            arms = u.elements.elements();
-            while (arms.hasMoreElements()) {
-                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
-                if (a.value == null) {
-                    //
-                    // Skip default branch this time...
-                    //
-                    continue;
-                }
-                if (a.element.identifier != null) {
-                    //
-                    // Arm contains data, so we need to create encoding
-                    // instructions.
-                    //
-                    out.print("        ");
-                    if (!firstArm) {
-                        out.print("else ");
-                    } else {
-                        firstArm = false;
-                    }
-                    out.println("if ( " + u.descriminant.identifier
-                            + " == " + checkForEnumValue(a.value) + " ) {");
-                    out.print("    ");
-                    out.print(codingMethod(a.element, true));
-                    out.println("        }");
-                }
-            }
-            arms = u.elements.elements();
-            while (arms.hasMoreElements()) {
-                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
-                if ((a.value == null) && (a.element.identifier != null)) {
-                    out.print("        ");
-                    if (!firstArm) {
-                        out.print("else ");
-                    }
-                    out.println("{");
-                    out.print("    ");
-                    out.print(codingMethod(a.element, true));
-                    out.println("        }");
-                }
-            }
-        }
+        dumpUnionArms(out, u, decl -> codingMethod(decl, true));
         out.println("    }");
 
         out.println();
         out.println("    public void xdrDecode(XdrDecodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
         out.print(codingMethod(u.descriminant, false));
+        dumpUnionArms(out, u, decl -> codingMethod(decl, false));
+        out.println("    }");
+
+        out.println();
+        out.println("    public static void skip(XdrDecodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.println("        " + checkForSpecials(u.descriminant.type) + " "
+                + codingMethod(u.descriminant, false).trim());
+        dumpUnionArms(out, u, jrpcgen::skipMethod);
+        out.println("    }");
+        //
+        // Close class...
+        //
+        out.println();
+        out.println("}");
+        closeJavaSourceFile();
+    }
+
+    /**
+     * Generate the code handling the arms of a union, which follows the
+     * code handling its descriminant.
+     *
+     * @param out the source code file.
+     * @param u {@link JrpcgenUnion Description} of XDR union.
+     * @param armMethod returns the code for the member of a single arm.
+     */
+    private static void dumpUnionArms(PrintWriter out, JrpcgenUnion u,
+            Function<JrpcgenDeclaration, String> armMethod) {
+        boolean boolDescriminant = u.descriminant.type.equals("boolean");
+        Enumeration arms;
         if (!boolDescriminant) {
             //
             // Produce code using an ordinary switch statement...
@@ -1341,7 +1390,6 @@ public class jrpcgen {
             arms = u.elements.elements();
             while (arms.hasMoreElements()) {
                 JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
-
                 if (a.value != null) {
                     out.println("        case " + checkForEnumValue(a.value) + ":");
                 } else {
@@ -1357,10 +1405,10 @@ public class jrpcgen {
                     if (a.element.identifier != null) {
                         //
                         // Arm does not contain void, so we need to spit out
-                        // encoding instructions.
+                        // some code.
                         //
                         out.print("    ");
-                        out.print(codingMethod(a.element, false));
+                        out.print(armMethod.apply(a.element));
                     }
                     out.println("            break;");
                 }
@@ -1383,8 +1431,7 @@ public class jrpcgen {
                 }
                 if (a.element.identifier != null) {
                     //
-                    // Arm contains data, so we need to create encoding
-                    // instructions.
+                    // Arm contains data, so we need to create some code.
                     //
                     out.print("        ");
                     if (!firstArm) {
@@ -1395,7 +1442,7 @@ public class jrpcgen {
                     out.println("if ( " + u.descriminant.identifier
                             + " == " + checkForEnumValue(a.value) + " ) {");
                     out.print("    ");
-                    out.print(codingMethod(a.element, false));
+                    out.print(armMethod.apply(a.element));
                     out.println("        }");
                 }
             }
@@ -1409,18 +1456,11 @@ public class jrpcgen {
                     }
                     out.println("{");
                     out.print("    ");
-                    out.print(codingMethod(a.element, false));
+                    out.print(armMethod.apply(a.element));
                     out.println("        }");
                 }
             }
         }
-        out.println("    }");
-        //
-        // Close class...
-        //
-        out.println();
-        out.println("}");
-        closeJavaSourceFile();
     }
 
     /**
@@ -1499,6 +1539,12 @@ public class jrpcgen {
         out.println("           throws OncRpcException, IOException {");
         out.print(codingMethod(dstar, false));
         out.println("    }");
+
+        out.println();
+        out.println("    public static void skip(XdrDecodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.print(skipMethod(dstar));
+        out.println("    }");
         //
         // Close class...
         //
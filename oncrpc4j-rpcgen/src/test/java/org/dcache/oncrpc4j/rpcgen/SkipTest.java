@@ -0,0 +1,90 @@
+package org.dcache.oncrpc4j.rpcgen;
+
+import org.dcache.oncrpc4j.xdr.Xdr;
+import org.dcache.oncrpc4j.xdr.XdrDecoder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SkipTest {
+
+    private Xdr xdr;
+
+    @Before
+    public void setUp() throws Exception {
+        Attributes file = attributes(FileType.REG, 4096);
+        Attributes dir = attributes(FileType.DIR, 512);
+
+        Entry link = new Entry();
+        link.name = new FileName("link");
+        link.target = new Target();
+        link.target.type = FileType.LNK;
+        link.target.path = "../some/where";
+
+        Entry subdir = new Entry();
+        subdir.name = new FileName("subdir");
+        subdir.attrs = dir;
+        subdir.target = new Target();
+        subdir.target.type = FileType.DIR;
+        subdir.target.dir = new Attributes[]{dir, dir};
+        subdir.next = link;
+
+        Entry regular = new Entry();
+        regular.name = new FileName("file");
+        regular.attrs = file;
+        regular.target = new Target();
+        regular.target.type = FileType.REG;
+        regular.next = subdir;
+
+        Listing listing = new Listing();
+        listing.entries = regular;
+        listing.scores = new double[]{0.5, 1.5, 2.5};
+        listing.extra = new Attributes[]{file};
+        listing.eof = true;
+
+        xdr = new Xdr(64);
+        xdr.beginEncoding();
+        listing.xdrEncode(xdr);
+        xdr.xdrEncodeInt(17);
+        xdr.endEncoding();
+    }
+
+    @Test
+    public void shouldSkipWithXdr() throws Exception {
+        xdr.beginDecoding();
+        Listing.skip(xdr);
+        assertEquals(17, xdr.xdrDecodeInt());
+        assertFalse(xdr.hasMoreData());
+    }
+
+    @Test
+    public void shouldSkipWithDecoder() throws Exception {
+        xdr.beginDecoding();
+        XdrDecoder decoder = xdr.decoder();
+        Listing.skip(decoder);
+        assertEquals(17, decoder.xdrDecodeInt());
+        assertFalse(decoder.hasMoreData());
+    }
+
+    @Test
+    public void shouldSkipMember() throws Exception {
+        xdr.beginDecoding();
+        assertEquals(true, xdr.xdrDecodeBoolean());
+        Entry.skip(xdr);
+        assertArrayEquals(new double[]{0.5, 1.5, 2.5}, xdr.xdrDecodeDoubleVector(), 0d);
+    }
+
+    private static Attributes attributes(int type, long size) {
+        Attributes attributes = new Attributes();
+        attributes.type = type;
+        attributes.mode = 0755;
+        attributes.size = size;
+        attributes.times = new Timestamps(new long[]{1, 2, 3});
+        attributes.groups = new int[]{100, 200};
+        attributes.verifier = new byte[]{1, 2, 3, 4, 5, 6, 7, 8};
+        return attributes;
+    }
+}
@@ -0,0 +1,40 @@
+enum FileType {
+    REG = 1,
+    DIR = 2,
+    LNK = 5
+};
+
+typedef string FileName<255>;
+typedef hyper Timestamps[3];
+
+struct Attributes {
+    FileType type;
+    unsigned int mode;
+    hyper size;
+    Timestamps times;
+    int groups<16>;
+    opaque verifier[8];
+};
+
+union Target switch (FileType type) {
+    case LNK:
+        string path<>;
+    case DIR:
+        Attributes dir[2];
+    default:
+        void;
+};
+
+struct Entry {
+    FileName name;
+    Attributes *attrs;
+    Target target;
+    Entry *next;
+};
+
+struct Listing {
+    Entry *entries;
+    double scores<>;
+    Attributes extra<>;
+    bool eof;
+};
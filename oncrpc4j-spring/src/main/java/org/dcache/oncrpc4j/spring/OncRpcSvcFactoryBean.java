@@ -101,6 +101,12 @@ public class OncRpcSvcFactoryBean implements FactoryBean<OncRpcSvcBuilder> {
         }
     }
 
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        if (useVirtualThreads) {
+            builder.withVirtualThreadIoStrategy();
+        }
+    }
+
     public void setEnableJmx(boolean enable) {
         if (enable) {
             builder.withJMX();